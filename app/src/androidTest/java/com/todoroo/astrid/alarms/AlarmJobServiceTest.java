@@ -36,7 +36,7 @@ public class AlarmJobServiceTest extends InjectingTestCase {
   @Before
   public void before() {
     jobs = mock(NotificationQueue.class);
-    alarmService = new AlarmService(alarmDao, jobs);
+    alarmService = new AlarmService(alarmDao, jobs, taskDao);
   }
 
   @After
@@ -0,0 +1,122 @@
+package com.todoroo.astrid.api;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static junit.framework.Assert.assertEquals;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.collect.Lists;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Task;
+import java.util.List;
+import javax.inject.Inject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.data.Tag;
+import org.tasks.data.TagDao;
+import org.tasks.data.UserActivity;
+import org.tasks.data.UserActivityDao;
+import org.tasks.injection.InjectingTestCase;
+import org.tasks.injection.TestComponent;
+
+@RunWith(AndroidJUnit4.class)
+public class SearchFilterTest extends InjectingTestCase {
+
+  @Inject TaskDao taskDao;
+  @Inject TagDao tagDao;
+  @Inject UserActivityDao userActivityDao;
+
+  @Test
+  public void prefixMatchTitle() {
+    Task task = newTask("Buy groceries", null);
+
+    assertEquals(singletonList(task.getId()), search("groc"));
+  }
+
+  @Test
+  public void matchNotes() {
+    Task task = newTask("title", "call the plumber");
+
+    assertEquals(singletonList(task.getId()), search("plumb"));
+  }
+
+  @Test
+  public void matchAllTerms() {
+    newTask("call mom", null);
+    Task task = newTask("call the plumber", null);
+
+    assertEquals(singletonList(task.getId()), search("call plumb"));
+  }
+
+  @Test
+  public void matchTags() {
+    Task task = newTask("title", null);
+    tagDao.insert(new Tag(task, "errands", "uid"));
+
+    assertEquals(singletonList(task.getId()), search("errand"));
+  }
+
+  @Test
+  public void removeDeletedTags() {
+    Task task = newTask("title", null);
+    tagDao.insert(new Tag(task, "errands", "uid"));
+    tagDao.deleteTags(task.getId(), singletonList("uid"));
+
+    assertEquals(emptyList(), search("errand"));
+  }
+
+  @Test
+  public void matchComments() {
+    Task task = newTask("title", null);
+    UserActivity comment = new UserActivity();
+    comment.setMessage("left a voicemail");
+    comment.setTargetId(task.getUuid());
+    userActivityDao.createNew(comment);
+
+    assertEquals(singletonList(task.getId()), search("voicemail"));
+  }
+
+  @Test
+  public void updateIndexOnSave() {
+    Task task = newTask("old title", null);
+    task.setTitle("new title");
+    taskDao.save(task);
+
+    assertEquals(emptyList(), search("old"));
+    assertEquals(singletonList(task.getId()), search("new"));
+  }
+
+  @Test
+  public void rankTitleMatchesFirst() {
+    Task notes = newTask("title", "dentist");
+    Task title = newTask("dentist", null);
+
+    assertEquals(asList(title.getId(), notes.getId()), search("dentist"));
+  }
+
+  @Test
+  public void ignoreSearchSyntax() {
+    Task task = newTask("re: \"quarterly\" report", null);
+
+    assertEquals(singletonList(task.getId()), search("\"quarterly* -report"));
+  }
+
+  private Task newTask(String title, String notes) {
+    Task task = new Task();
+    task.setTitle(title);
+    task.setNotes(notes);
+    taskDao.createNew(task);
+    return task;
+  }
+
+  private List<Long> search(String query) {
+    return Lists.transform(
+        taskDao.fetchFiltered(new SearchFilter(query, query)), Task::getId);
+  }
+
+  @Override
+  protected void inject(TestComponent component) {
+    component.inject(this);
+  }
+}
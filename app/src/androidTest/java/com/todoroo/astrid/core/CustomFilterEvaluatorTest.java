@@ -0,0 +1,74 @@
+package com.todoroo.astrid.core;
+
+import static com.todoroo.astrid.core.CustomFilterActivity.CriterionInstance.TYPE_ADD;
+import static com.todoroo.astrid.core.CustomFilterActivity.CriterionInstance.TYPE_INTERSECT;
+import static com.todoroo.astrid.core.CustomFilterActivity.CriterionInstance.TYPE_SUBTRACT;
+import static com.todoroo.astrid.core.CustomFilterActivity.CriterionInstance.TYPE_UNIVERSE;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.todoroo.astrid.core.CustomFilterEvaluator.Step;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Task;
+import javax.inject.Inject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.injection.InjectingTestCase;
+import org.tasks.injection.TestComponent;
+
+@RunWith(AndroidJUnit4.class)
+public class CustomFilterEvaluatorTest extends InjectingTestCase {
+
+  private static final String HIGH = "SELECT _id FROM tasks WHERE importance = 0";
+  private static final String NO_PRIORITY = "SELECT _id FROM tasks WHERE importance = 3";
+  private static final String BORING = "SELECT _id FROM tasks WHERE title = 'boring'";
+
+  @Inject TaskDao taskDao;
+  @Inject CustomFilterEvaluator evaluator;
+
+  @Override
+  public void setUp() {
+    super.setUp();
+    newTask("fun", Task.Priority.HIGH);
+    newTask("boring", Task.Priority.HIGH);
+    newTask("fun", Task.Priority.NONE);
+    newTask("boring", Task.Priority.NONE);
+  }
+
+  @Test
+  public void intersectAndSubtract() {
+    assertArrayEquals(
+        new int[] {4, 2, 1},
+        evaluator.count(
+            asList(
+                new Step(TYPE_UNIVERSE, null),
+                new Step(TYPE_INTERSECT, HIGH),
+                new Step(TYPE_SUBTRACT, BORING))));
+  }
+
+  @Test
+  public void andBindsTighterThanOr() {
+    // active AND high OR no priority AND NOT boring
+    assertArrayEquals(
+        new int[] {4, 2, 4, 3},
+        evaluator.count(
+            asList(
+                new Step(TYPE_UNIVERSE, null),
+                new Step(TYPE_INTERSECT, HIGH),
+                new Step(TYPE_ADD, NO_PRIORITY),
+                new Step(TYPE_SUBTRACT, BORING))));
+  }
+
+  private void newTask(String title, int priority) {
+    Task task = new Task();
+    task.setTitle(title);
+    task.setPriority(priority);
+    taskDao.createNew(task);
+  }
+
+  @Override
+  protected void inject(TestComponent component) {
+    component.inject(this);
+  }
+}
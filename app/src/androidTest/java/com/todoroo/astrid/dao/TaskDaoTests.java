@@ -9,15 +9,19 @@ package com.todoroo.astrid.dao;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotSame;
 import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.fail;
 
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.service.TaskDeleter;
 import javax.inject.Inject;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.tasks.data.CaldavDao;
+import org.tasks.data.CaldavTask;
 import org.tasks.injection.InjectingTestCase;
 import org.tasks.injection.TestComponent;
 import org.tasks.jobs.WorkManager;
@@ -28,6 +32,7 @@ public class TaskDaoTests extends InjectingTestCase {
   @Inject TaskDao taskDao;
   @Inject TaskDeleter taskDeleter;
   @Inject WorkManager workManager;
+  @Inject CaldavDao caldavDao;
 
   @Override
   public void setUp() {
@@ -155,6 +160,105 @@ public class TaskDaoTests extends InjectingTestCase {
     assertEquals(0, taskDao.getAll().size());
   }
 
+  @Test
+  public void testCachedFetchReadsRowOnce() {
+    Task task = new Task();
+    taskDao.createNew(task);
+    long misses = taskDao.getCacheMisses();
+    long hits = taskDao.getCacheHits();
+
+    taskDao.cached(
+        () -> {
+          taskDao.fetch(task.getId());
+          return taskDao.fetch(task.getId());
+        });
+
+    assertEquals(misses + 1, taskDao.getCacheMisses());
+    assertEquals(hits + 1, taskDao.getCacheHits());
+  }
+
+  @Test
+  public void testCachedFetchReturnsCopies() {
+    Task task = new Task();
+    task.setTitle("happy");
+    taskDao.createNew(task);
+
+    String title =
+        taskDao.cached(
+            () -> {
+              taskDao.fetch(task.getId()).setTitle("sad");
+              return taskDao.fetch(task.getId()).getTitle();
+            });
+
+    assertEquals("happy", title);
+  }
+
+  @Test
+  public void testSaveUpdatesCachedRow() {
+    Task task = new Task();
+    task.setTitle("happy");
+    taskDao.createNew(task);
+
+    String title =
+        taskDao.cached(
+            () -> {
+              Task cached = taskDao.fetch(task.getId());
+              cached.setTitle("sad");
+              taskDao.save(cached);
+              return taskDao.fetch(task.getId()).getTitle();
+            });
+
+    assertEquals("sad", title);
+  }
+
+  @Test
+  public void testUnitOfWorkRollsBackEveryWrite() {
+    Task task = new Task();
+    task.setTitle("happy");
+    taskDao.createNew(task);
+
+    try {
+      taskDao.runInTransaction(
+          () -> {
+            taskDao.createNew(new Task());
+            task.setTitle("sad");
+            taskDao.save(task, null);
+            throw new IllegalStateException();
+          });
+      fail();
+    } catch (IllegalStateException ignored) {
+    }
+
+    assertEquals(1, taskDao.getAll().size());
+    assertEquals("happy", taskDao.fetch(task.getId()).getTitle());
+  }
+
+  @Test
+  public void testGetDescendantsAtAnyDepth() {
+    Task parent = new Task();
+    taskDao.createNew(parent);
+    Task child = new Task();
+    taskDao.createNew(child);
+    Task grandchild = new Task();
+    taskDao.createNew(grandchild);
+    Task completed = new Task();
+    completed.setCompletionDate(DateUtilities.now());
+    taskDao.createNew(completed);
+    insertCaldavTask(child, parent);
+    insertCaldavTask(grandchild, child);
+    insertCaldavTask(completed, child);
+
+    assertEquals(
+        ImmutableList.of(child.getId(), grandchild.getId()),
+        Ordering.natural().sortedCopy(taskDao.getDescendants(parent.getId(), true)));
+  }
+
+  private void insertCaldavTask(Task task, Task parent) {
+    CaldavTask caldavTask = new CaldavTask(task.getId(), "calendar");
+    caldavTask.setParent(parent.getId());
+    caldavDao.insert(caldavTask);
+  }
+
   @Override
   protected void inject(TestComponent component) {
     component.inject(this);
@@ -19,9 +19,11 @@ import static org.tasks.Freeze.thaw;
 import static org.tasks.date.DateTimeUtils.newDateTime;
 import static org.tasks.time.DateTimeUtils.currentTimeMillis;
 
+import android.content.ContentValues;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.todoroo.astrid.data.Task.Priority;
 import java.util.ArrayList;
+import java.util.Locale;
 import java.util.TreeSet;
 import org.junit.After;
 import org.junit.Before;
@@ -285,6 +287,86 @@ public class TaskTest {
             });
   }
 
+  @Test
+  public void testTasksWithoutDueDateSortLast() {
+    Task noDueDate = new Task();
+    Task dueDate = new Task();
+    dueDate.setDueDate(createDueDate(URGENCY_NEXT_MONTH, 0));
+    noDueDate.updateSortKeys();
+    dueDate.updateSortKeys();
+    assertTrue(dueDate.sortDue < noDueDate.sortDue);
+    assertTrue(dueDate.sortSmart < noDueDate.sortSmart);
+  }
+
+  @Test
+  public void testAllDayTaskSortsAtNoon() {
+    long dueDate = createDueDate(URGENCY_SPECIFIC_DAY, specificDueDate.getMillis());
+    assertEquals(
+        Task.getSortDue(dueDate, Priority.HIGH), dueDate + 43140000 + Priority.HIGH);
+  }
+
+  @Test
+  public void testSortTitleIgnoresCase() {
+    assertEquals("BUY MILK", Task.getSortTitle("Buy milk"));
+    assertEquals("", Task.getSortTitle(null));
+  }
+
+  @Test
+  public void testSortTitleIgnoresDefaultLocale() {
+    Locale locale = Locale.getDefault();
+    Locale.setDefault(new Locale("tr"));
+    try {
+      assertEquals("TITLE", Task.getSortTitle("title"));
+    } finally {
+      Locale.setDefault(locale);
+    }
+  }
+
+  @Test
+  public void testChangesOnlyIncludeModifiedColumns() {
+    Task original = new Task();
+    Task task = new Task();
+    task.setTitle("title");
+    task.setReminderSnooze(1L);
+
+    ContentValues changes = task.getChanges(original);
+
+    assertEquals(2, changes.size());
+    assertEquals("title", changes.getAsString("title"));
+    assertEquals(1L, (long) changes.getAsLong("snoozeTime"));
+  }
+
+  @Test
+  public void testReminderChangeIsNotSignificant() {
+    Task task = new Task();
+    task.setReminderSnooze(1L);
+
+    ContentValues changes = task.getChanges(new Task());
+
+    assertFalse(Task.isSignificantChange(changes));
+    assertFalse(Task.isGoogleTaskChange(changes));
+    assertFalse(Task.isCaldavChange(changes));
+  }
+
+  @Test
+  public void testPriorityChangeOnlyPushesToCaldav() {
+    Task task = new Task();
+    task.setPriority(Priority.HIGH);
+
+    ContentValues changes = task.getChanges(new Task());
+
+    assertTrue(Task.isSignificantChange(changes));
+    assertFalse(Task.isGoogleTaskChange(changes));
+    assertTrue(Task.isCaldavChange(changes));
+  }
+
+  @Test
+  public void testMissingOriginalChangesEverything() {
+    assertTrue(Task.isSignificantChange(null));
+    assertTrue(Task.isGoogleTaskChange(null));
+    assertTrue(Task.isCaldavChange(null));
+  }
+
   @Test
   @SuppressWarnings("ConstantConditions")
   public void testSanity() {
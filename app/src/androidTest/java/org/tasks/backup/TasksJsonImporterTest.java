@@ -0,0 +1,194 @@
+package org.tasks.backup;
+
+import static androidx.test.InstrumentationRegistry.getTargetContext;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import android.net.Uri;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Task;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import javax.inject.Inject;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.Freeze;
+import org.tasks.R;
+import org.tasks.backup.TasksJsonExporter.ExportType;
+import org.tasks.backup.TasksJsonImporter.MissingFullBackupException;
+import org.tasks.data.DeletionDao;
+import org.tasks.data.Tag;
+import org.tasks.data.TagDao;
+import org.tasks.data.TagData;
+import org.tasks.data.TagDataDao;
+import org.tasks.injection.InjectingTestCase;
+import org.tasks.injection.TestComponent;
+import org.tasks.jobs.BackupWork;
+import org.tasks.preferences.Preferences;
+import org.tasks.time.DateTime;
+
+@RunWith(AndroidJUnit4.class)
+public class TasksJsonImporterTest extends InjectingTestCase {
+
+  private static final DateTime FULL = new DateTime(2019, 11, 18, 9, 0);
+  private static final DateTime DELTA = new DateTime(2019, 11, 18, 10, 0);
+
+  @Inject TasksJsonExporter jsonExporter;
+  @Inject TasksJsonImporter jsonImporter;
+  @Inject TaskDao taskDao;
+  @Inject DeletionDao deletionDao;
+  @Inject TagDao tagDao;
+  @Inject TagDataDao tagDataDao;
+  @Inject Preferences preferences;
+  private File temporaryDirectory;
+  private String edited;
+  private String deleted;
+  private String tagged;
+
+  @Override
+  public void setUp() {
+    super.setUp();
+
+    try {
+      temporaryDirectory = File.createTempFile("backup", Long.toString(System.nanoTime()));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    if (!temporaryDirectory.delete() || !temporaryDirectory.mkdir()) {
+      throw new RuntimeException(
+          "Could not create temp directory: " + temporaryDirectory.getAbsolutePath());
+    }
+
+    preferences.setUri(R.string.p_backup_dir, Uri.fromFile(temporaryDirectory));
+    preferences.setBoolean(R.string.p_backups_incremental, true);
+    preferences.setBoolean(R.string.p_backups_compressed, false);
+    preferences.setLong(R.string.p_backup_last_full, 0);
+    preferences.setLong(R.string.p_backup_last_incremental, 0);
+
+    Task first = new Task();
+    Task second = new Task();
+    Task third = new Task();
+    TagData tagData = new TagData("tag");
+    Freeze.freezeAt(FULL)
+        .thawAfter(
+            () -> {
+              first.setTitle("first");
+              taskDao.createNew(first);
+              second.setTitle("second");
+              taskDao.createNew(second);
+              third.setTitle("third");
+              taskDao.createNew(third);
+              tagDataDao.createNew(tagData);
+              tagDao.insert(new Tag(third, tagData));
+              jsonExporter.exportTasks(getTargetContext(), ExportType.EXPORT_TYPE_SERVICE, null);
+            });
+    Freeze.freezeAt(DELTA)
+        .thawAfter(
+            () -> {
+              first.setTitle("edited");
+              taskDao.save(first);
+              deletionDao.delete(singletonList(second.getId()));
+              // only the tag changes, the task row itself is not saved
+              tagDao.rename(tagData.getRemoteId(), "renamed");
+              jsonExporter.exportTasks(getTargetContext(), ExportType.EXPORT_TYPE_SERVICE, null);
+            });
+    edited = first.getUuid();
+    deleted = second.getUuid();
+    tagged = third.getUuid();
+    deletionDao.delete(asList(first.getId(), third.getId()));
+  }
+
+  @After
+  public void tearDown() {
+    for (File file : temporaryDirectory.listFiles()) {
+      file.delete();
+    }
+    temporaryDirectory.delete();
+  }
+
+  @Test
+  public void exportWritesChain() {
+    assertEquals(2, temporaryDirectory.listFiles().length);
+    assertTrue(BackupWork.isDelta(getDelta().getName()));
+  }
+
+  @Test
+  public void replayDeltaOnFullBackup() throws IOException {
+    jsonImporter.importChain(getTargetContext(), Uri.fromFile(getDelta()));
+
+    assertEquals("edited", taskDao.fetch(edited).getTitle());
+    assertNull(taskDao.fetch(deleted));
+  }
+
+  @Test
+  public void replayTagOnlyEdit() throws IOException {
+    jsonImporter.importChain(getTargetContext(), Uri.fromFile(getDelta()));
+
+    List<Tag> tags = tagDao.getTagsForTask(taskDao.fetch(tagged).getId());
+    assertEquals(1, tags.size());
+    assertEquals("renamed", tags.get(0).getName());
+  }
+
+  @Test
+  public void deltaDoesNotOverwriteExistingTask() throws IOException {
+    Task local = new Task();
+    local.setUuid(edited);
+    local.setTitle("local");
+    taskDao.createNew(local);
+
+    jsonImporter.importChain(getTargetContext(), Uri.fromFile(getDelta()));
+
+    assertEquals("local", taskDao.fetch(edited).getTitle());
+  }
+
+  @Test
+  public void tombstoneDoesNotDeleteExistingTask() throws IOException {
+    Task local = new Task();
+    local.setUuid(deleted);
+    local.setTitle("local");
+    taskDao.createNew(local);
+
+    jsonImporter.importChain(getTargetContext(), Uri.fromFile(getDelta()));
+
+    assertEquals("local", taskDao.fetch(deleted).getTitle());
+  }
+
+  @Test
+  public void deltaWithoutFullBackupFails() throws IOException {
+    File delta = getDelta();
+    for (File file : temporaryDirectory.listFiles()) {
+      if (!file.equals(delta)) {
+        file.delete();
+      }
+    }
+
+    try {
+      jsonImporter.importChain(getTargetContext(), Uri.fromFile(delta));
+      fail();
+    } catch (MissingFullBackupException ignored) {
+    }
+
+    assertNull(taskDao.fetch(edited));
+  }
+
+  private File getDelta() {
+    for (File file : temporaryDirectory.listFiles()) {
+      if (BackupWork.isDelta(file.getName())) {
+        return file;
+      }
+    }
+    throw new IllegalStateException("No incremental backup");
+  }
+
+  @Override
+  protected void inject(TestComponent component) {
+    component.inject(this);
+  }
+}
@@ -3,6 +3,7 @@ package org.tasks.data;
 import static com.natpryce.makeiteasy.MakeItEasy.with;
 import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.tasks.makers.TagDataMaker.newTagData;
 import static org.tasks.makers.TagMaker.TAGDATA;
@@ -63,6 +64,43 @@ public class CaldavDaoTests extends InjectingTestCase {
     assertTrue(caldavDao.getTasksWithTags().isEmpty());
   }
 
+  @Test
+  public void vtodoStoredOutsideOfCaldavTask() {
+    Task task = newTask(with(ID, 1L));
+    taskDao.createNew(task);
+    CaldavTask caldavTask = new CaldavTask(task.getId(), "calendar");
+    caldavTask.setVtodo("BEGIN:VCALENDAR\nEND:VCALENDAR");
+    long id = caldavDao.insert(caldavTask);
+
+    assertNull(caldavDao.getTask(task.getId()).getVtodo());
+    assertEquals("BEGIN:VCALENDAR\nEND:VCALENDAR", caldavDao.getVtodo(id));
+  }
+
+  @Test
+  public void updateReplacesVtodo() {
+    Task task = newTask(with(ID, 1L));
+    taskDao.createNew(task);
+    CaldavTask caldavTask = new CaldavTask(task.getId(), "calendar");
+    caldavTask.setVtodo("one");
+    caldavTask.setId(caldavDao.insert(caldavTask));
+    caldavTask.setVtodo("two");
+    caldavDao.update(caldavTask);
+
+    assertEquals("two", caldavDao.getVtodo(caldavTask.getId()));
+  }
+
+  @Test
+  public void deleteRemovesVtodo() {
+    Task task = newTask(with(ID, 1L));
+    taskDao.createNew(task);
+    CaldavTask caldavTask = new CaldavTask(task.getId(), "calendar");
+    caldavTask.setVtodo("vtodo");
+    caldavTask.setId(caldavDao.insert(caldavTask));
+    caldavDao.delete(caldavTask);
+
+    assertNull(caldavDao.getVtodo(caldavTask.getId()));
+  }
+
   @Override
   protected void inject(TestComponent component) {
     component.inject(this);
@@ -1,8 +1,13 @@
 package org.tasks.data;
 
+import static com.google.common.collect.Lists.transform;
 import static com.natpryce.makeiteasy.MakeItEasy.with;
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.tasks.makers.GoogleTaskMaker.ORDER;
 import static org.tasks.makers.GoogleTaskMaker.REMOTE_ID;
 import static org.tasks.makers.GoogleTaskMaker.TASK;
 import static org.tasks.makers.GoogleTaskMaker.newGoogleTask;
@@ -66,7 +71,7 @@ public class GoogleTaskDaoTests extends InjectingTestCase {
     insertTop(newGoogleTask());
     insertTop(newGoogleTask(with(REMOTE_ID, "1234")));
 
-    assertEquals("1234", googleTaskDao.getPrevious("1", 0, 1));
+    assertEquals("1234", googleTaskDao.getPrevious("1", 0, 0));
   }
 
   @Test
@@ -78,11 +83,11 @@ public class GoogleTaskDaoTests extends InjectingTestCase {
     assertEquals(2, tasks.size());
     GoogleTask top = tasks.get(0);
     assertEquals("5678", top.getRemoteId());
-    assertEquals(0, top.getOrder());
+    assertEquals(-GoogleTaskDao.ORDER_GAP, top.getOrder());
   }
 
   @Test
-  public void insertAtTopOfListShiftsExisting() {
+  public void insertAtTopOfListDoesNotShiftExisting() {
     insertTop(newGoogleTask(with(REMOTE_ID, "1234")));
     insertTop(newGoogleTask(with(REMOTE_ID, "5678")));
 
@@ -90,7 +95,7 @@ public class GoogleTaskDaoTests extends InjectingTestCase {
     assertEquals(2, tasks.size());
     GoogleTask bottom = tasks.get(1);
     assertEquals("1234", bottom.getRemoteId());
-    assertEquals(1, bottom.getOrder());
+    assertEquals(0, bottom.getOrder());
   }
 
   @Test
@@ -107,62 +112,124 @@ public class GoogleTaskDaoTests extends InjectingTestCase {
 
   @Test
   public void moveDownInList() {
-    googleTaskDao.insertAndShift(newGoogleTask(with(REMOTE_ID, "1")), false);
-    googleTaskDao.insertAndShift(newGoogleTask(with(REMOTE_ID, "2")), false);
-    googleTaskDao.insertAndShift(newGoogleTask(with(REMOTE_ID, "3")), false);
+    insertBottom(newGoogleTask(with(REMOTE_ID, "1")));
+    insertBottom(newGoogleTask(with(REMOTE_ID, "2")));
+    insertBottom(newGoogleTask(with(REMOTE_ID, "3")));
 
-    GoogleTask two = googleTaskDao.getByRemoteId("2");
-
-    googleTaskDao.move(two, 0, 0);
+    googleTaskDao.move(googleTaskDao.getByRemoteId("1"), 0, getTask("2"));
 
-    assertEquals(0, googleTaskDao.getByRemoteId("2").getOrder());
-    assertEquals(1, googleTaskDao.getByRemoteId("1").getOrder());
-    assertEquals(2, googleTaskDao.getByRemoteId("3").getOrder());
+    assertEquals(asList("2", "1", "3"), getRemoteIds());
   }
 
   @Test
   public void moveUpInList() {
-    googleTaskDao.insertAndShift(newGoogleTask(with(REMOTE_ID, "1")), false);
-    googleTaskDao.insertAndShift(newGoogleTask(with(REMOTE_ID, "2")), false);
-    googleTaskDao.insertAndShift(newGoogleTask(with(REMOTE_ID, "3")), false);
+    insertBottom(newGoogleTask(with(REMOTE_ID, "1")));
+    insertBottom(newGoogleTask(with(REMOTE_ID, "2")));
+    insertBottom(newGoogleTask(with(REMOTE_ID, "3")));
 
-    GoogleTask one = googleTaskDao.getByRemoteId("1");
+    googleTaskDao.move(googleTaskDao.getByRemoteId("3"), 0, getTask("1"));
 
-    googleTaskDao.move(one, 0, 1);
-
-    assertEquals(0, googleTaskDao.getByRemoteId("2").getOrder());
-    assertEquals(1, googleTaskDao.getByRemoteId("1").getOrder());
-    assertEquals(2, googleTaskDao.getByRemoteId("3").getOrder());
+    assertEquals(asList("1", "3", "2"), getRemoteIds());
   }
 
   @Test
   public void moveToTop() {
-    googleTaskDao.insertAndShift(newGoogleTask(with(REMOTE_ID, "1")), false);
-    googleTaskDao.insertAndShift(newGoogleTask(with(REMOTE_ID, "2")), false);
-    googleTaskDao.insertAndShift(newGoogleTask(with(REMOTE_ID, "3")), false);
-
-    GoogleTask three = googleTaskDao.getByRemoteId("3");
+    insertBottom(newGoogleTask(with(REMOTE_ID, "1")));
+    insertBottom(newGoogleTask(with(REMOTE_ID, "2")));
+    insertBottom(newGoogleTask(with(REMOTE_ID, "3")));
 
-    googleTaskDao.move(three, 0, 0);
+    googleTaskDao.move(googleTaskDao.getByRemoteId("3"), 0, 0);
 
-    assertEquals(0, googleTaskDao.getByRemoteId("3").getOrder());
-    assertEquals(1, googleTaskDao.getByRemoteId("1").getOrder());
-    assertEquals(2, googleTaskDao.getByRemoteId("2").getOrder());
+    assertEquals(asList("3", "1", "2"), getRemoteIds());
   }
 
   @Test
   public void moveToBottom() {
-    googleTaskDao.insertAndShift(newGoogleTask(with(REMOTE_ID, "1")), false);
-    googleTaskDao.insertAndShift(newGoogleTask(with(REMOTE_ID, "2")), false);
-    googleTaskDao.insertAndShift(newGoogleTask(with(REMOTE_ID, "3")), false);
+    insertBottom(newGoogleTask(with(REMOTE_ID, "1")));
+    insertBottom(newGoogleTask(with(REMOTE_ID, "2")));
+    insertBottom(newGoogleTask(with(REMOTE_ID, "3")));
+
+    googleTaskDao.moveToBottom(googleTaskDao.getByRemoteId("1"), 0);
+
+    assertEquals(asList("2", "3", "1"), getRemoteIds());
+  }
+
+  @Test
+  public void moveOnlyWritesMovedTask() {
+    insertBottom(newGoogleTask(with(REMOTE_ID, "1")));
+    insertBottom(newGoogleTask(with(REMOTE_ID, "2")));
+    insertBottom(newGoogleTask(with(REMOTE_ID, "3")));
+
+    googleTaskDao.move(googleTaskDao.getByRemoteId("3"), 0, 0);
+
+    assertEquals(0, googleTaskDao.getByRemoteId("1").getOrder());
+    assertEquals(GoogleTaskDao.ORDER_GAP, googleTaskDao.getByRemoteId("2").getOrder());
+  }
+
+  @Test
+  public void moveRebalancesWhenOutOfRoom() {
+    insertBottom(newGoogleTask(with(REMOTE_ID, "1")));
+    insertBottom(newGoogleTask(with(REMOTE_ID, "2")));
+    insertBottom(newGoogleTask(with(REMOTE_ID, "3")));
+    GoogleTask two = googleTaskDao.getByRemoteId("2");
+    two.setOrder(1);
+    googleTaskDao.update(two);
 
-    GoogleTask one = googleTaskDao.getByRemoteId("1");
+    googleTaskDao.move(googleTaskDao.getByRemoteId("3"), 0, getTask("1"));
 
-    googleTaskDao.move(one, 0, 2);
+    assertEquals(asList("1", "3", "2"), getRemoteIds());
+  }
+
+  @Test
+  public void repositionKeepsMovedTaskInPlace() {
+    insertBottom(newGoogleTask(with(REMOTE_ID, "1")));
+    insertBottom(newGoogleTask(with(REMOTE_ID, "2")));
+    insertBottom(newGoogleTask(with(REMOTE_ID, "3")));
+    insertBottom(newGoogleTask(with(REMOTE_ID, "4")));
+    // no room for "3" between "1" and "2", so every sibling is spread out again
+    setOrder("1", 0, 0, false);
+    setOrder("2", 1, 2, false);
+    setOrder("3", 2, 1, false);
+    setOrder("4", 3, 3, true);
+
+    googleTaskDao.reposition("1");
+
+    assertEquals(asList("1", "3", "2", "4"), getRemoteIds());
+  }
+
+  @Test
+  public void getOrderedKeepsLongestIncreasingRun() {
+    List<GoogleTask> tasks =
+        asList(
+            newGoogleTask(with(ORDER, 1)),
+            newGoogleTask(with(ORDER, 5)),
+            newGoogleTask(with(ORDER, 2)),
+            newGoogleTask(with(ORDER, 3)),
+            newGoogleTask(with(ORDER, 4)));
+
+    boolean[] ordered = GoogleTaskDao.getOrdered(tasks);
+
+    assertTrue(ordered[0]);
+    assertFalse(ordered[1]);
+    assertTrue(ordered[2]);
+    assertTrue(ordered[3]);
+    assertTrue(ordered[4]);
+  }
+
+  private long getTask(String remoteId) {
+    return googleTaskDao.getTask(remoteId);
+  }
+
+  private List<String> getRemoteIds() {
+    return transform(googleTaskDao.getByLocalOrder("1"), GoogleTask::getRemoteId);
+  }
 
-    assertEquals(0, googleTaskDao.getByRemoteId("2").getOrder());
-    assertEquals(1, googleTaskDao.getByRemoteId("3").getOrder());
-    assertEquals(2, googleTaskDao.getByRemoteId("1").getOrder());
+  private void setOrder(String remoteId, long order, long remoteOrder, boolean moved) {
+    GoogleTask googleTask = googleTaskDao.getByRemoteId(remoteId);
+    googleTask.setOrder(order);
+    googleTask.setRemoteOrder(remoteOrder);
+    googleTask.setMoved(moved);
+    googleTaskDao.update(googleTask);
   }
 
   private void insertTop(GoogleTask googleTask) {
@@ -0,0 +1,226 @@
+package org.tasks.db;
+
+import static androidx.test.InstrumentationRegistry.getTargetContext;
+import static com.natpryce.makeiteasy.MakeItEasy.with;
+import static org.junit.Assert.assertTrue;
+import static org.tasks.makers.GoogleTaskMaker.REMOTE_ID;
+import static org.tasks.makers.GoogleTaskMaker.TASK;
+import static org.tasks.makers.GoogleTaskMaker.newGoogleTask;
+import static org.tasks.makers.GtaskListMaker.newGtaskList;
+import static org.tasks.makers.TaskMaker.newTask;
+
+import android.database.Cursor;
+import androidx.annotation.Nullable;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.todoroo.astrid.api.GtasksFilter;
+import com.todoroo.astrid.core.BuiltInFilterExposer;
+import com.todoroo.astrid.core.SortHelper;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Task;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.inject.Inject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.R;
+import org.tasks.data.Alarm;
+import org.tasks.data.AlarmDao;
+import org.tasks.data.GoogleTaskDao;
+import org.tasks.data.GoogleTaskList;
+import org.tasks.injection.InjectingTestCase;
+import org.tasks.injection.TestComponent;
+import org.tasks.preferences.Preferences;
+import org.tasks.ui.TaskListViewModel;
+
+/**
+ * Runs EXPLAIN QUERY PLAN on hot queries and fails if any of them scans a table, even in index
+ * order, or has to build an automatic index on one. Task list queries are built by the same code
+ * as the app. {@code @Query} is not retained at runtime, so DAO statements are copied here and
+ * have to be kept in sync with the DAOs.
+ */
+@RunWith(AndroidJUnit4.class)
+public class IndexAdvisorTest extends InjectingTestCase {
+
+  private static final String[] QUERIES = {
+    // AlarmDao
+    "SELECT * FROM alarms WHERE task = ? ORDER BY time ASC",
+    "SELECT alarms.* FROM alarms INNER JOIN tasks ON tasks._id = alarms.task "
+        + "WHERE tasks._id = ? AND tasks.completed = 0 AND tasks.deleted = 0 AND tasks.lastNotified < alarms.time "
+        + "ORDER BY time ASC",
+    // DeletionDao
+    "DELETE FROM alarms WHERE task IN (?, ?)",
+    // CaldavDao
+    "SELECT cd_remote_id FROM caldav_tasks WHERE cd_task = ? AND cd_deleted = 0",
+    "SELECT * FROM caldav_tasks WHERE cd_calendar = ? AND cd_object = ? LIMIT 1",
+    "SELECT cd_task FROM caldav_tasks WHERE cd_calendar = ? AND cd_object IN (?, ?)",
+    "UPDATE caldav_tasks SET cd_parent = IFNULL((SELECT cd_task FROM caldav_tasks AS p WHERE p.cd_remote_id = caldav_tasks.cd_remote_parent), 0) WHERE cd_calendar = ?",
+    // GoogleTaskDao
+    "SELECT * FROM google_tasks WHERE gt_remote_id = ? LIMIT 1",
+    "SELECT gt_task FROM google_tasks WHERE gt_remote_id = ?",
+    "UPDATE google_tasks SET gt_remote_parent = ?, gt_remote_order = ? WHERE gt_remote_id = ?",
+    "SELECT MIN(gt_order) FROM google_tasks WHERE gt_list_id = ? AND gt_parent = ? AND gt_id != ? AND gt_order > ?",
+    "SELECT gt_remote_id FROM google_tasks JOIN tasks ON tasks._id = gt_task WHERE deleted = 0 AND gt_list_id = ? AND gt_parent = ? AND gt_order < ? AND gt_remote_id IS NOT NULL AND gt_remote_id != '' ORDER BY gt_order DESC",
+    "UPDATE google_tasks SET gt_parent = IFNULL((SELECT gt_task FROM google_tasks AS p WHERE p.gt_remote_id = google_tasks.gt_remote_parent), 0) WHERE gt_list_id = ? AND gt_moved = 0",
+    // TaskDao
+    "SELECT dueDate FROM tasks WHERE completed = 0 AND deleted = 0 AND dueDate > ? "
+        + "UNION "
+        + "SELECT hideUntil FROM tasks WHERE completed = 0 AND deleted = 0 AND hideUntil > ?",
+    // UserActivityDao
+    "SELECT * FROM userActivity WHERE target_id = ? ORDER BY created_at DESC",
+    "SELECT userActivity.* FROM userActivity INNER JOIN tasks ON tasks._id = ? WHERE target_id = tasks.remoteId"
+  };
+
+  private static final int[] SORT_MODES = {
+    SortHelper.SORT_AUTO,
+    SortHelper.SORT_ALPHA,
+    SortHelper.SORT_DUE,
+    SortHelper.SORT_IMPORTANCE,
+    SortHelper.SORT_MODIFIED
+  };
+
+  /** sibling lookups that should also be read in index order */
+  private static final String[] ORDERED_QUERIES = {
+    "SELECT * FROM google_tasks WHERE gt_list_id = ? AND gt_parent = ? ORDER BY gt_order ASC",
+    "SELECT gt_remote_id FROM google_tasks JOIN tasks ON tasks._id = gt_task WHERE deleted = 0 AND gt_list_id = ? AND gt_parent = ? AND gt_order < ? AND gt_remote_id IS NOT NULL AND gt_remote_id != '' ORDER BY gt_order DESC"
+  };
+
+  @Inject Database database;
+  @Inject TaskDao taskDao;
+  @Inject AlarmDao alarmDao;
+  @Inject GoogleTaskDao googleTaskDao;
+  @Inject Preferences preferences;
+
+  @Override
+  @Before
+  public void setUp() {
+    super.setUp();
+
+    for (int i = 0; i < 10; i++) {
+      Task task = newTask();
+      taskDao.createNew(task);
+      alarmDao.insert(new Alarm(task.getId(), i));
+      googleTaskDao.insert(newGoogleTask(with(TASK, task.getId()), with(REMOTE_ID, "r" + i)));
+    }
+  }
+
+  @Test
+  public void noFullScans() {
+    List<String> violations = new ArrayList<>();
+    for (String query : QUERIES) {
+      violations.addAll(getFullScans(query, null));
+    }
+    assertTrue(violations.toString(), violations.isEmpty());
+  }
+
+  @Test
+  public void noFullScansForGoogleTaskList() {
+    GoogleTaskList list = newGtaskList();
+    List<String> queries = new ArrayList<>();
+    preferences.setBoolean(R.string.p_manual_sort, false);
+    for (int sortMode : SORT_MODES) {
+      preferences.setSortMode(sortMode);
+      queries.addAll(TaskListViewModel.getQuery(preferences, new GtasksFilter(list), false, false));
+    }
+    preferences.setBoolean(R.string.p_manual_sort, true);
+    GtasksFilter manual = new GtasksFilter(list);
+    manual.setFilterQueryOverride(
+        GtasksFilter.toManualOrder(list.getRemoteId(), manual.getSqlQuery()));
+    queries.addAll(TaskListViewModel.getQuery(preferences, manual, false, false));
+
+    List<String> violations = new ArrayList<>();
+    for (String query : queries) {
+      violations.addAll(getFullScans(query, null));
+    }
+    assertTrue(violations.toString(), violations.isEmpty());
+  }
+
+  /** Every active task is read, so walking the tasks table is allowed */
+  @Test
+  public void myTasksOnlyScansTasks() {
+    preferences.setBoolean(R.string.p_manual_sort, false);
+    List<String> violations = new ArrayList<>();
+    for (int sortMode : SORT_MODES) {
+      preferences.setSortMode(sortMode);
+      for (String query :
+          TaskListViewModel.getQuery(
+              preferences,
+              BuiltInFilterExposer.getMyTasksFilter(getTargetContext().getResources()),
+              false,
+              false)) {
+        violations.addAll(getFullScans(query, "tasks"));
+      }
+    }
+    assertTrue(violations.toString(), violations.isEmpty());
+  }
+
+  @Test
+  public void noSortForSiblings() {
+    List<String> violations = new ArrayList<>();
+    for (String query : ORDERED_QUERIES) {
+      violations.addAll(getFullScans(query, null));
+      for (String detail : explain(query)) {
+        if (detail.contains("TEMP B-TREE")) {
+          violations.add(detail + ": " + query);
+        }
+      }
+    }
+    assertTrue(violations.toString(), violations.isEmpty());
+  }
+
+  /** @param allowed a table that {@code query} may scan */
+  private List<String> getFullScans(String query, @Nullable String allowed) {
+    List<String> details = explain(query);
+    Set<String> subqueries = new HashSet<>();
+    for (String detail : details) {
+      if (detail.startsWith("MATERIALIZE ") || detail.startsWith("CO-ROUTINE ")) {
+        subqueries.add(detail.substring(detail.indexOf(' ') + 1));
+      }
+    }
+    List<String> violations = new ArrayList<>();
+    for (String detail : details) {
+      String table = getScannedTable(detail);
+      if (table != null && !table.equals(allowed) && !subqueries.contains(table)) {
+        violations.add(detail + ": " + query);
+      }
+    }
+    return violations;
+  }
+
+  /**
+   * @return the table or alias read by a SCAN, in any order, or given an automatic index, null if
+   *     the step doesn't do either
+   */
+  private static String getScannedTable(String detail) {
+    if (!detail.startsWith("SCAN ") && !detail.contains("AUTOMATIC")) {
+      return null;
+    }
+    // older versions of SQLite print "SCAN TABLE tasks" and "SCAN SUBQUERY 1"
+    String table = detail.replaceFirst("^(SCAN|SEARCH) (TABLE )?", "").split(" ")[0];
+    return table.equals("SUBQUERY") || table.equals("CONSTANT") || table.startsWith("(")
+        ? null
+        : table;
+  }
+
+  private List<String> explain(String query) {
+    List<String> details = new ArrayList<>();
+    Cursor cursor = database.query("EXPLAIN QUERY PLAN " + query, null);
+    try {
+      int column = cursor.getColumnIndex("detail");
+      while (cursor.moveToNext()) {
+        details.add(cursor.getString(column));
+      }
+    } finally {
+      cursor.close();
+    }
+    return details;
+  }
+
+  @Override
+  protected void inject(TestComponent component) {
+    component.inject(this);
+  }
+}
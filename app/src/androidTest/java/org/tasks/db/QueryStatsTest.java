@@ -0,0 +1,43 @@
+package org.tasks.db;
+
+import static junit.framework.Assert.assertEquals;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.db.QueryStats.Stat;
+
+@RunWith(AndroidJUnit4.class)
+public class QueryStatsTest {
+
+  private final QueryStats queryStats = new QueryStats();
+
+  @Test
+  public void percentilesUseBucketBounds() {
+    for (int i = 0; i < 19; i++) {
+      queryStats.record("SELECT 1", 1, 1, false);
+    }
+    queryStats.record("SELECT 1", 300, 5, true);
+
+    Stat stat = queryStats.getStats().get(0);
+
+    assertEquals(1, stat.getPercentile(0.5));
+    assertEquals(1, stat.getPercentile(0.95));
+    assertEquals(512, stat.getPercentile(1));
+    assertEquals(300, stat.getMaxMillis());
+    assertEquals(24, stat.getRows());
+    assertEquals(1, stat.getMainThread());
+  }
+
+  @Test
+  public void sortByTotalTime() {
+    queryStats.record("SELECT 1", 1, 0, false);
+    queryStats.record("SELECT 2", 10, 0, false);
+
+    List<Stat> stats = queryStats.getStats();
+
+    assertEquals("SELECT 2", stats.get(0).getSql());
+    assertEquals("SELECT 1", stats.get(1).getSql());
+  }
+}
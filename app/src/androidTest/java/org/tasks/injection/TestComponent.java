@@ -1,6 +1,8 @@
 package org.tasks.injection;
 
 import com.todoroo.astrid.alarms.AlarmJobServiceTest;
+import com.todoroo.astrid.api.SearchFilterTest;
+import com.todoroo.astrid.core.CustomFilterEvaluatorTest;
 import com.todoroo.astrid.dao.TaskDaoTests;
 import com.todoroo.astrid.gtasks.GtasksListServiceTest;
 import com.todoroo.astrid.gtasks.GtasksMetadataServiceTest;
@@ -13,11 +15,14 @@ import com.todoroo.astrid.subtasks.SubtasksHelperTest;
 import com.todoroo.astrid.subtasks.SubtasksMovingTest;
 import com.todoroo.astrid.sync.NewSyncTestCase;
 import dagger.Component;
+import org.tasks.backup.TasksJsonImporterTest;
 import org.tasks.data.CaldavDaoTests;
 import org.tasks.data.DeletionDaoTests;
 import org.tasks.data.GoogleTaskDaoTests;
 import org.tasks.data.TagDataDaoTest;
+import org.tasks.db.IndexAdvisorTest;
 import org.tasks.jobs.BackupServiceTests;
+import org.tasks.ui.TaskListDataSourceTest;
 
 @ApplicationScope
 @Component(modules = TestModule.class)
@@ -43,6 +48,10 @@ public interface TestComponent extends ApplicationComponent {
 
   void inject(BackupServiceTests backupServiceTests);
 
+  void inject(TasksJsonImporterTest tasksJsonImporterTest);
+
+  void inject(TaskListDataSourceTest taskListDataSourceTest);
+
   void inject(AlarmJobServiceTest alarmServiceTest);
 
   void inject(RepeatTaskHelperTest repeatTaskHelperTest);
@@ -56,4 +65,10 @@ public interface TestComponent extends ApplicationComponent {
   void inject(TagDataDaoTest tagDataDaoTest);
 
   void inject(CaldavDaoTests caldavDaoTests);
+
+  void inject(SearchFilterTest searchFilterTest);
+
+  void inject(CustomFilterEvaluatorTest customFilterEvaluatorTest);
+
+  void inject(IndexAdvisorTest indexAdvisorTest);
 }
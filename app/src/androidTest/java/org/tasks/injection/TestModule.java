@@ -5,6 +5,7 @@ import androidx.room.Room;
 import com.todoroo.astrid.dao.Database;
 import dagger.Module;
 import dagger.Provides;
+import org.tasks.db.Migrations;
 import org.tasks.preferences.PermissionChecker;
 import org.tasks.preferences.PermissivePermissionChecker;
 import org.tasks.preferences.Preferences;
@@ -21,6 +22,7 @@ public class TestModule {
   public Database getDatabase(@ForApplication Context context) {
     return Room.inMemoryDatabaseBuilder(context, Database.class)
         .fallbackToDestructiveMigration()
+        .addCallback(Migrations.CALLBACK)
         .build();
   }
 
@@ -1,5 +1,6 @@
 package org.tasks.jobs;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static junit.framework.Assert.assertEquals;
@@ -56,4 +57,43 @@ public class BackupWorkTest {
     assertEquals(
         singletonList(file1), BackupWork.getDeleteList(new File[] {file2, file1, file3}, 2));
   }
+
+  @Test
+  public void filterIncludesDeltaFiles() {
+    assertTrue(BackupWork.FILE_FILTER.accept(new File("/a/b/c/d/auto.180329-0001.delta.json")));
+  }
+
+  @Test
+  public void filterIncludesCompressedFiles() {
+    assertTrue(BackupWork.FILE_FILTER.accept(new File("/a/b/c/d/auto.180329-0001.json.gz")));
+    assertTrue(BackupWork.isDelta("auto.180329-0001.delta.json.gz"));
+  }
+
+  @Test
+  public void keepFullBackupForRetainedDeltas() {
+    assertEquals(
+        singletonList("auto.180326-0001.json"),
+        BackupWork.getDeleteList(
+            asList(
+                "auto.180329-0001.delta.json",
+                "auto.180328-0001.delta.json",
+                "auto.180327-0001.json",
+                "auto.180326-0001.json"),
+            name -> name,
+            2));
+  }
+
+  @Test
+  public void deleteDeltasBehindFullBackup() {
+    assertEquals(
+        asList("auto.180328-0001.delta.json", "auto.180327-0001.json"),
+        BackupWork.getDeleteList(
+            asList(
+                "auto.180330-0001.delta.json",
+                "auto.180329-0001.json",
+                "auto.180328-0001.delta.json",
+                "auto.180327-0001.json"),
+            name -> name,
+            2));
+  }
 }
@@ -0,0 +1,160 @@
+package org.tasks.location;
+
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.collect.Lists;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.data.Geofence;
+import org.tasks.data.Location;
+import org.tasks.data.Place;
+import org.tasks.location.GeofencePlanner.Plan;
+
+@RunWith(AndroidJUnit4.class)
+public class GeofencePlannerTest {
+
+  private static final MapPosition HOME = new MapPosition(40.7128, -74.0060);
+
+  private final Location near = newLocation(1, "near", 40.7130, -74.0060);
+  private final Location middle = newLocation(2, "middle", 40.7300, -74.0060);
+  private final Location far = newLocation(3, "far", 41.7128, -74.0060);
+
+  @Test
+  public void registerEverythingWhenUnderBudget() {
+    Plan plan = new GeofencePlanner(3).plan(asList(far, near, middle), HOME, emptySet());
+
+    assertEquals(3, plan.getAdd().size());
+    assertNull(plan.getBoundary());
+  }
+
+  @Test
+  public void registerNearestWhenOverBudget() {
+    Plan plan = new GeofencePlanner(2).plan(asList(far, near, middle), HOME, emptySet());
+
+    assertEquals(asList(near, middle), plan.getAdd());
+    assertEquals(newHashSet("1", "2", GeofencePlanner.BOUNDARY_ID), plan.getRegistered());
+  }
+
+  @Test
+  public void boundaryIsHalfwayToNextPlace() {
+    Plan plan = new GeofencePlanner(2).plan(asList(far, near, middle), HOME, emptySet());
+
+    double expected =
+        (GeofencePlanner.distance(HOME, far) - GeofencePlanner.distance(HOME, middle)) / 2;
+    assertNotNull(plan.getBoundary());
+    assertEquals(expected, plan.getBoundary(), 1);
+  }
+
+  @Test
+  public void onlyDiffIsApplied() {
+    Plan plan =
+        new GeofencePlanner(2)
+            .plan(
+                asList(far, near, middle),
+                HOME,
+                newHashSet("1", "3", GeofencePlanner.BOUNDARY_ID));
+
+    assertEquals(singletonList(middle), plan.getAdd());
+    assertEquals(singletonList("3"), plan.getRemove());
+  }
+
+  @Test
+  public void replanAfterMoving() {
+    GeofencePlanner planner = new GeofencePlanner(1);
+    Plan first = planner.plan(asList(far, near), HOME, emptySet());
+    Plan second =
+        planner.plan(asList(far, near), far.place.getMapPosition(), first.getRegistered());
+
+    assertEquals(singletonList(far), second.getAdd());
+    assertEquals(singletonList("1"), second.getRemove());
+  }
+
+  @Test
+  public void removeBoundaryWhenEverythingFits() {
+    Plan plan =
+        new GeofencePlanner(3)
+            .plan(
+                asList(near, middle),
+                HOME,
+                newHashSet("1", "2", "3", GeofencePlanner.BOUNDARY_ID));
+
+    assertTrue(plan.getAdd().isEmpty());
+    assertEquals(asList("3", GeofencePlanner.BOUNDARY_ID), sorted(plan.getRemove()));
+  }
+
+  @Test
+  public void keepListOrderWithoutPosition() {
+    Plan plan = new GeofencePlanner(2).plan(asList(far, near, middle), null, emptySet());
+
+    assertEquals(asList(far, near), plan.getAdd());
+    assertNull(plan.getBoundary());
+  }
+
+  @Test
+  public void ignoreInactiveGeofences() {
+    Location inactive = newLocation(4, "inactive", 40.7128, -74.0060);
+    inactive.geofence.setArrival(false);
+
+    Plan plan = new GeofencePlanner(2).plan(asList(inactive, far), HOME, emptySet());
+
+    assertEquals(singletonList(far), plan.getAdd());
+  }
+
+  @Test
+  public void extendWithinBudget() {
+    GeofencePlanner planner = new GeofencePlanner(2);
+    Plan plan = planner.plan(singletonList(near), HOME, emptySet());
+
+    Plan extended = planner.extend(plan, plan.getRegistered(), singletonList(far));
+
+    assertNotNull(extended);
+    assertEquals(singletonList(far), extended.getAdd());
+    assertEquals(newHashSet("1", "3"), extended.getRegistered());
+  }
+
+  @Test
+  public void replanWhenExtendExceedsBudget() {
+    GeofencePlanner planner = new GeofencePlanner(1);
+    Plan plan = planner.plan(singletonList(near), HOME, emptySet());
+
+    assertNull(planner.extend(plan, plan.getRegistered(), singletonList(middle)));
+  }
+
+  @Test
+  public void replanWhenExtendingPastBoundary() {
+    GeofencePlanner planner = new GeofencePlanner(2);
+    Plan plan = planner.plan(asList(near, middle, far), HOME, emptySet());
+    Set<String> registered = newHashSet(plan.getRegistered());
+    registered.remove("2");
+    Location outside = newLocation(4, "outside", 41.25, -74.0060);
+
+    assertNull(planner.extend(plan, registered, singletonList(outside)));
+  }
+
+  private static List<String> sorted(List<String> list) {
+    List<String> result = Lists.newArrayList(list);
+    Collections.sort(result);
+    return result;
+  }
+
+  private static Location newLocation(long id, String uid, double latitude, double longitude) {
+    Place place = new Place();
+    place.setUid(uid);
+    place.setLatitude(latitude);
+    place.setLongitude(longitude);
+    Geofence geofence = new Geofence(id, uid, true, false, 250);
+    geofence.setId(id);
+    return new Location(geofence, place);
+  }
+}
@@ -0,0 +1,128 @@
+package org.tasks.tasklist;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static junit.framework.Assert.assertEquals;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class TaskListDiffTest {
+
+  @Test
+  public void testRemoveInsertAndMove() {
+    List<Long> result =
+        apply(new long[] {1, 2, 3, 4, 5}, new long[] {6, 5, 2, 4, 7}, new ArrayList<>());
+
+    assertEquals(newArrayList(6L, 5L, 2L, 4L, 7L), result);
+  }
+
+  @Test
+  public void testMoveLongList() {
+    int size = 2000;
+    long[] oldIds = new long[size];
+    long[] newIds = new long[size];
+    for (int i = 0; i < size; i++) {
+      oldIds[i] = i;
+      newIds[i] = i == 0 ? size - 1 : i - 1;
+    }
+    List<Integer> changed = new ArrayList<>();
+
+    List<Long> result = apply(oldIds, newIds, changed);
+
+    assertEquals(size - 1, (long) result.get(0));
+    assertEquals(size - 2, (long) result.get(size - 1));
+    assertEquals(0, changed.size());
+  }
+
+  @Test
+  public void testMoveTopToBottom() {
+    int size = 2000;
+    long[] oldIds = new long[size];
+    long[] newIds = new long[size];
+    for (int i = 0; i < size; i++) {
+      oldIds[i] = i;
+      newIds[i] = i == size - 1 ? 0 : i + 1;
+    }
+
+    TaskListDiff diff = TaskListDiff.calculate(oldIds, newIds, (oldPosition, newPosition) -> true);
+    List<Long> result = apply(oldIds, newIds, new ArrayList<>());
+
+    assertEquals(1, diff.size());
+    assertEquals(1, (long) result.get(0));
+    assertEquals(0, (long) result.get(size - 1));
+  }
+
+  @Test
+  public void testChangedContents() {
+    int[] oldContents = new int[] {0, 0, 0};
+    int[] newContents = new int[] {0, 1, 0};
+    TaskListDiff diff =
+        TaskListDiff.calculate(
+            new long[] {1, 2, 3},
+            new long[] {1, 2, 3},
+            (oldPosition, newPosition) -> oldContents[oldPosition] == newContents[newPosition]);
+    List<Integer> changed = new ArrayList<>();
+
+    diff.dispatchUpdatesTo(new Recorder(newArrayList(1L, 2L, 3L), changed));
+
+    assertEquals(newArrayList(1), changed);
+  }
+
+  private static List<Long> apply(long[] oldIds, long[] newIds, List<Integer> changed) {
+    TaskListDiff diff = TaskListDiff.calculate(oldIds, newIds, (oldPosition, newPosition) -> true);
+    List<Long> list = new ArrayList<>();
+    for (long id : oldIds) {
+      list.add(id);
+    }
+    List<Long> inserted = new ArrayList<>();
+    for (long id : newIds) {
+      inserted.add(id);
+    }
+    Recorder recorder = new Recorder(list, changed);
+    diff.dispatchUpdatesTo(recorder);
+    // inserted rows have no content yet, fill them in from the new list like an adapter would
+    for (int i = 0; i < list.size(); i++) {
+      if (list.get(i) == null) {
+        list.set(i, inserted.get(i));
+      }
+    }
+    return list;
+  }
+
+  private static class Recorder implements ListUpdateCallback {
+
+    private final List<Long> list;
+    private final List<Integer> changed;
+
+    Recorder(List<Long> list, List<Integer> changed) {
+      this.list = list;
+      this.changed = changed;
+    }
+
+    @Override
+    public void onInserted(int position, int count) {
+      list.add(position, null);
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+      list.remove(position);
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+      list.add(toPosition, list.remove(fromPosition));
+    }
+
+    @Override
+    public void onChanged(int position, int count, @Nullable Object payload) {
+      changed.add(position);
+    }
+  }
+}
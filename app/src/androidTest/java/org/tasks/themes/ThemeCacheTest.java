@@ -0,0 +1,49 @@
+package org.tasks.themes;
+
+import static androidx.core.content.ContextCompat.getColor;
+import static androidx.test.InstrumentationRegistry.getTargetContext;
+import static junit.framework.Assert.assertEquals;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.TypedValue;
+import android.view.ContextThemeWrapper;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.R;
+
+@RunWith(AndroidJUnit4.class)
+public class ThemeCacheTest {
+
+  private final Context context = getTargetContext();
+  private final ThemeCache themeCache = new ThemeCache(context);
+
+  @Test
+  public void colorTableMatchesStyles() {
+    for (int i = 0; i < ThemeColor.COLORS.length; i++) {
+      Resources.Theme theme = new ContextThemeWrapper(context, ThemeColor.COLORS[i]).getTheme();
+      ThemeColor color = themeCache.getThemeColor(i);
+      assertEquals(resolve(theme, R.attr.colorPrimary), color.getPrimaryColor());
+      assertEquals(
+          resolve(theme, R.attr.colorPrimaryVariant),
+          getColor(context, ThemeColor.PRIMARY_VARIANT[i]));
+      assertEquals(resolve(theme, R.attr.colorOnPrimary), color.getActionBarTint());
+      assertEquals(resolve(theme, R.attr.dark_status_bar) != 0, ThemeColor.DARK_STATUS_BAR[i]);
+    }
+  }
+
+  @Test
+  public void accentTableMatchesStyles() {
+    for (int i = 0; i < ThemeAccent.ACCENTS.length; i++) {
+      Resources.Theme theme = new ContextThemeWrapper(context, ThemeAccent.ACCENTS[i]).getTheme();
+      assertEquals(resolve(theme, R.attr.colorAccent), themeCache.getThemeAccent(i).getAccentColor());
+    }
+  }
+
+  private static int resolve(Resources.Theme theme, int attribute) {
+    TypedValue typedValue = new TypedValue();
+    theme.resolveAttribute(attribute, typedValue, true);
+    return typedValue.data;
+  }
+}
@@ -0,0 +1,173 @@
+package org.tasks.ui;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Lists.transform;
+import static org.junit.Assert.assertEquals;
+
+import androidx.annotation.NonNull;
+import androidx.paging.ItemKeyedDataSource.LoadCallback;
+import androidx.paging.ItemKeyedDataSource.LoadInitialCallback;
+import androidx.paging.ItemKeyedDataSource.LoadInitialParams;
+import androidx.paging.ItemKeyedDataSource.LoadParams;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.base.Joiner;
+import com.todoroo.andlib.sql.Order;
+import com.todoroo.astrid.core.SortHelper;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Task;
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Inject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.data.TaskContainer;
+import org.tasks.injection.InjectingTestCase;
+import org.tasks.injection.TestComponent;
+
+@RunWith(AndroidJUnit4.class)
+public class TaskListDataSourceTest extends InjectingTestCase {
+
+  private static final String TASKS = "SELECT tasks.* FROM tasks WHERE tasks.deleted = 0";
+
+  @Inject Database database;
+  @Inject TaskDao taskDao;
+  private int position = -1;
+
+  @Override
+  public void setUp() {
+    super.setUp();
+
+    for (int i = 0; i < 25; i++) {
+      Task task = new Task();
+      // duplicate titles and due dates so that ties are settled by the later keys
+      task.setTitle("task " + i % 7);
+      task.setDueDate(i % 3 == 0 ? 0 : 1000L * (i % 4));
+      taskDao.createNew(task);
+    }
+  }
+
+  @Test
+  public void pageForwardInSortOrder() {
+    assertEquals(
+        fetchIds("sort_due ASC, sort_title ASC, _id ASC"),
+        pageForward(SortHelper.SORT_DUE, false));
+  }
+
+  @Test
+  public void pageForwardInReverseOrder() {
+    assertEquals(
+        fetchIds("sort_smart DESC, sort_title DESC, _id DESC"),
+        pageForward(SortHelper.SORT_AUTO, true));
+  }
+
+  @Test
+  public void reverseOrderMatchesSortHelper() {
+    Order order = Order.asc(Task.IMPORTANCE);
+    order.addSecondaryExpression(Order.asc(Task.SORT_DUE));
+    order.addSecondaryExpression(Order.asc(Task.SORT_TITLE));
+
+    assertEquals(
+        fetchIds(order.reverse() + ", tasks._id DESC"),
+        pageForward(SortHelper.SORT_IMPORTANCE, true));
+  }
+
+  @Test
+  public void pageBackwardFromInitialKey() {
+    List<Long> expected = fetchIds("importance ASC, sort_due ASC, sort_title ASC, _id ASC");
+    TaskListDataSource dataSource = create(SortHelper.SORT_IMPORTANCE, false);
+    Task key = taskDao.fetch(expected.get(12));
+
+    List<TaskContainer> initial = loadInitial(dataSource, key);
+    assertEquals(12, position);
+    assertEquals(key.getId(), initial.get(0).getId());
+
+    List<Long> result = new ArrayList<>(ids(initial));
+    List<TaskContainer> page = initial;
+    while (!page.isEmpty()) {
+      page = loadBefore(dataSource, page.get(0).getTask());
+      result.addAll(0, ids(page));
+    }
+
+    assertEquals(expected.subList(0, result.size()), result);
+  }
+
+  private List<Long> pageForward(int sortMode, boolean reverse) {
+    TaskListDataSource dataSource = create(sortMode, reverse);
+    List<Long> result = new ArrayList<>();
+    List<TaskContainer> page = loadInitial(dataSource, null);
+    while (!page.isEmpty()) {
+      result.addAll(ids(page));
+      page = loadAfter(dataSource, page.get(page.size() - 1).getTask());
+    }
+    return result;
+  }
+
+  private TaskListDataSource create(int sortMode, boolean reverse) {
+    return (TaskListDataSource)
+        new TaskListDataSource.Factory(
+                database,
+                taskDao,
+                TASKS,
+                TaskListDataSource.SortKey.forSortMode(sortMode, reverse),
+                ids -> "SELECT tasks.* FROM tasks WHERE _id IN (" + Joiner.on(",").join(ids) + ")")
+            .create();
+  }
+
+  private List<Long> fetchIds(String order) {
+    return taskDao.fetchIds(
+        new SimpleSQLiteQuery("SELECT _id FROM (" + TASKS + ") AS tasks ORDER BY " + order));
+  }
+
+  private static List<Long> ids(List<TaskContainer> rows) {
+    return newArrayList(transform(rows, TaskContainer::getId));
+  }
+
+  private List<TaskContainer> loadInitial(TaskListDataSource dataSource, Task key) {
+    List<TaskContainer> result = new ArrayList<>();
+    dataSource.loadInitial(
+        new LoadInitialParams<>(key, 5, true),
+        new LoadInitialCallback<TaskContainer>() {
+          @Override
+          public void onResult(
+              @NonNull List<TaskContainer> data, int position, int totalCount) {
+            assertEquals(25, totalCount);
+            TaskListDataSourceTest.this.position = position;
+            result.addAll(data);
+          }
+
+          @Override
+          public void onResult(@NonNull List<TaskContainer> data) {
+            result.addAll(data);
+          }
+        });
+    return result;
+  }
+
+  private static List<TaskContainer> loadAfter(TaskListDataSource dataSource, Task key) {
+    List<TaskContainer> result = new ArrayList<>();
+    dataSource.loadAfter(new LoadParams<>(key, 5), collect(result));
+    return result;
+  }
+
+  private static List<TaskContainer> loadBefore(TaskListDataSource dataSource, Task key) {
+    List<TaskContainer> result = new ArrayList<>();
+    dataSource.loadBefore(new LoadParams<>(key, 5), collect(result));
+    return result;
+  }
+
+  private static LoadCallback<TaskContainer> collect(List<TaskContainer> result) {
+    return new LoadCallback<TaskContainer>() {
+      @Override
+      public void onResult(@NonNull List<TaskContainer> data) {
+        result.addAll(data);
+      }
+    };
+  }
+
+  @Override
+  protected void inject(TestComponent component) {
+    component.inject(this);
+  }
+}
@@ -2,14 +2,21 @@ package org.tasks.preferences;
 
 import static com.google.common.primitives.Ints.asList;
 
+import android.content.Intent;
 import android.os.Bundle;
 import android.preference.Preference;
 import androidx.annotation.StringRes;
 import com.android.billingclient.api.BillingClient.SkuType;
+import java.util.ArrayList;
+import java.util.List;
 import javax.inject.Inject;
 import org.tasks.R;
 import org.tasks.billing.BillingClient;
 import org.tasks.billing.Inventory;
+import org.tasks.db.QueryExecutor;
+import org.tasks.db.QueryStats;
+import org.tasks.db.QueryStats.Stat;
+import org.tasks.dialogs.DialogBuilder;
 import org.tasks.injection.ActivityComponent;
 import org.tasks.injection.InjectingPreferenceActivity;
 
@@ -17,6 +24,9 @@ public class DebugPreferences extends InjectingPreferenceActivity {
 
   @Inject Inventory inventory;
   @Inject BillingClient billingClient;
+  @Inject QueryStats queryStats;
+  @Inject QueryExecutor queryExecutor;
+  @Inject DialogBuilder dialogBuilder;
 
   @Override
   public void onCreate(Bundle savedInstanceState) {
@@ -27,6 +37,7 @@ public class DebugPreferences extends InjectingPreferenceActivity {
     for (int pref :
         asList(
             R.string.p_flipper,
+            R.string.p_debug_query_stats,
             R.string.p_strict_mode_vm,
             R.string.p_strict_mode_thread)) {
       findPreference(pref)
@@ -37,11 +48,71 @@ public class DebugPreferences extends InjectingPreferenceActivity {
               });
     }
 
+    findPreference(R.string.debug_query_stats_view)
+        .setOnPreferenceClickListener(
+            preference -> {
+              showQueryStats();
+              return false;
+            });
+
+    findPreference(R.string.debug_query_executor)
+        .setOnPreferenceClickListener(
+            preference -> {
+              updateQueryExecutor();
+              return false;
+            });
+
     setupIap(R.string.debug_themes, Inventory.SKU_THEMES);
     setupIap(R.string.debug_tasker, Inventory.SKU_TASKER);
     setupIap(R.string.debug_dashclock, Inventory.SKU_DASHCLOCK);
   }
 
+  @Override
+  protected void onResume() {
+    super.onResume();
+
+    updateQueryExecutor();
+  }
+
+  private void updateQueryExecutor() {
+    findPreference(R.string.debug_query_executor)
+        .setSummary(
+            getString(
+                R.string.debug_query_executor_summary,
+                queryExecutor.getQueueDepth(),
+                queryExecutor.getAverageLatency()));
+  }
+
+  private void showQueryStats() {
+    List<String> lines = new ArrayList<>();
+    for (Stat stat : queryStats.getStats()) {
+      lines.add(
+          getString(
+              R.string.debug_query_stats_summary,
+              stat.getPercentile(0.5),
+              stat.getPercentile(0.95),
+              stat.getMaxMillis(),
+              stat.getCount(),
+              stat.getRows(),
+              stat.getMainThread(),
+              stat.getSql()));
+    }
+    dialogBuilder
+        .newDialog()
+        .setItems(lines, null)
+        .setPositiveButton(
+            R.string.debug_export,
+            (dialog, which) ->
+                startActivity(
+                    Intent.createChooser(
+                        new Intent(Intent.ACTION_SEND)
+                            .setType("application/json")
+                            .putExtra(Intent.EXTRA_TEXT, queryStats.toJson()),
+                        null)))
+        .setNegativeButton(R.string.debug_reset, (dialog, which) -> queryStats.reset())
+        .show();
+  }
+
   private void setupIap(@StringRes int prefId, String sku) {
     Preference preference = findPreference(prefId);
     if (inventory.getPurchase(sku) == null) {
@@ -14,6 +14,8 @@ public class GeofenceApi {
 
   public void cancel(Location geofence) {}
 
+  public void cancel(List<Location> geofences) {}
+
   public void registerAll() {}
 
   public void cancel(long taskId) {}
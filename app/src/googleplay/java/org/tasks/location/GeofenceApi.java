@@ -1,68 +1,94 @@
 package org.tasks.location;
 
 import static com.google.android.gms.location.Geofence.NEVER_EXPIRE;
-import static com.google.common.base.Predicates.notNull;
-import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Lists.transform;
+import static com.google.common.collect.Sets.difference;
+import static java.util.Collections.emptySet;
 import static java.util.Collections.singletonList;
 
 import android.annotation.SuppressLint;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
+import androidx.annotation.Nullable;
 import com.google.android.gms.location.Geofence;
+import com.google.android.gms.location.GeofencingClient;
 import com.google.android.gms.location.GeofencingRequest;
 import com.google.android.gms.location.GeofencingRequest.Builder;
 import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.tasks.Tasks;
+import io.reactivex.Completable;
+import io.reactivex.schedulers.Schedulers;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
+import org.tasks.R;
 import org.tasks.data.Location;
 import org.tasks.data.LocationDao;
+import org.tasks.injection.ApplicationScope;
 import org.tasks.injection.ForApplication;
+import org.tasks.location.GeofencePlanner.Plan;
 import org.tasks.preferences.PermissionChecker;
+import org.tasks.preferences.Preferences;
+import timber.log.Timber;
 
+@ApplicationScope
 public class GeofenceApi {
 
+  private static final long REPLAN_DELAY = 500;
+
   private final Context context;
   private final PermissionChecker permissionChecker;
   private final LocationDao locationDao;
+  private final Preferences preferences;
+  private final GeofencePlanner planner = new GeofencePlanner();
+  private final Object pendingLock = new Object();
+  private @Nullable Plan plan;
+  private boolean replanScheduled;
+  private boolean pendingReset;
+  private @Nullable MapPosition pendingPosition;
 
   @Inject
   public GeofenceApi(
       @ForApplication Context context,
       PermissionChecker permissionChecker,
-      LocationDao locationDao) {
+      LocationDao locationDao,
+      Preferences preferences) {
     this.context = context;
     this.permissionChecker = permissionChecker;
     this.locationDao = locationDao;
+    this.preferences = preferences;
   }
 
+  /** Re-registers everything, platform geofences don't survive reboots or app updates */
   public void registerAll() {
-    register(locationDao.getActiveGeofences());
+    replan(true, null);
   }
 
   public void register(long taskId) {
-    register(locationDao.getActiveGeofences(taskId));
+    Location location = locationDao.getGeofences(taskId);
+    if (location != null) {
+      register(singletonList(location));
+    }
   }
 
-  @SuppressLint("MissingPermission")
+  /** Adds the geofences to the applied plan if they fit, otherwise schedules a replan */
   public void register(final List<Location> locations) {
-    if (!permissionChecker.canAccessLocation()) {
+    if (!permissionChecker.canAccessLocation() || locations.isEmpty()) {
       return;
     }
+    Completable.fromAction(() -> add(locations)).subscribeOn(Schedulers.io()).subscribe();
+  }
 
-    List<Geofence> requests = getRequests(locations);
-    if (!requests.isEmpty()) {
-      LocationServices.getGeofencingClient(context)
-          .addGeofences(
-              new Builder().addGeofences(requests).build(),
-              PendingIntent.getBroadcast(
-                  context,
-                  0,
-                  new Intent(context, GeofenceTransitionsIntentService.Broadcast.class),
-                  PendingIntent.FLAG_UPDATE_CURRENT));
-    }
+  void onBoundaryExit(@Nullable android.location.Location location) {
+    replan(
+        false,
+        location == null
+            ? null
+            : new MapPosition(location.getLatitude(), location.getLongitude()));
   }
 
   public void cancel(long taskId) {
@@ -76,27 +102,168 @@ public class GeofenceApi {
   }
 
   public void cancel(final List<Location> locations) {
-    if (!permissionChecker.canAccessLocation()) {
+    if (!permissionChecker.canAccessLocation() || locations.isEmpty()) {
       return;
     }
-    List<String> requestIds = getRequestIds(locations);
+    Completable.fromAction(() -> remove(locations)).subscribeOn(Schedulers.io()).subscribe();
+  }
+
+  private synchronized void add(List<Location> locations) {
+    Plan extended =
+        plan == null ? null : planner.extend(plan, preferences.getRegisteredGeofences(), locations);
+    if (extended == null) {
+      replan(false, null);
+    } else if (!extended.getAdd().isEmpty()) {
+      Timber.d("%s", extended);
+      if (submit(getClient(), transform(extended.getAdd(), this::toGoogleGeofence))) {
+        preferences.setRegisteredGeofences(extended.getRegistered());
+        plan = extended;
+      }
+    }
+  }
+
+  private synchronized void remove(List<Location> locations) {
+    Set<String> registered = preferences.getRegisteredGeofences();
+    List<String> requestIds = newArrayList();
+    for (Location location : locations) {
+      String requestId = GeofencePlanner.getRequestId(location);
+      if (registered.remove(requestId)) {
+        requestIds.add(requestId);
+      }
+    }
     if (!requestIds.isEmpty()) {
-      LocationServices.getGeofencingClient(context).removeGeofences(requestIds);
+      getClient().removeGeofences(requestIds);
+      preferences.setRegisteredGeofences(registered);
+      replan(false, null);
     }
   }
 
-  @SuppressWarnings("ConstantConditions")
-  private List<String> getRequestIds(List<Location> locations) {
-    return transform(newArrayList(filter(locations, notNull())), l -> Long.toString(l.getId()));
+  /** Requests arriving within {@link #REPLAN_DELAY} of each other are planned once */
+  private void replan(boolean reset, @Nullable MapPosition position) {
+    if (!permissionChecker.canAccessLocation()) {
+      return;
+    }
+    synchronized (pendingLock) {
+      pendingReset |= reset;
+      if (position != null) {
+        pendingPosition = position;
+      }
+      if (replanScheduled) {
+        return;
+      }
+      replanScheduled = true;
+    }
+    Completable.timer(REPLAN_DELAY, TimeUnit.MILLISECONDS, Schedulers.io())
+        .subscribe(this::replanNow);
   }
 
-  private List<com.google.android.gms.location.Geofence> getRequests(List<Location> locations) {
-    return transform(
-        newArrayList(filter(locations, l -> l != null && (l.isArrival() || l.isDeparture()))),
-        this::toGoogleGeofence);
+  @SuppressLint("MissingPermission")
+  private void replanNow() {
+    boolean reset;
+    MapPosition position;
+    synchronized (pendingLock) {
+      reset = pendingReset;
+      position = pendingPosition;
+      pendingReset = false;
+      pendingPosition = null;
+      replanScheduled = false;
+    }
+    if (position != null) {
+      apply(reset, position);
+    } else {
+      LocationServices.getFusedLocationProviderClient(context)
+          .getLastLocation()
+          .addOnCompleteListener(
+              task -> {
+                android.location.Location last = task.isSuccessful() ? task.getResult() : null;
+                MapPosition current =
+                    last == null ? null : new MapPosition(last.getLatitude(), last.getLongitude());
+                Completable.fromAction(() -> apply(reset, current))
+                    .subscribeOn(Schedulers.io())
+                    .subscribe();
+              });
+    }
+  }
+
+  @SuppressLint("MissingPermission")
+  private synchronized void apply(boolean reset, @Nullable MapPosition position) {
+    GeofencingClient client = getClient();
+    if (!preferences.getBoolean(R.string.p_geofences_removed_all, false)) {
+      // geofences registered before request ids were tracked can only be removed all at once
+      try {
+        Tasks.await(client.removeGeofences(getPendingIntent()));
+        preferences.setRegisteredGeofences(emptySet());
+        preferences.setBoolean(R.string.p_geofences_removed_all, true);
+        reset = true;
+      } catch (ExecutionException e) {
+        Timber.e(e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    Set<String> previous = preferences.getRegisteredGeofences();
+    Plan plan =
+        planner.plan(locationDao.getActiveGeofences(), position, reset ? emptySet() : previous);
+    Timber.d("%s", plan);
+    Set<String> registered = plan.getRegistered();
+    List<String> remove =
+        reset ? newArrayList(difference(previous, registered)) : plan.getRemove();
+    if (!remove.isEmpty()) {
+      client.removeGeofences(remove);
+    }
+    List<Geofence> requests = newArrayList(transform(plan.getAdd(), this::toGoogleGeofence));
+    if (plan.getBoundary() != null) {
+      requests.add(toBoundaryGeofence(plan.getCenter(), plan.getBoundary()));
+    }
+    // on failure the previous set is kept, so the next plan adds these again
+    if (submit(client, requests)) {
+      preferences.setRegisteredGeofences(registered);
+      this.plan = plan;
+    }
+  }
+
+  /** @return true if the geofences were added */
+  @SuppressLint("MissingPermission")
+  private boolean submit(GeofencingClient client, List<Geofence> requests) {
+    if (requests.isEmpty()) {
+      return true;
+    }
+    try {
+      Tasks.await(
+          client.addGeofences(
+              new Builder().addGeofences(requests).build(), getPendingIntent()));
+      return true;
+    } catch (ExecutionException e) {
+      Timber.e(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+
+  private GeofencingClient getClient() {
+    return LocationServices.getGeofencingClient(context);
+  }
+
+  private PendingIntent getPendingIntent() {
+    return PendingIntent.getBroadcast(
+        context,
+        0,
+        new Intent(context, GeofenceTransitionsIntentService.Broadcast.class),
+        PendingIntent.FLAG_UPDATE_CURRENT);
+  }
+
+  private Geofence toBoundaryGeofence(MapPosition center, float radius) {
+    return new Geofence.Builder()
+        .setCircularRegion(center.getLatitude(), center.getLongitude(), radius)
+        .setRequestId(GeofencePlanner.BOUNDARY_ID)
+        .setTransitionTypes(Geofence.GEOFENCE_TRANSITION_EXIT)
+        .setExpirationDuration(NEVER_EXPIRE)
+        .build();
   }
 
-  private com.google.android.gms.location.Geofence toGoogleGeofence(Location location) {
+  private Geofence toGoogleGeofence(Location location) {
     int transitionTypes = 0;
     if (location.isArrival()) {
       transitionTypes |= GeofencingRequest.INITIAL_TRIGGER_ENTER;
@@ -104,9 +271,9 @@ public class GeofenceApi {
     if (location.isDeparture()) {
       transitionTypes |= GeofencingRequest.INITIAL_TRIGGER_EXIT;
     }
-    return new com.google.android.gms.location.Geofence.Builder()
+    return new Geofence.Builder()
         .setCircularRegion(location.getLatitude(), location.getLongitude(), location.getRadius())
-        .setRequestId(Long.toString(location.getId()))
+        .setRequestId(GeofencePlanner.getRequestId(location))
         .setTransitionTypes(transitionTypes)
         .setExpirationDuration(NEVER_EXPIRE)
         .build();
@@ -26,6 +26,7 @@ public class GeofenceTransitionsIntentService extends InjectingJobIntentService
 
   @Inject LocationDao locationDao;
   @Inject Notifier notifier;
+  @Inject GeofenceApi geofenceApi;
 
   @Override
   protected void doWork(Intent intent) {
@@ -42,7 +43,11 @@ public class GeofenceTransitionsIntentService extends InjectingJobIntentService
     Timber.i("Received geofence transition: %s, %s", transitionType, triggeringGeofences);
     if (transitionType == GEOFENCE_TRANSITION_ENTER || transitionType == GEOFENCE_TRANSITION_EXIT) {
       for (com.google.android.gms.location.Geofence triggerGeofence : triggeringGeofences) {
-        triggerNotification(triggerGeofence, transitionType == GEOFENCE_TRANSITION_ENTER);
+        if (GeofencePlanner.BOUNDARY_ID.equals(triggerGeofence.getRequestId())) {
+          geofenceApi.onBoundaryExit(geofencingEvent.getTriggeringLocation());
+        } else {
+          triggerNotification(triggerGeofence, transitionType == GEOFENCE_TRANSITION_ENTER);
+        }
       }
     } else {
       Timber.w("invalid geofence transition type: %s", transitionType);
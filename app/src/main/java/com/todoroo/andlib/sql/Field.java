@@ -55,6 +55,10 @@ public class Field extends DBObject<Field> {
     return UnaryCriterion.like(this, value);
   }
 
+  public Criterion match(final String value) {
+    return UnaryCriterion.match(this, value);
+  }
+
   public <T> Criterion in(final Iterable<T> value) {
     final Field field = this;
     return new Criterion(Operator.in) {
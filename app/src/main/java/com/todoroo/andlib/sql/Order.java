@@ -51,11 +51,13 @@ public class Order {
     return sb.toString();
   }
 
+  /** Reverses this order and every secondary order */
   public Order reverse() {
-    if (orderType == OrderType.ASC) {
-      return new Order(expression, OrderType.DESC);
-    } else {
-      return new Order(expression, OrderType.ASC);
+    Order reversed =
+        new Order(expression, orderType == OrderType.ASC ? OrderType.DESC : OrderType.ASC);
+    for (Order secondary : secondaryExpressions) {
+      reversed.addSecondaryExpression(secondary.reverse());
     }
+    return reversed;
   }
 }
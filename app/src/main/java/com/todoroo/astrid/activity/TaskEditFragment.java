@@ -11,6 +11,7 @@ import static com.google.common.collect.Iterables.filter;
 import static com.todoroo.andlib.utility.AndroidUtilities.assertNotMainThread;
 import static org.tasks.date.DateTimeUtils.newDateTime;
 import static org.tasks.files.FileHelper.copyToUri;
+import static org.tasks.time.DateTimeUtils.currentTimeMillis;
 
 import android.app.Activity;
 import android.content.Context;
@@ -21,11 +22,11 @@ import android.view.LayoutInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver.OnPreDrawListener;
 import android.widget.LinearLayout;
 import androidx.annotation.Nullable;
 import androidx.appcompat.widget.Toolbar;
 import androidx.core.content.ContextCompat;
-import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -58,12 +59,14 @@ import org.tasks.preferences.Preferences;
 import org.tasks.ui.MenuColorizer;
 import org.tasks.ui.SubtaskControlSet;
 import org.tasks.ui.TaskEditControlFragment;
+import timber.log.Timber;
 
 public final class TaskEditFragment extends InjectingFragment
     implements Toolbar.OnMenuItemClickListener {
 
   static final String TAG_TASKEDIT_FRAGMENT = "taskedit_fragment";
   private static final String EXTRA_TASK = "extra_task";
+  private static final int EAGER_ROWS = 6;
   @Inject TaskDao taskDao;
   @Inject UserActivityDao userActivityDao;
   @Inject TaskDeleter taskDeleter;
@@ -87,6 +90,7 @@ public final class TaskEditFragment extends InjectingFragment
 
   Task model = null;
   private TaskEditFragmentCallbackHandler callback;
+  private Runnable deferredControlSets;
 
   static TaskEditFragment newTaskEditFragment(Task task) {
     TaskEditFragment taskEditFragment = new TaskEditFragment();
@@ -143,15 +147,70 @@ public final class TaskEditFragment extends InjectingFragment
     }
 
     commentsController.initialize(model, comments);
-    commentsController.reloadView();
 
-    FragmentManager fragmentManager = getChildFragmentManager();
     List<TaskEditControlFragment> taskEditControlFragments =
         taskEditControlSetFragmentManager.getOrCreateFragments(this, model);
 
-    FragmentTransaction fragmentTransaction = fragmentManager.beginTransaction();
-    for (int i = 0; i < taskEditControlFragments.size(); i++) {
-      TaskEditControlFragment taskEditControlFragment = taskEditControlFragments.get(i);
+    // a restored editor already has every control set, otherwise rows below the first screen are
+    // added after the first frame so their layouts and database reads do not delay it
+    int eagerRows = savedInstanceState == null ? EAGER_ROWS : taskEditControlFragments.size();
+    addControlSets(taskEditControlFragments, 0, eagerRows);
+    Runnable remainingControlSets =
+        () -> {
+          addControlSets(taskEditControlFragments, eagerRows, taskEditControlFragments.size());
+          commentsController.reloadView();
+        };
+
+    long start = currentTimeMillis();
+    view.getViewTreeObserver()
+        .addOnPreDrawListener(
+            new OnPreDrawListener() {
+              @Override
+              public boolean onPreDraw() {
+                view.getViewTreeObserver().removeOnPreDrawListener(this);
+                Timber.d("first frame in %sms", currentTimeMillis() - start);
+                view.post(
+                    () -> {
+                      deferredControlSets = remainingControlSets;
+                      addDeferredControlSets();
+                    });
+                return true;
+              }
+            });
+
+    for (int i = taskEditControlFragments.size() - 2; i > 1; i--) {
+      controlSets.addView(inflater.inflate(R.layout.task_edit_row_divider, controlSets, false), i);
+    }
+
+    return view;
+  }
+
+  @Override
+  public void onResume() {
+    super.onResume();
+
+    addDeferredControlSets();
+  }
+
+  /**
+   * Adds the rows held back for the first frame. Fragment transactions can't be committed after
+   * the state is saved, so if the editor was stopped in the meantime this is retried in onResume
+   */
+  private void addDeferredControlSets() {
+    if (deferredControlSets != null && isAdded() && !getChildFragmentManager().isStateSaved()) {
+      Runnable runnable = deferredControlSets;
+      deferredControlSets = null;
+      runnable.run();
+    }
+  }
+
+  private void addControlSets(List<TaskEditControlFragment> fragments, int from, int to) {
+    if (from >= to) {
+      return;
+    }
+    FragmentTransaction fragmentTransaction = getChildFragmentManager().beginTransaction();
+    for (int i = from; i < to; i++) {
+      TaskEditControlFragment taskEditControlFragment = fragments.get(i);
       String tag = getString(taskEditControlFragment.controlId());
       fragmentTransaction.replace(
           TaskEditControlSetFragmentManager.TASK_EDIT_CONTROL_FRAGMENT_ROWS[i],
@@ -159,12 +218,6 @@ public final class TaskEditFragment extends InjectingFragment
           tag);
     }
     fragmentTransaction.commit();
-
-    for (int i = taskEditControlFragments.size() - 2; i > 1; i--) {
-      controlSets.addView(inflater.inflate(R.layout.task_edit_row_divider, controlSets, false), i);
-    }
-
-    return view;
   }
 
   @Override
@@ -220,16 +273,19 @@ public final class TaskEditFragment extends InjectingFragment
               () -> {
                 assertNotMainThread();
 
-                if (isNewTask) {
-                  taskDao.createNew(model);
-                }
+                taskDao.runInTransaction(
+                    () -> {
+                      if (isNewTask) {
+                        taskDao.createNew(model);
+                      }
 
-                for (TaskEditControlFragment fragment :
-                    filter(fragments, TaskEditControlFragment::requiresId)) {
-                  fragment.apply(model);
-                }
+                      for (TaskEditControlFragment fragment :
+                          filter(fragments, TaskEditControlFragment::requiresId)) {
+                        fragment.apply(model);
+                      }
 
-                taskDao.save(model, null);
+                      taskDao.save(model, null);
+                    });
 
                 if (isNewTask) {
                   taskListFragment.onTaskCreated(model.getUuid());
@@ -358,6 +414,7 @@ public final class TaskEditFragment extends InjectingFragment
     userActivity.setTargetId(model.getUuid());
     userActivity.setCreated(DateUtilities.now());
     userActivityDao.createNew(userActivity);
+    taskDao.touch(model.getId());
     commentsController.reloadView();
   }
 
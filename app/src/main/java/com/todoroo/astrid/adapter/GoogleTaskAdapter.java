@@ -29,17 +29,21 @@ public final class GoogleTaskAdapter extends GoogleTaskManualSortAdapter {
       if (googleTask.getIndent() == 0) {
         return;
       }
-      googleTaskDao.move(
-          googleTask, 0, newTasksOnTop ? 0 : googleTaskDao.getBottom(googleTask.getListId(), 0));
+      if (newTasksOnTop) {
+        googleTaskDao.move(googleTask, 0, 0);
+      } else {
+        googleTaskDao.moveToBottom(googleTask, 0);
+      }
     } else {
       long newParent = previous.hasParent() ? previous.getParent() : previous.getId();
       if (googleTask.getParent() == newParent) {
         return;
       }
-      googleTaskDao.move(
-          googleTask,
-          newParent,
-          newTasksOnTop ? 0 : googleTaskDao.getBottom(googleTask.getListId(), newParent));
+      if (newTasksOnTop) {
+        googleTaskDao.move(googleTask, newParent, 0);
+      } else {
+        googleTaskDao.moveToBottom(googleTask, newParent);
+      }
     }
 
     taskDao.touch(task.getId());
@@ -74,30 +74,13 @@ public class GoogleTaskManualSortAdapter extends TaskAdapter {
 
     if (previous == null) {
       googleTaskDao.move(googleTask, 0, 0);
-    } else if (to == getCount() || to <= from) {
-      if (indent == 0) {
-        googleTaskDao.move(googleTask, 0, previous.getPrimarySort() + 1);
-      } else if (previous.hasParent()) {
-        googleTaskDao.move(googleTask, previous.getParent(), previous.getSecondarySort() + 1);
-      } else {
-        googleTaskDao.move(googleTask, previous.getId(), 0);
-      }
+    } else if (indent == 0) {
+      googleTaskDao.move(
+          googleTask, 0, previous.hasParent() ? previous.getParent() : previous.getId());
+    } else if (previous.hasParent()) {
+      googleTaskDao.move(googleTask, previous.getParent(), previous.getId());
     } else {
-      if (indent == 0) {
-        googleTaskDao.move(
-            googleTask,
-            0,
-            task.hasParent() ? previous.getPrimarySort() + 1 : previous.getPrimarySort());
-      } else if (previous.hasParent()) {
-        googleTaskDao.move(
-            googleTask,
-            previous.getParent(),
-            task.getParent() == previous.getParent()
-                ? previous.getSecondarySort()
-                : previous.getSecondarySort() + 1);
-      } else {
-        googleTaskDao.move(googleTask, previous.getId(), 0);
-      }
+      googleTaskDao.move(googleTask, previous.getId(), 0);
     }
 
     taskDao.touch(task.getId());
@@ -105,7 +105,8 @@ public class TaskAdapterProvider {
 
   private TaskAdapter createGoogleTaskAdapter(GtasksFilter filter) {
     if (preferences.isManualSort()) {
-      filter.setFilterQueryOverride(GtasksFilter.toManualOrder(filter.getSqlQuery()));
+      filter.setFilterQueryOverride(
+          GtasksFilter.toManualOrder(filter.getRemoteId(), filter.getSqlQuery()));
       return new GoogleTaskManualSortAdapter(taskDao, googleTaskDao);
     }
     return new GoogleTaskAdapter(taskDao, googleTaskDao, preferences.addGoogleTasksToTop());
@@ -6,6 +6,7 @@
 
 package com.todoroo.astrid.alarms;
 
+import com.todoroo.astrid.dao.TaskDao;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -28,11 +29,13 @@ public class AlarmService {
 
   private final NotificationQueue jobs;
   private final AlarmDao alarmDao;
+  private final TaskDao taskDao;
 
   @Inject
-  public AlarmService(AlarmDao alarmDao, NotificationQueue notificationQueue) {
+  public AlarmService(AlarmDao alarmDao, NotificationQueue notificationQueue, TaskDao taskDao) {
     this.alarmDao = alarmDao;
     jobs = notificationQueue;
+    this.taskDao = taskDao;
   }
 
   public void rescheduleAlarms(long taskId, long oldDueDate, long newDueDate) {
@@ -54,7 +57,8 @@ public class AlarmService {
   }
 
   /**
-   * Save the given array of alarms into the database
+   * Save the given array of alarms into the database. Alarms are rescheduled once the enclosing
+   * transaction commits
    *
    * @return true if data was changed
    */
@@ -63,7 +67,7 @@ public class AlarmService {
 
     for (Alarm item : alarmDao.getAlarms(taskId)) {
       if (!timestamps.remove(item.getTime())) {
-        jobs.cancelAlarm(item.getId());
+        taskDao.runAfterCommit(() -> jobs.cancelAlarm(item.getId()));
         alarmDao.delete(item);
         changed = true;
       }
@@ -75,7 +79,7 @@ public class AlarmService {
     }
 
     if (changed) {
-      scheduleAlarms(taskId);
+      taskDao.runAfterCommit(() -> scheduleAlarms(taskId));
     }
     return changed;
   }
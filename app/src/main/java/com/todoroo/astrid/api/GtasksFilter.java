@@ -7,6 +7,7 @@ import com.google.common.base.Objects;
 import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.sql.Join;
 import com.todoroo.andlib.sql.QueryTemplate;
+import com.todoroo.andlib.sql.UnaryCriterion;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Task;
 import java.util.HashMap;
@@ -49,20 +50,32 @@ public class GtasksFilter extends Filter {
     icon = list.getIcon();
   }
 
-  public static String toManualOrder(String query) {
+  /**
+   * Orders the tasks of a list as arranged by the user. A subtask's rank among its siblings is
+   * counted from the sibling rows that are already joined for the number of siblings.
+   */
+  public static String toManualOrder(String listId, String query) {
+    String list = "'" + UnaryCriterion.sanitize(listId) + "'";
     query =
         query.replace(
             "WHERE",
             "JOIN (SELECT 0 as indent, google_tasks.*, COUNT(c.gt_id) AS children, 0 AS siblings, google_tasks.gt_order AS primary_sort, NULL AS secondary_sort"
-                + "   FROM google_tasks LEFT JOIN google_tasks AS c ON c.gt_parent = google_tasks.gt_task"
-                + "   WHERE google_tasks.gt_parent = 0 GROUP BY google_tasks.gt_task"
-                + " UNION SELECT 1 as indent, c.*, 0 AS children, COUNT(s.gt_id) AS siblings, p.gt_order AS primary_sort, c.gt_order AS secondary_sort"
-                + "   FROM google_tasks AS c LEFT JOIN google_tasks AS p ON c.gt_parent = p.gt_task"
+                + "   FROM google_tasks LEFT JOIN google_tasks AS c ON c.gt_list_id = google_tasks.gt_list_id"
+                + "     AND c.gt_parent = google_tasks.gt_task AND c.gt_deleted = 0"
+                + "   WHERE google_tasks.gt_list_id = "
+                + list
+                + "   AND google_tasks.gt_parent = 0 AND google_tasks.gt_deleted = 0 GROUP BY google_tasks.gt_id"
+                + " UNION SELECT 1 as indent, c.*, 0 AS children, COUNT(s.gt_id) AS siblings, p.gt_order AS primary_sort,"
+                + "   IFNULL(SUM(s.gt_order < c.gt_order), 0) AS secondary_sort"
+                + "   FROM google_tasks AS c LEFT JOIN google_tasks AS p ON p.gt_list_id = c.gt_list_id AND p.gt_task = c.gt_parent"
                 + "   LEFT JOIN tasks ON c.gt_parent = tasks._id"
-                + "   LEFT JOIN google_tasks AS s ON s.gt_parent = p.gt_task"
-                + "   WHERE c.gt_parent > 0 AND ((tasks.completed=0) AND (tasks.deleted=0)"
+                + "   LEFT JOIN google_tasks AS s ON s.gt_list_id = c.gt_list_id"
+                + "     AND s.gt_parent = c.gt_parent AND s.gt_deleted = 0"
+                + "   WHERE c.gt_list_id = "
+                + list
+                + "   AND c.gt_parent > 0 AND c.gt_deleted = 0 AND ((tasks.completed=0) AND (tasks.deleted=0)"
                 + "   AND (tasks.hideUntil<(strftime('%s','now')*1000)))"
-                + " GROUP BY c.gt_task) as g2 ON g2.gt_id = google_tasks.gt_id WHERE");
+                + " GROUP BY c.gt_id) as g2 ON g2.gt_id = google_tasks.gt_id WHERE");
     query = query.replaceAll("ORDER BY .*", "");
     query = query + "ORDER BY primary_sort ASC, secondary_sort ASC";
     return query;
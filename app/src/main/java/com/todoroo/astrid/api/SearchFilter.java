@@ -1,12 +1,23 @@
 package com.todoroo.astrid.api;
 
+import static com.google.common.collect.Iterables.filter;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Lists.transform;
+import static com.todoroo.andlib.sql.Field.field;
+
 import android.os.Parcel;
 import android.os.Parcelable;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
 import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.sql.Join;
+import com.todoroo.andlib.sql.Order;
+import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.sql.QueryTemplate;
 import com.todoroo.astrid.data.Task;
+import java.util.List;
 import org.tasks.data.Tag;
+import org.tasks.data.TaskSearch;
 
 public class SearchFilter extends Filter {
 
@@ -35,7 +46,36 @@ public class SearchFilter extends Filter {
     super(title, getQueryTemplate(query));
   }
 
+  /**
+   * Prefix matches every term against the full-text index, ranking title matches first. Queries
+   * without any searchable terms fall back to a substring scan.
+   */
   private static QueryTemplate getQueryTemplate(String query) {
+    List<String> terms = getTerms(query);
+    if (terms.isEmpty()) {
+      return getSubstringQueryTemplate(query);
+    }
+    String match = Joiner.on(' ').join(transform(terms, term -> term + "*"));
+    String titleMatch = Joiner.on(' ').join(transform(terms, term -> "title:" + term + "*"));
+    Order order = Order.desc(Task.ID.in(getMatches(titleMatch)));
+    order.addSecondaryExpression(Order.desc(Task.MODIFICATION_DATE));
+    return new QueryTemplate()
+        .where(Criterion.and(Task.DELETION_DATE.eq(0), Task.ID.in(getMatches(match))))
+        .orderBy(order);
+  }
+
+  private static Query getMatches(String match) {
+    return Query.select(field("rowid"))
+        .from(TaskSearch.TABLE)
+        .where(field(TaskSearch.TABLE.name()).match(match));
+  }
+
+  static List<String> getTerms(String query) {
+    return newArrayList(
+        filter(query.split("[^\\p{L}\\p{N}]+"), term -> !Strings.isNullOrEmpty(term)));
+  }
+
+  private static QueryTemplate getSubstringQueryTemplate(String query) {
     return new QueryTemplate()
         .join(Join.left(Tag.TABLE, Tag.TASK.eq(Task.ID)))
         .where(
@@ -51,4 +91,14 @@ public class SearchFilter extends Filter {
   public boolean supportsHiddenTasks() {
     return false;
   }
+
+  @Override
+  public boolean supportSubtasks() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsSorting() {
+    return false;
+  }
 }
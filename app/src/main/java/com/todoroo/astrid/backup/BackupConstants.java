@@ -43,5 +43,7 @@ public class BackupConstants {
 
   public static final String BACKUP_FILE_NAME = "auto.%s.json";
 
+  public static final String BACKUP_DELTA_FILE_NAME = "auto.%s.delta.json";
+
   public static final String UPGRADE_FILE_NAME = "upgradefrom.%s.json";
 }
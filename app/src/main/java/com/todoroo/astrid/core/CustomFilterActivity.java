@@ -8,10 +8,10 @@ package com.todoroo.astrid.core;
 
 import static android.text.TextUtils.isEmpty;
 import static com.todoroo.andlib.utility.AndroidUtilities.mapToSerializedString;
+import static org.tasks.db.QueryExecutor.PRIORITY_COUNT;
 
 import android.content.Context;
 import android.content.Intent;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.view.ContextMenu;
 import android.view.ContextMenu.ContextMenuInfo;
@@ -24,8 +24,6 @@ import androidx.appcompat.widget.Toolbar;
 import androidx.core.content.ContextCompat;
 import butterknife.BindView;
 import butterknife.ButterKnife;
-import com.todoroo.andlib.data.Property.CountProperty;
-import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.sql.UnaryCriterion;
 import com.todoroo.andlib.utility.AndroidUtilities;
 import com.todoroo.astrid.activity.MainActivity;
@@ -35,9 +33,12 @@ import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.api.MultipleSelectCriterion;
 import com.todoroo.astrid.api.PermaSql;
 import com.todoroo.astrid.api.TextInputCriterion;
-import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.core.CustomFilterEvaluator.Step;
 import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
 import com.todoroo.astrid.data.Task;
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.CompositeDisposable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -46,12 +47,14 @@ import java.util.Map.Entry;
 import javax.inject.Inject;
 import org.tasks.R;
 import org.tasks.data.FilterDao;
+import org.tasks.db.QueryExecutor;
 import org.tasks.dialogs.DialogBuilder;
 import org.tasks.filters.FilterCriteriaProvider;
 import org.tasks.injection.ActivityComponent;
 import org.tasks.injection.ThemedInjectingAppCompatActivity;
 import org.tasks.locale.Locale;
 import org.tasks.ui.MenuColorizer;
+import timber.log.Timber;
 
 /**
  * Activity that allows users to build custom filters
@@ -67,7 +70,8 @@ public class CustomFilterActivity extends ThemedInjectingAppCompatActivity
   private static final int MENU_GROUP_FILTER = 0;
 
   // --- hierarchy of filter classes
-  @Inject Database database;
+  @Inject CustomFilterEvaluator evaluator;
+  @Inject QueryExecutor queryExecutor;
   @Inject FilterDao filterDao;
   @Inject DialogBuilder dialogBuilder;
 
@@ -83,6 +87,7 @@ public class CustomFilterActivity extends ThemedInjectingAppCompatActivity
 
   private ListView listView;
   private CustomFilterAdapter adapter;
+  private final CompositeDisposable disposables = new CompositeDisposable();
 
   private static String serializeFilters(CustomFilterAdapter adapter) {
     StringBuilder values = new StringBuilder();
@@ -256,12 +261,7 @@ public class CustomFilterActivity extends ThemedInjectingAppCompatActivity
 
   /** Recalculate all sizes */
   void updateList() {
-    int max = 0, last = -1;
-
-    StringBuilder sql =
-        new StringBuilder(Query.select(new CountProperty()).from(Task.TABLE).toString())
-            .append(" WHERE ");
-
+    List<Step> steps = new ArrayList<>();
     for (int i = 0; i < adapter.getCount(); i++) {
       CriterionInstance instance = adapter.getItem(i);
       String value = instance.getValueFromCriterion();
@@ -269,38 +269,32 @@ public class CustomFilterActivity extends ThemedInjectingAppCompatActivity
         value = "";
       }
 
-      switch (instance.type) {
-        case CriterionInstance.TYPE_ADD:
-          sql.append("OR ");
-          break;
-        case CriterionInstance.TYPE_SUBTRACT:
-          sql.append("AND NOT ");
-          break;
-        case CriterionInstance.TYPE_INTERSECT:
-          sql.append("AND ");
-          break;
-        case CriterionInstance.TYPE_UNIVERSE:
-      }
-
       // special code for all tasks universe
       if (instance.criterion.sql == null) {
-        sql.append(TaskCriteria.activeAndVisible()).append(' ');
+        steps.add(new Step(instance.type, null));
       } else {
         String subSql = instance.criterion.sql.replace("?", UnaryCriterion.sanitize(value));
-        subSql = PermaSql.replacePlaceholdersForQuery(subSql);
-        sql.append(Task.ID).append(" IN (").append(subSql).append(") ");
+        steps.add(new Step(instance.type, PermaSql.replacePlaceholdersForQuery(subSql)));
       }
+    }
 
-      Cursor cursor = database.query(sql.toString(), null);
-      try {
-        cursor.moveToNext();
-        instance.start = last == -1 ? cursor.getInt(0) : last;
-        instance.end = cursor.getInt(0);
-        last = instance.end;
-        max = Math.max(max, last);
-      } finally {
-        cursor.close();
-      }
+    // replaces any evaluation still running for a previous edit
+    disposables.clear();
+    disposables.add(
+        Single.fromCallable(() -> evaluator.count(steps))
+            .subscribeOn(queryExecutor.getScheduler(PRIORITY_COUNT))
+            .observeOn(AndroidSchedulers.mainThread())
+            .subscribe(this::updateCounts, Timber::e));
+  }
+
+  private void updateCounts(int[] counts) {
+    int max = 0, last = -1;
+    for (int i = 0; i < counts.length && i < adapter.getCount(); i++) {
+      CriterionInstance instance = adapter.getItem(i);
+      instance.start = last == -1 ? counts[i] : last;
+      instance.end = counts[i];
+      last = instance.end;
+      max = Math.max(max, last);
     }
 
     for (int i = 0; i < adapter.getCount(); i++) {
@@ -311,6 +305,13 @@ public class CustomFilterActivity extends ThemedInjectingAppCompatActivity
     adapter.notifyDataSetInvalidated();
   }
 
+  @Override
+  protected void onDestroy() {
+    super.onDestroy();
+
+    disposables.dispose();
+  }
+
   @Override
   public boolean onMenuItemClick(MenuItem item) {
     switch (item.getItemId()) {
@@ -0,0 +1,103 @@
+package com.todoroo.astrid.core;
+
+import android.database.Cursor;
+import androidx.annotation.Nullable;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.astrid.core.CustomFilterActivity.CriterionInstance;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
+import com.todoroo.astrid.data.Task;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Inject;
+
+/**
+ * Counts the tasks matched by each row of a custom filter. Every criterion is queried once for the
+ * ids it matches and kept as a bitset, and the running result is combined in memory, so editing a
+ * row only queries that row. Rows are combined with SQL precedence to match the saved filter.
+ */
+public class CustomFilterEvaluator {
+
+  private final Database database;
+  private final Map<String, BitSet> cache = new HashMap<>();
+
+  @Inject
+  public CustomFilterEvaluator(Database database) {
+    this.database = database;
+  }
+
+  /**
+   * @param steps row type and sub-query for each row, a null sub-query is the active and visible
+   *     universe
+   * @return number of tasks matched after applying each row
+   */
+  public synchronized int[] count(List<Step> steps) {
+    int[] counts = new int[steps.size()];
+    BitSet done = new BitSet();
+    BitSet current = new BitSet();
+    for (int i = 0; i < steps.size(); i++) {
+      Step step = steps.get(i);
+      BitSet matches = getMatches(step.sql);
+      switch (step.type) {
+        case CriterionInstance.TYPE_ADD:
+          done.or(current);
+          current = (BitSet) matches.clone();
+          break;
+        case CriterionInstance.TYPE_SUBTRACT:
+          current.andNot(matches);
+          break;
+        case CriterionInstance.TYPE_INTERSECT:
+          current.and(matches);
+          break;
+        case CriterionInstance.TYPE_UNIVERSE:
+          current = (BitSet) matches.clone();
+          break;
+      }
+      BitSet result = (BitSet) done.clone();
+      result.or(current);
+      counts[i] = result.cardinality();
+    }
+    return counts;
+  }
+
+  private BitSet getMatches(@Nullable String subSql) {
+    String sql =
+        subSql == null
+            ? Query.select(Task.ID)
+                .from(Task.TABLE)
+                .where(TaskCriteria.activeAndVisible())
+                .toString()
+            : Query.select(Task.ID).from(Task.TABLE).toString()
+                + " WHERE "
+                + Task.ID
+                + " IN ("
+                + subSql
+                + ")";
+    BitSet matches = cache.get(sql);
+    if (matches == null) {
+      matches = new BitSet();
+      Cursor cursor = database.query(sql, null);
+      try {
+        while (cursor.moveToNext()) {
+          matches.set((int) cursor.getLong(0));
+        }
+      } finally {
+        cursor.close();
+      }
+      cache.put(sql, matches);
+    }
+    return matches;
+  }
+
+  public static class Step {
+    private final int type;
+    private final String sql;
+
+    public Step(int type, @Nullable String sql) {
+      this.type = type;
+      this.sql = sql;
+    }
+  }
+}
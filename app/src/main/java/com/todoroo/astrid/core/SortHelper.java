@@ -11,7 +11,6 @@ import static org.tasks.db.QueryUtils.showHidden;
 import static org.tasks.db.QueryUtils.showRecentlyCompleted;
 
 import com.todoroo.andlib.sql.Criterion;
-import com.todoroo.andlib.sql.Functions;
 import com.todoroo.andlib.sql.Order;
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.astrid.data.Task;
@@ -30,9 +29,10 @@ public class SortHelper {
   public static final int SORT_DUE = 2;
   public static final int SORT_IMPORTANCE = 3;
   public static final int SORT_MODIFIED = 4;
-  private static final String ADJUSTED_DUE_DATE =
-      "(CASE WHEN (dueDate / 1000) % 60 > 0 THEN dueDate ELSE (dueDate + 43140000) END)";
-  private static final Order ORDER_TITLE = Order.asc(Functions.upper(Task.TITLE));
+  // sort keys are maintained by Task.updateSortKeys() so that these orders can use an index
+  private static final Order ORDER_TITLE = Order.asc(Task.SORT_TITLE);
+  // sort_due never exceeds this for a real due date, importance is packed above it
+  private static final long IMPORTANCE_SCALE = 10000000000000000L;
 
   /** Takes a SQL query, and if there isn't already an order, creates an order. */
   public static String adjustQueryForFlagsAndSort(
@@ -77,32 +77,17 @@ public class SortHelper {
         order = ORDER_TITLE;
         break;
       case SORT_DUE:
-        order =
-            Order.asc(
-                "(CASE WHEN (dueDate=0) THEN (strftime('%s','now')*1000)*2 ELSE "
-                    + ADJUSTED_DUE_DATE
-                    + " END)+importance");
+        order = Order.asc(Task.SORT_DUE);
         break;
       case SORT_IMPORTANCE:
-        order =
-            Order.asc(
-                "importance*(strftime('%s','now')*1000)+(CASE WHEN (dueDate=0) THEN (strftime('%s','now')*1000) ELSE dueDate END)");
+        order = Order.asc(Task.IMPORTANCE);
+        order.addSecondaryExpression(Order.asc(Task.SORT_DUE));
         break;
       case SORT_MODIFIED:
         order = Order.desc(Task.MODIFICATION_DATE);
         break;
       default:
-        order =
-            Order.asc(
-                "(CASE WHEN (dueDate=0) "
-                    + // if no due date
-                    "THEN (strftime('%s','now')*1000)*2 "
-                    + // then now * 2
-                    "ELSE ("
-                    + ADJUSTED_DUE_DATE
-                    + ") END) "
-                    + // else due time
-                    "+ 172800000 * importance"); // add 2 days * importance
+        order = Order.asc(Task.SORT_SMART);
     }
     if (sortType != SORT_ALPHA) {
       order.addSecondaryExpression(ORDER_TITLE);
@@ -119,26 +104,21 @@ public class SortHelper {
         select = "''";
         break;
       case SORT_DUE:
-        select = "(CASE WHEN (tasks.dueDate=0) THEN (strftime('%s','now')*1000)*2 ELSE "
-                   + ADJUSTED_DUE_DATE.replace("dueDate", "tasks.dueDate")
-                   + " END)+tasks.importance AS sort_duedate";
+        select = "tasks.sort_due AS sort_duedate";
         break;
       case SORT_IMPORTANCE:
-        select = "tasks.importance*(strftime('%s','now')*1000)+(CASE WHEN (tasks.dueDate=0) THEN (strftime('%s','now')*1000) ELSE tasks.dueDate END) AS sort_importance";
+        select =
+            "tasks.importance*"
+                + IMPORTANCE_SCALE
+                + "+MIN(tasks.sort_due, "
+                + (IMPORTANCE_SCALE - 1)
+                + ") AS sort_importance";
         break;
       case SORT_MODIFIED:
         select = "tasks.modified AS sort_modified";
         break;
       default:
-        select ="(CASE WHEN (tasks.dueDate=0) "
-                    + // if no due date
-                    "THEN (strftime('%s','now')*1000)*2 "
-                    + // then now * 2
-                    "ELSE ("
-                    + ADJUSTED_DUE_DATE.replace("dueDate", "tasks.dueDate")
-                    + ") END) "
-                    + // else due time
-                    "+ 172800000 * tasks.importance AS sort_smart"; // add 2 days * importance
+        select = "tasks.sort_smart AS sort_smart";
     }
 
     return select;
@@ -14,6 +14,7 @@ import org.tasks.data.CaldavAccount;
 import org.tasks.data.CaldavCalendar;
 import org.tasks.data.CaldavDao;
 import org.tasks.data.CaldavTask;
+import org.tasks.data.CaldavVtodo;
 import org.tasks.data.DeletionDao;
 import org.tasks.data.Filter;
 import org.tasks.data.FilterDao;
@@ -33,6 +34,8 @@ import org.tasks.data.TaskAttachment;
 import org.tasks.data.TaskAttachmentDao;
 import org.tasks.data.TaskListMetadata;
 import org.tasks.data.TaskListMetadataDao;
+import org.tasks.data.TaskSearch;
+import org.tasks.data.Tombstone;
 import org.tasks.data.UserActivity;
 import org.tasks.data.UserActivityDao;
 import org.tasks.notifications.Notification;
@@ -56,9 +59,12 @@ import org.tasks.notifications.NotificationDao;
       CaldavCalendar.class,
       CaldavTask.class,
       CaldavAccount.class,
-      GoogleTaskAccount.class
+      GoogleTaskAccount.class,
+      CaldavVtodo.class,
+      Tombstone.class,
+      TaskSearch.class
     },
-    version = 69)
+    version = 75)
 public abstract class Database extends RoomDatabase {
 
   public static final String NAME = "database";
@@ -14,16 +14,20 @@ import static com.todoroo.andlib.utility.AndroidUtilities.atLeastLollipop;
 import static com.todoroo.andlib.utility.DateUtilities.now;
 import static org.tasks.db.DbUtils.batch;
 
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import androidx.annotation.Nullable;
 import androidx.paging.DataSource;
 import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.Query;
 import androidx.room.RawQuery;
+import androidx.room.RoomWarnings;
 import androidx.room.Transaction;
 import androidx.room.Update;
 import androidx.sqlite.db.SimpleSQLiteQuery;
 import androidx.sqlite.db.SupportSQLiteDatabase;
-import com.google.common.base.Joiner;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.sql.Field;
@@ -32,8 +36,11 @@ import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.api.PermaSql;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.helper.UUIDHelper;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import org.tasks.BuildConfig;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import org.tasks.data.Place;
 import org.tasks.data.TaskContainer;
 import org.tasks.jobs.WorkManager;
@@ -46,6 +53,11 @@ public abstract class TaskDao {
 
   private final Database database;
 
+  private final ThreadLocal<Map<Long, Task>> cache = new ThreadLocal<>();
+  private final AtomicLong cacheHits = new AtomicLong();
+  private final AtomicLong cacheMisses = new AtomicLong();
+  private final ThreadLocal<List<Runnable>> afterCommit = new ThreadLocal<>();
+
   private WorkManager workManager;
 
   public TaskDao(Database database) {
@@ -56,22 +68,151 @@ public abstract class TaskDao {
     this.workManager = workManager;
   }
 
-  public List<Task> needsRefresh() {
-    return needsRefresh(now());
+  /**
+   * Runs {@code runnable} as one unit of work. Everything written on this thread inside it is
+   * committed in a single transaction, and after save work for tasks saved through this dao and
+   * anything passed to {@link #runAfterCommit(Runnable)} is dispatched once the transaction commits. Nothing is dispatched if it rolls back.
+   */
+  public void runInTransaction(Runnable runnable) {
+    if (afterCommit.get() != null) {
+      runnable.run();
+      return;
+    }
+    List<Runnable> pending = new ArrayList<>();
+    afterCommit.set(pending);
+    try {
+      database.runInTransaction(runnable);
+    } finally {
+      afterCommit.remove();
+    }
+    for (Runnable dispatch : pending) {
+      dispatch.run();
+    }
+  }
+
+  private void afterSave(Task task, @Nullable Task original, @Nullable ContentValues changes) {
+    runAfterCommit(() -> workManager.afterSave(task, original, changes));
+  }
+
+  /**
+   * Runs {@code runnable} once the enclosing {@link #runInTransaction(Runnable)} commits, or
+   * immediately when there is none. Use it for side effects outside the database, like scheduling
+   * or broadcasts, that must not observe or outlive a rolled back write.
+   */
+  public void runAfterCommit(Runnable runnable) {
+    List<Runnable> pending = afterCommit.get();
+    if (pending == null) {
+      runnable.run();
+    } else {
+      pending.add(runnable);
+    }
+  }
+
+  public List<Long> getRefreshTimestamps() {
+    return getRefreshTimestamps(now());
   }
 
   @Query(
-      "SELECT * FROM tasks WHERE completed = 0 AND deleted = 0 AND (hideUntil > :now OR dueDate > :now)")
-  abstract List<Task> needsRefresh(long now);
+      "SELECT dueDate FROM tasks WHERE completed = 0 AND deleted = 0 AND dueDate > :now "
+          + "UNION "
+          + "SELECT hideUntil FROM tasks WHERE completed = 0 AND deleted = 0 AND hideUntil > :now")
+  abstract List<Long> getRefreshTimestamps(long now);
+
+  /**
+   * Runs {@code supplier} with a row cache for this thread. Fetches by id inside it read each row
+   * once and writes through this dao keep the cache current. Writes made through other daos are
+   * not seen, so only wrap code that modifies tasks through this dao.
+   */
+  public <T> T cached(Supplier<T> supplier) {
+    if (cache.get() != null) {
+      return supplier.get();
+    }
+    cache.set(new HashMap<>());
+    long hits = cacheHits.get();
+    long misses = cacheMisses.get();
+    try {
+      return supplier.get();
+    } finally {
+      cache.remove();
+      Timber.v(
+          "row cache: %s hits, %s misses", cacheHits.get() - hits, cacheMisses.get() - misses);
+    }
+  }
+
+  public long getCacheHits() {
+    return cacheHits.get();
+  }
+
+  public long getCacheMisses() {
+    return cacheMisses.get();
+  }
+
+  public Task fetch(long id) {
+    Map<Long, Task> rows = cache.get();
+    if (rows == null) {
+      return fetchRow(id);
+    }
+    Task task = rows.get(id);
+    if (task != null) {
+      cacheHits.incrementAndGet();
+      return new Task(task);
+    }
+    cacheMisses.incrementAndGet();
+    task = fetchRow(id);
+    if (task != null) {
+      rows.put(id, new Task(task));
+    }
+    return task;
+  }
+
+  public List<Task> fetch(List<Long> taskIds) {
+    Map<Long, Task> rows = cache.get();
+    if (rows == null) {
+      return fetchRows(taskIds);
+    }
+    List<Task> result = new ArrayList<>();
+    List<Long> missing = new ArrayList<>();
+    for (Long id : taskIds) {
+      Task task = rows.get(id);
+      if (task == null) {
+        missing.add(id);
+      } else {
+        result.add(new Task(task));
+      }
+    }
+    cacheHits.addAndGet(result.size());
+    if (!missing.isEmpty()) {
+      cacheMisses.addAndGet(missing.size());
+      for (Task task : fetchRows(missing)) {
+        rows.put(task.getId(), new Task(task));
+        result.add(task);
+      }
+    }
+    return result;
+  }
 
   @Query("SELECT * FROM tasks WHERE _id = :id LIMIT 1")
-  public abstract Task fetch(long id);
+  abstract Task fetchRow(long id);
 
   @Query("SELECT * FROM tasks WHERE _id IN (:taskIds)")
-  public abstract List<Task> fetch(List<Long> taskIds);
+  abstract List<Task> fetchRows(List<Long> taskIds);
+
+  private void putCached(Task task) {
+    Map<Long, Task> rows = cache.get();
+    if (rows != null) {
+      rows.put(task.getId(), new Task(task));
+    }
+  }
 
-  @Query("SELECT COUNT(1) FROM tasks WHERE timerStart > 0 AND deleted = 0")
-  public abstract int activeTimers();
+  private void clearCached() {
+    Map<Long, Task> rows = cache.get();
+    if (rows != null) {
+      rows.clear();
+    }
+  }
+
+  @Query("SELECT _id FROM tasks WHERE timerStart > 0 AND deleted = 0")
+  public abstract List<Long> activeTimers();
 
   @Query("SELECT tasks.* FROM tasks INNER JOIN notification ON tasks._id = notification.task")
   public abstract List<Task> activeNotifications();
@@ -90,29 +231,99 @@ public abstract class TaskDao {
           + "AND recurrence IS NOT NULL AND LENGTH(recurrence) > 0")
   public abstract List<Task> getRecurringTasks(List<String> remoteIds);
 
+  public void setCompletionDate(String remoteId, long completionDate) {
+    clearCached();
+    setCompletionDateInternal(remoteId, completionDate);
+  }
+
   @Query("UPDATE tasks SET completed = :completionDate " + "WHERE remoteId = :remoteId")
-  public abstract void setCompletionDate(String remoteId, long completionDate);
+  abstract void setCompletionDateInternal(String remoteId, long completionDate);
+
+  /**
+   * Sets the completion date of every given task with one update per batch of ids, and dispatches
+   * after save work for them together instead of once per task
+   */
+  public void setCompletionDate(List<Long> ids, long completionDate) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    clearCached();
+    long modified = now();
+    runInTransaction(
+        () -> batch(ids, b -> setCompletionDateInternal(b, completionDate, modified)));
+    ContentValues changes = new ContentValues();
+    changes.put(Task.COMPLETION_DATE.name, completionDate);
+    changes.put(Task.MODIFICATION_DATE.name, modified);
+    runAfterCommit(() -> workManager.afterSave(ids, changes));
+  }
+
+  @Query(
+      "UPDATE tasks SET completed = :completionDate, modified = :modified WHERE _id IN (:ids)")
+  abstract void setCompletionDateInternal(List<Long> ids, long completionDate, long modified);
+
+  /**
+   * @return ids of every undeleted subtask below {@code id}, at any depth, whose completion state
+   *     differs from {@code completed}
+   */
+  public List<Long> getDescendants(long id, boolean completed) {
+    return atLeastLollipop()
+        ? getDescendantsRecursive(id, completed)
+        : getChildren(id, completed);
+  }
+
+  /** Direct Google Task and CalDAV children, for devices without recursive queries */
+  @Query(
+      "SELECT _id FROM tasks INNER JOIN google_tasks ON _id = gt_task "
+          + "WHERE gt_parent = :id AND gt_deleted = 0 AND deleted = 0 "
+          + "AND (completed > 0) != :completed "
+          + "UNION "
+          + "SELECT _id FROM tasks INNER JOIN caldav_tasks ON _id = cd_task "
+          + "WHERE cd_parent = :id AND cd_deleted = 0 AND deleted = 0 "
+          + "AND (completed > 0) != :completed")
+  abstract List<Long> getChildren(long id, boolean completed);
+
+  @Query(
+      "WITH RECURSIVE "
+          + " parents (child, parent) AS ( "
+          + "  SELECT gt_task, gt_parent FROM google_tasks WHERE gt_deleted = 0 "
+          + "  UNION ALL "
+          + "  SELECT cd_task, cd_parent FROM caldav_tasks WHERE cd_deleted = 0), "
+          + " descendants (id) AS ( "
+          + "  SELECT child FROM parents WHERE parent = :id "
+          + "  UNION "
+          + "  SELECT child FROM parents INNER JOIN descendants ON parent = descendants.id) "
+          + "SELECT _id FROM tasks INNER JOIN descendants ON _id = descendants.id "
+          + "WHERE deleted = 0 AND (completed > 0) != :completed")
+  abstract List<Long> getDescendantsRecursive(long id, boolean completed);
+
+  public void snooze(List<Long> taskIds, long millis) {
+    clearCached();
+    snoozeInternal(taskIds, millis);
+  }
 
   @Query("UPDATE tasks SET snoozeTime = :millis WHERE _id in (:taskIds)")
-  public abstract void snooze(List<Long> taskIds, long millis);
+  abstract void snoozeInternal(List<Long> taskIds, long millis);
 
   @Query(
-      "SELECT tasks.* FROM tasks "
+      "SELECT tasks._id FROM tasks "
           + "LEFT JOIN google_tasks ON tasks._id = google_tasks.gt_task "
           + "WHERE gt_list_id IN (SELECT gtl_remote_id FROM google_task_lists WHERE gtl_account = :account)"
           + "AND (tasks.modified > google_tasks.gt_last_sync OR google_tasks.gt_remote_id = '') "
           + "ORDER BY CASE WHEN gt_parent = 0 THEN 0 ELSE 1 END, gt_order ASC")
-  public abstract List<Task> getGoogleTasksToPush(String account);
+  public abstract List<Long> getGoogleTasksToPush(String account);
 
   @Query(
-      "SELECT tasks.* FROM tasks "
+      "SELECT tasks._id FROM tasks "
           + "LEFT JOIN caldav_tasks ON tasks._id = caldav_tasks.cd_task "
           + "WHERE caldav_tasks.cd_calendar = :calendar "
           + "AND tasks.modified > caldav_tasks.cd_last_sync")
-  public abstract List<Task> getCaldavTasksToPush(String calendar);
+  public abstract List<Long> getCaldavTasksToPush(String calendar);
 
+  /** Only the columns read by {@link com.todoroo.astrid.reminders.ReminderService} are loaded */
+  @SuppressWarnings(RoomWarnings.CURSOR_MISMATCH)
   @Query(
-      "SELECT * FROM TASKS "
+      "SELECT _id, dueDate, created, completed, deleted, notificationFlags, notifications, "
+          + "lastNotified, snoozeTime FROM tasks "
           + "WHERE completed = 0 AND deleted = 0 AND (notificationFlags > 0 OR notifications > 0)")
   public abstract List<Task> getTasksWithReminders();
 
@@ -121,11 +332,19 @@ public abstract class TaskDao {
   @Query("SELECT * FROM tasks")
   public abstract List<Task> getAll();
 
+  @Query("SELECT * FROM tasks WHERE modified > :since")
+  public abstract List<Task> getModifiedSince(long since);
+
   @Query("SELECT calendarUri FROM tasks " + "WHERE calendarUri IS NOT NULL AND calendarUri != ''")
   public abstract List<String> getAllCalendarEvents();
 
+  public int clearAllCalendarEvents() {
+    clearCached();
+    return clearAllCalendarEventsInternal();
+  }
+
   @Query("UPDATE tasks SET calendarUri = '' " + "WHERE calendarUri IS NOT NULL AND calendarUri != ''")
-  public abstract int clearAllCalendarEvents();
+  abstract int clearAllCalendarEventsInternal();
 
   @Query(
       "SELECT calendarUri FROM tasks "
@@ -139,7 +358,6 @@ public abstract class TaskDao {
 
   @Transaction
   public List<TaskContainer> fetchTasks(QueryCallback callback) {
-    long start = BuildConfig.DEBUG ? now() : 0;
     boolean includeGoogleSubtasks = atLeastLollipop() && hasGoogleTaskSubtasks();
     boolean includeCaldavSubtasks = atLeastLollipop() && hasCaldavSubtasks();
     List<String> queries = callback.getQueries(includeGoogleSubtasks, includeCaldavSubtasks);
@@ -148,16 +366,17 @@ public abstract class TaskDao {
     for (int i = 0 ; i < last ; i++) {
       db.execSQL(queries.get(i));
     }
-    List<TaskContainer> result = fetchTasks(new SimpleSQLiteQuery(queries.get(last)));
-    Timber.v("%sms: %s", now() - start, Joiner.on(";").join(queries));
-    return result;
+    return fetchTasks(new SimpleSQLiteQuery(queries.get(last)));
   }
 
   @RawQuery
-  abstract List<TaskContainer> fetchTasks(SimpleSQLiteQuery query);
+  public abstract List<TaskContainer> fetchTasks(SimpleSQLiteQuery query);
 
   @RawQuery
-  abstract int count(SimpleSQLiteQuery query);
+  public abstract List<Long> fetchIds(SimpleSQLiteQuery query);
+
+  @RawQuery
+  public abstract int count(SimpleSQLiteQuery query);
 
   @Query(
       "SELECT EXISTS(SELECT 1 FROM caldav_tasks "
@@ -180,6 +399,7 @@ public abstract class TaskDao {
   }
 
   public void touch(List<Long> ids) {
+    clearCached();
     touchInternal(ids);
     workManager.sync(false);
   }
@@ -187,11 +407,17 @@ public abstract class TaskDao {
   @Query("UPDATE tasks SET modified = strftime('%s','now')*1000 WHERE _id in (:ids)")
   abstract void touchInternal(List<Long> ids);
 
+  public void setCollapsed(long id, boolean collapsed) {
+    clearCached();
+    collapse(id, collapsed);
+  }
+
   @Query("UPDATE tasks SET collapsed = :collapsed WHERE _id = :id")
-  public abstract void setCollapsed(long id, boolean collapsed);
+  abstract void collapse(long id, boolean collapsed);
 
   @Transaction
   public void setCollapsed(List<TaskContainer> tasks, boolean collapsed) {
+    clearCached();
     batch(
         transform(filter(tasks, TaskContainer::hasChildren), TaskContainer::getId),
         l -> collapse(l, collapsed));
@@ -210,16 +436,44 @@ public abstract class TaskDao {
 
   // --- save
 
-  // TODO: get rid of this super-hack
+  /**
+   * Writes the columns that differ from {@code original}, or every column if there is no original
+   */
   public void save(Task task, Task original) {
-    if (!task.insignificantChange(original)) {
+    task.updateSortKeys();
+    if (original == null) {
+      task.setModificationDate(now());
+      if (update(task) == 1) {
+        putCached(task);
+        afterSave(task, null, null);
+      }
+      return;
+    }
+    ContentValues changes = task.getChanges(original);
+    if (Task.isSignificantChange(changes)) {
       task.setModificationDate(now());
+      changes.put(Task.MODIFICATION_DATE.name, task.getModificationDate());
     }
-    if (update(task) == 1) {
-      workManager.afterSave(task, original);
+    if (changes.size() == 0 || update(task.getId(), changes) == 1) {
+      putCached(task);
+      afterSave(task, original, changes);
     }
   }
 
+  private int update(long id, ContentValues values) {
+    return database.runInTransaction(
+        () ->
+            database
+                .getOpenHelper()
+                .getWritableDatabase()
+                .update(
+                    Task.TABLE.name(),
+                    SQLiteDatabase.CONFLICT_NONE,
+                    values,
+                    "_id = ?",
+                    new Object[] {id}));
+  }
+
   @Insert
   abstract long insert(Task task);
 
@@ -234,23 +488,14 @@ public abstract class TaskDao {
     if (Task.isUuidEmpty(task.remoteId)) {
       task.remoteId = UUIDHelper.newUUID();
     }
+    task.updateSortKeys();
     long insert = insert(task);
     task.setId(insert);
+    putCached(task);
   }
 
-  @Query(
-      "SELECT * FROM tasks "
-          + "WHERE completed = 0 AND deleted = 0 AND hideUntil < (strftime('%s','now')*1000) "
-          + "ORDER BY (CASE WHEN (dueDate=0) THEN (strftime('%s','now')*1000)*2 ELSE ((CASE WHEN (dueDate / 1000) % 60 > 0 THEN dueDate ELSE (dueDate + 43140000) END)) END) + 172800000 * importance ASC "
-          + "LIMIT 100")
-  public abstract List<Task> getAstrid2TaskProviderTasks();
-
   public int count(Filter filter) {
-    SimpleSQLiteQuery query = getQuery(filter.sqlQuery, COUNT);
-    long start = BuildConfig.DEBUG ? now() : 0;
-    int count = count(query);
-    Timber.v("%sms: %s", now() - start, query.getSql());
-    return count;
+    return count(getQuery(filter.sqlQuery, COUNT));
   }
 
   public List<Task> fetchFiltered(Filter filter) {
@@ -258,11 +503,7 @@ public abstract class TaskDao {
   }
 
   public List<Task> fetchFiltered(String queryTemplate) {
-    SimpleSQLiteQuery query = getQuery(queryTemplate, Task.FIELDS);
-    long start = BuildConfig.DEBUG ? now() : 0;
-    List<TaskContainer> tasks = fetchTasks(query);
-    Timber.v("%sms: %s", now() - start, query.getSql());
-    return transform(tasks, TaskContainer::getTask);
+    return transform(fetchTasks(getQuery(queryTemplate, Task.FIELDS)), TaskContainer::getTask);
   }
 
   private static SimpleSQLiteQuery getQuery(String queryTemplate, Field... fields) {
@@ -14,13 +14,16 @@ import android.os.Parcel;
 import android.os.Parcelable;
 import android.text.TextUtils;
 import androidx.annotation.IntDef;
+import androidx.annotation.Nullable;
 import androidx.core.os.ParcelCompat;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
 import androidx.room.Index;
 import androidx.room.PrimaryKey;
+import com.google.common.base.Objects;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
 import com.google.ical.values.RRule;
 import com.todoroo.andlib.data.Property.IntegerProperty;
 import com.todoroo.andlib.data.Property.LongProperty;
@@ -31,6 +34,8 @@ import com.todoroo.andlib.utility.DateUtilities;
 import java.lang.annotation.Retention;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Locale;
+import java.util.Set;
 import org.tasks.backup.XmlReader;
 import org.tasks.data.Tag;
 import org.tasks.time.DateTime;
@@ -42,7 +47,18 @@ import timber.log.Timber;
       @Index(name = "t_rid", value = "remoteId", unique = true),
       @Index(
           name = "active_and_visible",
-          value = {"completed", "deleted", "hideUntil"})
+          value = {"completed", "deleted", "hideUntil"}),
+      @Index(name = "t_sort_title", value = "sort_title"),
+      @Index(
+          name = "t_sort_due",
+          value = {"sort_due", "sort_title"}),
+      @Index(
+          name = "t_sort_smart",
+          value = {"sort_smart", "sort_title"}),
+      @Index(
+          name = "t_sort_importance",
+          value = {"importance", "sort_due", "sort_title"}),
+      @Index(name = "t_sort_modified", value = "modified")
     })
 public class Task implements Parcelable {
 
@@ -54,6 +70,41 @@ public class Task implements Parcelable {
 
   public static final long NO_ID = 0;
 
+  private static final Set<String> SIGNIFICANT_COLUMNS =
+      ImmutableSet.of(
+          "title",
+          "importance",
+          "dueDate",
+          "hideUntil",
+          "created",
+          "modified",
+          "completed",
+          "deleted",
+          "notes",
+          "estimatedSeconds",
+          "elapsedSeconds",
+          "notificationFlags",
+          "notifications",
+          "recurrence",
+          "repeatUntil",
+          "calendarUri",
+          "remoteId");
+  private static final Set<String> GOOGLE_TASK_COLUMNS =
+      ImmutableSet.of("title", "dueDate", "completed", "deleted", "notes");
+  private static final Set<String> CALDAV_COLUMNS =
+      ImmutableSet.of(
+          "title",
+          "importance",
+          "dueDate",
+          "completed",
+          "deleted",
+          "notes",
+          "recurrence",
+          "repeatUntil");
+
+  /** Sorts tasks without a due date after every task with one */
+  private static final long NO_DUE_DATE_SORT_KEY = Long.MAX_VALUE / 2;
+
   // --- properties
   public static final LongProperty ID = new LongProperty(TABLE, "_id");
   public static final StringProperty TITLE = new StringProperty(TABLE, "title");
@@ -65,6 +116,9 @@ public class Task implements Parcelable {
   public static final LongProperty DELETION_DATE = new LongProperty(TABLE, "deleted");
   public static final StringProperty NOTES = new StringProperty(TABLE, "notes");
   public static final LongProperty TIMER_START = new LongProperty(TABLE, "timerStart");
+  public static final StringProperty SORT_TITLE = new StringProperty(TABLE, "sort_title");
+  public static final LongProperty SORT_DUE = new LongProperty(TABLE, "sort_due");
+  public static final LongProperty SORT_SMART = new LongProperty(TABLE, "sort_smart");
   /** constant value for no uuid */
   public static final String NO_UUID = "0"; // $NON-NLS-1$
 
@@ -187,6 +241,16 @@ public class Task implements Parcelable {
   @ColumnInfo(name = "collapsed")
   public boolean collapsed;
 
+  // --- sort keys, derived from the fields above by updateSortKeys()
+  @ColumnInfo(name = "sort_title")
+  public transient String sortTitle;
+
+  @ColumnInfo(name = "sort_due")
+  public transient Long sortDue;
+
+  @ColumnInfo(name = "sort_smart")
+  public transient Long sortSmart;
+
   // --- due and hide until date management
   @Ignore private transient HashMap<String, Object> transitoryData = null;
 
@@ -243,6 +307,36 @@ public class Task implements Parcelable {
     collapsed = ParcelCompat.readBoolean(parcel);
   }
 
+  /** Copies the persisted fields, transitory data is not copied */
+  @Ignore
+  public Task(Task task) {
+    calendarUri = task.calendarUri;
+    completed = task.completed;
+    created = task.created;
+    deleted = task.deleted;
+    dueDate = task.dueDate;
+    elapsedSeconds = task.elapsedSeconds;
+    estimatedSeconds = task.estimatedSeconds;
+    hideUntil = task.hideUntil;
+    id = task.id;
+    priority = task.priority;
+    modified = task.modified;
+    notes = task.notes;
+    recurrence = task.recurrence;
+    notificationFlags = task.notificationFlags;
+    lastNotified = task.lastNotified;
+    notifications = task.notifications;
+    snoozeTime = task.snoozeTime;
+    repeatUntil = task.repeatUntil;
+    timerStart = task.timerStart;
+    title = task.title;
+    remoteId = task.remoteId;
+    collapsed = task.collapsed;
+    sortTitle = task.sortTitle;
+    sortDue = task.sortDue;
+    sortSmart = task.sortSmart;
+  }
+
   /**
    * Creates due date for this task. If this due date has no time associated, we move it to the last
    * millisecond of the day.
@@ -719,133 +813,117 @@ public class Task implements Parcelable {
         + '}';
   }
 
-  public boolean insignificantChange(Task task) {
-    if (this == task) {
-      return true;
-    }
-    if (task == null) {
-      return false;
-    }
+  public static String getSortTitle(@Nullable String title) {
+    return title == null ? "" : title.toUpperCase(Locale.ROOT);
+  }
 
-    if (id != null ? !id.equals(task.id) : task.id != null) {
-      return false;
-    }
-    if (title != null ? !title.equals(task.title) : task.title != null) {
-      return false;
-    }
-    if (priority != null ? !priority.equals(task.priority) : task.priority != null) {
-      return false;
-    }
-    if (dueDate != null ? !dueDate.equals(task.dueDate) : task.dueDate != null) {
-      return false;
-    }
-    if (hideUntil != null ? !hideUntil.equals(task.hideUntil) : task.hideUntil != null) {
-      return false;
-    }
-    if (created != null ? !created.equals(task.created) : task.created != null) {
-      return false;
-    }
-    if (modified != null ? !modified.equals(task.modified) : task.modified != null) {
-      return false;
-    }
-    if (completed != null ? !completed.equals(task.completed) : task.completed != null) {
-      return false;
-    }
-    if (deleted != null ? !deleted.equals(task.deleted) : task.deleted != null) {
-      return false;
-    }
-    if (notes != null ? !notes.equals(task.notes) : task.notes != null) {
-      return false;
-    }
-    if (estimatedSeconds != null
-        ? !estimatedSeconds.equals(task.estimatedSeconds)
-        : task.estimatedSeconds != null) {
-      return false;
-    }
-    if (elapsedSeconds != null
-        ? !elapsedSeconds.equals(task.elapsedSeconds)
-        : task.elapsedSeconds != null) {
-      return false;
-    }
-    if (notificationFlags != null
-        ? !notificationFlags.equals(task.notificationFlags)
-        : task.notificationFlags != null) {
-      return false;
-    }
-    if (notifications != null
-        ? !notifications.equals(task.notifications)
-        : task.notifications != null) {
-      return false;
-    }
-    if (recurrence != null ? !recurrence.equals(task.recurrence) : task.recurrence != null) {
-      return false;
-    }
-    if (repeatUntil != null ? !repeatUntil.equals(task.repeatUntil) : task.repeatUntil != null) {
-      return false;
-    }
-    if (calendarUri != null ? !calendarUri.equals(task.calendarUri) : task.calendarUri != null) {
-      return false;
-    }
-    return remoteId != null ? remoteId.equals(task.remoteId) : task.remoteId == null;
+  /** Due date ordering, all day tasks sort as due at 11:59am */
+  public static long getSortDue(long dueDate, int priority) {
+    return getAdjustedDueDate(dueDate) + priority;
   }
 
-  public boolean googleTaskUpToDate(Task original) {
-    if (this == original) {
-      return true;
-    }
-    if (original == null) {
-      return false;
-    }
+  /** Due date ordering, with two days added per priority level */
+  public static long getSortSmart(long dueDate, int priority) {
+    return getAdjustedDueDate(dueDate) + 172800000L * priority;
+  }
 
-    if (title != null ? !title.equals(original.title) : original.title != null) {
-      return false;
-    }
-    if (dueDate != null ? !dueDate.equals(original.dueDate) : original.dueDate != null) {
-      return false;
-    }
-    if (completed != null ? !completed.equals(original.completed) : original.completed != null) {
-      return false;
+  private static long getAdjustedDueDate(long dueDate) {
+    if (dueDate == 0) {
+      return NO_DUE_DATE_SORT_KEY;
     }
-    if (deleted != null ? !deleted.equals(original.deleted) : original.deleted != null) {
-      return false;
-    }
-    return notes != null ? notes.equals(original.notes) : original.notes == null;
+    return (dueDate / 1000) % 60 > 0 ? dueDate : dueDate + 43140000;
   }
 
-  public boolean caldavUpToDate(Task original) {
-    if (this == original) {
-      return true;
-    }
-    if (original == null) {
-      return false;
-    }
+  public void updateSortKeys() {
+    long dueDate = this.dueDate == null ? 0 : this.dueDate;
+    int priority = this.priority == null ? Priority.NONE : this.priority;
+    sortTitle = getSortTitle(title);
+    sortDue = getSortDue(dueDate, priority);
+    sortSmart = getSortSmart(dueDate, priority);
+  }
 
-    if (title != null ? !title.equals(original.title) : original.title != null) {
-      return false;
-    }
-    if (priority != null ? !priority.equals(original.priority) : original.priority != null) {
-      return false;
+  /** @return columns whose values differ from {@code original}, keyed by column name */
+  public ContentValues getChanges(Task original) {
+    ContentValues values = new ContentValues();
+    putIfChanged(values, "title", title, original.title);
+    putIfChanged(values, "importance", priority, original.priority);
+    putIfChanged(values, "dueDate", dueDate, original.dueDate);
+    putIfChanged(values, "hideUntil", hideUntil, original.hideUntil);
+    putIfChanged(values, "created", created, original.created);
+    putIfChanged(values, "modified", modified, original.modified);
+    putIfChanged(values, "completed", completed, original.completed);
+    putIfChanged(values, "deleted", deleted, original.deleted);
+    putIfChanged(values, "notes", notes, original.notes);
+    putIfChanged(values, "estimatedSeconds", estimatedSeconds, original.estimatedSeconds);
+    putIfChanged(values, "elapsedSeconds", elapsedSeconds, original.elapsedSeconds);
+    putIfChanged(values, "timerStart", timerStart, original.timerStart);
+    putIfChanged(values, "notificationFlags", notificationFlags, original.notificationFlags);
+    putIfChanged(values, "notifications", notifications, original.notifications);
+    putIfChanged(values, "lastNotified", lastNotified, original.lastNotified);
+    putIfChanged(values, "snoozeTime", snoozeTime, original.snoozeTime);
+    putIfChanged(values, "recurrence", recurrence, original.recurrence);
+    putIfChanged(values, "repeatUntil", repeatUntil, original.repeatUntil);
+    putIfChanged(values, "calendarUri", calendarUri, original.calendarUri);
+    putIfChanged(values, "remoteId", remoteId, original.remoteId);
+    putIfChanged(values, "collapsed", collapsed, original.collapsed);
+    putIfChanged(values, "sort_title", sortTitle, original.sortTitle);
+    putIfChanged(values, "sort_due", sortDue, original.sortDue);
+    putIfChanged(values, "sort_smart", sortSmart, original.sortSmart);
+    return values;
+  }
+
+  private static void putIfChanged(
+      ContentValues values, String column, @Nullable String value, @Nullable String original) {
+    if (!Objects.equal(value, original)) {
+      values.put(column, value);
     }
-    if (dueDate != null ? !dueDate.equals(original.dueDate) : original.dueDate != null) {
-      return false;
+  }
+
+  private static void putIfChanged(
+      ContentValues values, String column, @Nullable Long value, @Nullable Long original) {
+    if (!Objects.equal(value, original)) {
+      values.put(column, value);
     }
-    if (completed != null ? !completed.equals(original.completed) : original.completed != null) {
-      return false;
+  }
+
+  private static void putIfChanged(
+      ContentValues values, String column, @Nullable Integer value, @Nullable Integer original) {
+    if (!Objects.equal(value, original)) {
+      values.put(column, value);
     }
-    if (deleted != null ? !deleted.equals(original.deleted) : original.deleted != null) {
-      return false;
+  }
+
+  private static void putIfChanged(
+      ContentValues values, String column, boolean value, boolean original) {
+    if (value != original) {
+      values.put(column, value);
     }
-    if (notes != null ? !notes.equals(original.notes) : original.notes != null) {
-      return false;
+  }
+
+  /** @return true unless only timers, reminder state, collapsed state or sort keys changed */
+  public static boolean isSignificantChange(@Nullable ContentValues changes) {
+    return containsAny(changes, SIGNIFICANT_COLUMNS);
+  }
+
+  public static boolean isGoogleTaskChange(@Nullable ContentValues changes) {
+    return containsAny(changes, GOOGLE_TASK_COLUMNS);
+  }
+
+  public static boolean isCaldavChange(@Nullable ContentValues changes) {
+    return containsAny(changes, CALDAV_COLUMNS);
+  }
+
+  /** A null change set is a task without an original, which counts as changing every column */
+  private static boolean containsAny(@Nullable ContentValues changes, Set<String> columns) {
+    if (changes == null) {
+      return true;
     }
-    if (recurrence != null
-        ? !recurrence.equals(original.recurrence)
-        : original.recurrence != null) {
-      return false;
+    for (String column : changes.keySet()) {
+      if (columns.contains(column)) {
+        return true;
+      }
     }
-    return repeatUntil != null
-        ? repeatUntil.equals(original.repeatUntil)
-        : original.repeatUntil == null;
+    return false;
   }
 
   public boolean isSaved() {
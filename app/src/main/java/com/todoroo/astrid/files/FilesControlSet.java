@@ -29,6 +29,7 @@ import android.widget.TextView;
 import androidx.annotation.Nullable;
 import butterknife.BindView;
 import butterknife.OnClick;
+import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Task;
 import java.util.ArrayList;
 import javax.inject.Inject;
@@ -37,6 +38,7 @@ import org.tasks.data.TaskAttachment;
 import org.tasks.data.TaskAttachmentDao;
 import org.tasks.dialogs.DialogBuilder;
 import org.tasks.files.FileHelper;
+import org.tasks.files.ThumbnailCache;
 import org.tasks.injection.ForActivity;
 import org.tasks.injection.FragmentComponent;
 import org.tasks.preferences.Preferences;
@@ -53,6 +55,8 @@ public class FilesControlSet extends TaskEditControlFragment {
   @Inject DialogBuilder dialogBuilder;
   @Inject @ForActivity Context context;
   @Inject Preferences preferences;
+  @Inject ThumbnailCache thumbnailCache;
+  @Inject TaskDao taskDao;
 
   @BindView(R.id.attachment_container)
   LinearLayout attachmentContainer;
@@ -60,6 +64,7 @@ public class FilesControlSet extends TaskEditControlFragment {
   @BindView(R.id.add_attachment)
   TextView addAttachment;
 
+  private long taskId;
   private String taskUuid;
 
   @Nullable
@@ -68,6 +73,7 @@ public class FilesControlSet extends TaskEditControlFragment {
       LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
     View view = super.onCreateView(inflater, container, savedInstanceState);
 
+    taskId = task.getId();
     taskUuid = task.getUuid();
 
     for (TaskAttachment attachment : taskAttachmentDao.getAttachments(taskUuid)) {
@@ -155,7 +161,9 @@ public class FilesControlSet extends TaskEditControlFragment {
                     android.R.string.ok,
                     (dialog, which) -> {
                       taskAttachmentDao.delete(taskAttachment);
+                      taskDao.touch(taskId);
                       FileHelper.delete(context, taskAttachment.parseUri());
+                      thumbnailCache.invalidate(taskAttachment.parseUri());
                       attachmentContainer.removeView(fileRow);
                     })
                 .setNegativeButton(android.R.string.cancel, null)
@@ -180,6 +188,7 @@ public class FilesControlSet extends TaskEditControlFragment {
     TaskAttachment attachment =
         new TaskAttachment(taskUuid, output, FileHelper.getFilename(context, output));
     taskAttachmentDao.createNew(attachment);
+    taskDao.touch(taskId);
     addAttachment(attachment);
   }
 }
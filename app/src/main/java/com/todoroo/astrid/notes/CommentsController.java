@@ -6,8 +6,6 @@
 
 package com.todoroo.astrid.notes;
 
-import static org.tasks.files.ImageHelper.sampleBitmap;
-
 import android.app.Activity;
 import android.graphics.Color;
 import android.net.Uri;
@@ -26,6 +24,7 @@ import org.tasks.R;
 import org.tasks.data.UserActivity;
 import org.tasks.data.UserActivityDao;
 import org.tasks.files.FileHelper;
+import org.tasks.files.ThumbnailCache;
 import org.tasks.preferences.Preferences;
 
 public class CommentsController {
@@ -34,6 +33,7 @@ public class CommentsController {
   private final ArrayList<UserActivity> items = new ArrayList<>();
   private final Activity activity;
   private final Preferences preferences;
+  private final ThumbnailCache thumbnailCache;
 
   private int commentItems = 10;
   private Task task;
@@ -41,25 +41,29 @@ public class CommentsController {
 
   @Inject
   public CommentsController(
-      UserActivityDao userActivityDao, Activity activity, Preferences preferences) {
+      UserActivityDao userActivityDao,
+      Activity activity,
+      Preferences preferences,
+      ThumbnailCache thumbnailCache) {
     this.userActivityDao = userActivityDao;
     this.activity = activity;
     this.preferences = preferences;
+    this.thumbnailCache = thumbnailCache;
   }
 
-  private static void setupImagePopupForCommentView(
+  private void setupImagePopupForCommentView(
       View view, ImageView commentPictureView, final Uri uri, final Activity activity) {
     if (uri != null) {
       commentPictureView.setVisibility(View.VISIBLE);
-      commentPictureView.setImageBitmap(
-          sampleBitmap(
-              activity,
-              uri,
-              commentPictureView.getLayoutParams().width,
-              commentPictureView.getLayoutParams().height));
+      thumbnailCache.load(
+          commentPictureView,
+          uri,
+          commentPictureView.getLayoutParams().width,
+          commentPictureView.getLayoutParams().height);
 
       view.setOnClickListener(v -> FileHelper.startActionView(activity, uri));
     } else {
+      thumbnailCache.cancel(commentPictureView);
       commentPictureView.setVisibility(View.GONE);
     }
   }
@@ -6,24 +6,32 @@
 
 package com.todoroo.astrid.provider;
 
+import static com.todoroo.andlib.sql.Field.field;
+
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
 import androidx.annotation.NonNull;
-import com.google.common.base.Joiner;
-import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
 import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.data.Task.Priority;
 import dagger.Lazy;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import javax.inject.Inject;
 import org.tasks.BuildConfig;
-import org.tasks.data.TagDao;
 import org.tasks.data.TagData;
 import org.tasks.data.TagDataDao;
 import org.tasks.injection.ContentProviderComponent;
@@ -75,14 +83,24 @@ public class Astrid2TaskProvider extends InjectingContentProvider {
 
   private static final String TAG_SEPARATOR = "|";
 
+  private static final String LIMIT = "100";
+
+  private static final Map<String, String> TASK_PROJECTION = new LinkedHashMap<>();
+
   static {
     URI_MATCHER.addURI(AUTHORITY, "tasks", URI_TASKS);
     URI_MATCHER.addURI(AUTHORITY, "tags", URI_TAGS);
+
+    for (String column : TASK_FIELD_LIST) {
+      TASK_PROJECTION.put(column, column);
+    }
   }
 
   @Inject Lazy<TagDataDao> tagDataDao;
-  @Inject Lazy<TaskDao> taskDao;
-  @Inject Lazy<TagDao> tagDao;
+  @Inject Lazy<Database> database;
+
+  private final Map<String, Long> tagIds = new HashMap<>();
+  private String tasksQuery;
 
   public static void notifyDatabaseModification(Context context) {
     try {
@@ -130,7 +148,7 @@ public class Astrid2TaskProvider extends InjectingContentProvider {
 
     for (TagData tag : tags) {
       Object[] values = new Object[2];
-      values[0] = tagNameToLong(tag.getName());
+      values[0] = getTagId(tag.getName());
       values[1] = tag.getName();
 
       ret.addRow(values);
@@ -139,7 +157,16 @@ public class Astrid2TaskProvider extends InjectingContentProvider {
     return ret;
   }
 
-  private long tagNameToLong(String tag) {
+  private synchronized long getTagId(String tag) {
+    Long id = tagIds.get(tag);
+    if (id == null) {
+      id = tagNameToLong(tag);
+      tagIds.put(tag, id);
+    }
+    return id;
+  }
+
+  private static long tagNameToLong(String tag) {
     MessageDigest m;
     try {
       m = MessageDigest.getInstance("MD5");
@@ -165,26 +192,100 @@ public class Astrid2TaskProvider extends InjectingContentProvider {
    *   <li>task tags, string tags separated by |
    * </ol>
    *
+   * <p>Unknown columns in the projection are dropped, so tags are only read when they are requested.
+   * A sort order that names anything but the columns above falls back to the default order. The
+   * provider is readable by any app, so selection is ignored and caller SQL is never added to the
+   * query.
+   *
    * @return cursor as described above
    */
-  private Cursor getTasks() {
-    MatrixCursor ret = new MatrixCursor(TASK_FIELD_LIST);
-    List<Task> tasks = taskDao.get().getAstrid2TaskProviderTasks();
-    for (Task task : tasks) {
-      String taskTags = getTagsAsString(task.getId(), TAG_SEPARATOR);
-
-      Object[] values = new Object[7];
-      values[0] = task.getTitle();
-      values[1] = CheckBoxes.getPriorityColor(getContext(), task.getPriority());
-      values[2] = task.getDueDate();
-      values[3] = task.getDueDate();
-      values[4] = task.getPriority();
-      values[5] = task.getId();
-      values[6] = taskTags;
+  private Cursor getTasks(String[] projection, String sortOrder) {
+    SQLiteQueryBuilder builder = new SQLiteQueryBuilder();
+    builder.setTables("(" + getTasksQuery() + ")");
+    builder.setProjectionMap(TASK_PROJECTION);
+    builder.setStrict(true);
+    String sql =
+        builder.buildQuery(
+            filterProjection(projection), null, null, null, validateSortOrder(sortOrder), LIMIT);
+    return database.get().query(sql, null);
+  }
 
-      ret.addRow(values);
+  /** @return the requested task columns, or all of them in order if none are known */
+  private static String[] filterProjection(String[] projection) {
+    if (projection == null) {
+      return TASK_FIELD_LIST;
     }
-    return ret;
+    List<String> columns = new ArrayList<>();
+    for (String column : projection) {
+      if (TASK_PROJECTION.containsKey(column)) {
+        columns.add(column);
+      } else {
+        Timber.w("Ignoring unknown column: %s", column);
+      }
+    }
+    return columns.isEmpty() ? TASK_FIELD_LIST : columns.toArray(new String[0]);
+  }
+
+  /**
+   * @return sort order if it is a list of task columns, each optionally ASC or DESC, otherwise the
+   *     default order
+   */
+  private static String validateSortOrder(String sortOrder) {
+    String defaultOrder = Task.SORT_SMART.name + " ASC";
+    if (sortOrder == null) {
+      return defaultOrder;
+    }
+    for (String term : sortOrder.split(",")) {
+      String[] parts = term.trim().split("\\s+");
+      if (parts.length > 2
+          || !TASK_PROJECTION.containsKey(parts[0])
+          || (parts.length == 2
+              && !parts[1].equalsIgnoreCase("ASC")
+              && !parts[1].equalsIgnoreCase("DESC"))) {
+        Timber.w("Ignoring invalid sort order: %s", sortOrder);
+        return defaultOrder;
+      }
+    }
+    return sortOrder;
+  }
+
+  /** Built once, the priority colors are resolved into the query */
+  private synchronized String getTasksQuery() {
+    if (tasksQuery == null) {
+      tasksQuery =
+          Query.select(
+                  Task.TITLE.as(NAME),
+                  field(getPriorityColors()).as(IMPORTANCE_COLOR),
+                  Task.DUE_DATE.as(PREFERRED_DUE_DATE),
+                  Task.DUE_DATE.as(DEFINITE_DUE_DATE),
+                  Task.IMPORTANCE.as(IMPORTANCE),
+                  Task.ID.as(IDENTIFIER),
+                  field(
+                          "(SELECT group_concat(name, '"
+                              + TAG_SEPARATOR
+                              + "') FROM (SELECT name FROM tags WHERE tags.task = tasks._id"
+                              + " ORDER BY UPPER(name) ASC))")
+                      .as(TAGS_ID),
+                  Task.SORT_SMART)
+              .from(Task.TABLE)
+              .where(TaskCriteria.activeAndVisible())
+              .toString();
+    }
+    return tasksQuery;
+  }
+
+  private String getPriorityColors() {
+    StringBuilder sb = new StringBuilder("(CASE ").append(Task.IMPORTANCE);
+    for (int priority = Priority.HIGH; priority < Priority.NONE; priority++) {
+      sb.append(" WHEN ")
+          .append(priority)
+          .append(" THEN ")
+          .append(CheckBoxes.getPriorityColor(getContext(), priority));
+    }
+    return sb.append(" ELSE ")
+        .append(CheckBoxes.getPriorityColor(getContext(), Priority.NONE))
+        .append(" END)")
+        .toString();
   }
 
   @Override
@@ -196,7 +297,7 @@ public class Astrid2TaskProvider extends InjectingContentProvider {
       String sortOrder) {
     switch (URI_MATCHER.match(uri)) {
       case URI_TASKS:
-        return getTasks();
+        return getTasks(projection, sortOrder);
       case URI_TAGS:
         return getTags();
       default:
@@ -209,13 +310,4 @@ public class Astrid2TaskProvider extends InjectingContentProvider {
       @NonNull Uri uri, ContentValues values, String selection, String[] selectionArgs) {
     throw new UnsupportedOperationException("not supported");
   }
-
-  /**
-   * Return tags as a list of strings separated by given separator
-   *
-   * @return empty string if no tags, otherwise string
-   */
-  private String getTagsAsString(long taskId, String separator) {
-    return Joiner.on(separator).join(tagDao.get().getTagNames(taskId));
-  }
 }
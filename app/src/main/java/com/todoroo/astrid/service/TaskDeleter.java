@@ -56,6 +56,9 @@ public class TaskDeleter {
   public int purgeDeleted() {
     List<Long> deleted = deletionDao.getDeleted();
     deletionDao.delete(deleted);
+    if (!deleted.isEmpty()) {
+      workManager.maintainDatabase();
+    }
     return deleted.size();
   }
 
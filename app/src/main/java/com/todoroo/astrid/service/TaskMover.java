@@ -124,7 +124,7 @@ public class TaskMover {
         for (int i = 0 ; i < caldavChildren.size() ; i++) {
           CaldavTask child = caldavChildren.get(i);
           GoogleTask newChild = new GoogleTask(child.getTask(), listId);
-          newChild.setOrder(i);
+          newChild.setOrder(i * GoogleTaskDao.ORDER_GAP);
           newChild.setParent(id);
           children.add(newChild);
         }
@@ -143,7 +143,7 @@ public class TaskMover {
       }));
       caldavDao.insert(transform(caldavChildren, child -> {
         CaldavTask newChild = new CaldavTask(child.getTask(), listId, child.getRemoteId(), child.getObject());
-        newChild.setVtodo(child.getVtodo());
+        newChild.setVtodo(caldavDao.getVtodo(child.getId()));
         newChild.setRemoteParent(child.getRemoteParent());
         return newChild;
       }));
@@ -1,7 +1,6 @@
 package com.todoroo.astrid.service;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
-import static com.google.common.collect.Iterables.transform;
 import static com.google.common.collect.Lists.newArrayList;
 import static org.tasks.caldav.CaldavUtils.getParent;
 import static org.tasks.db.DbUtils.batch;
@@ -117,11 +116,12 @@ public class Upgrader {
   private void applyCaldavSubtasks() {
     List<CaldavTask> updated = newArrayList();
 
-    for (CaldavTask task : transform(caldavDao.getTasks(), CaldavTaskContainer::getCaldavTask)) {
-      at.bitfire.ical4android.Task remoteTask = CaldavUtils.fromVtodo(task.getVtodo());
+    for (CaldavTaskContainer container : caldavDao.getTasks()) {
+      at.bitfire.ical4android.Task remoteTask = CaldavUtils.fromVtodo(container.getVtodo());
       if (remoteTask == null) {
         continue;
       }
+      CaldavTask task = container.getCaldavTask();
       task.setRemoteParent(getParent(remoteTask));
       if (!Strings.isNullOrEmpty(task.getRemoteParent())) {
         updated.add(task);
@@ -136,7 +136,7 @@ public class Upgrader {
     List<Long> tasksWithTags = caldavDao.getTasksWithTags();
     for (CaldavTaskContainer container : caldavDao.getTasks()) {
       at.bitfire.ical4android.Task remoteTask =
-          CaldavUtils.fromVtodo(container.caldavTask.getVtodo());
+          CaldavUtils.fromVtodo(container.getVtodo());
       if (remoteTask != null) {
         tagDao.insert(container.task, CaldavUtils.getTags(tagDataDao, remoteTask.getCategories()));
       }
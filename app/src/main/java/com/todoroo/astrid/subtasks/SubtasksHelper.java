@@ -134,7 +134,7 @@ public class SubtasksHelper {
     if (shouldUseSubtasksFragmentForFilter(filter)) {
 
       if (filter instanceof GtasksFilter) {
-        query = GtasksFilter.toManualOrder(query);
+        query = GtasksFilter.toManualOrder(((GtasksFilter) filter).getRemoteId(), query);
       } else {
         TagData tagData = tagDataDao.getTagByName(filter.listingTitle);
         TaskListMetadata tlm = null;
@@ -49,7 +49,7 @@ public final class TimerFilterExposer {
   }
 
   public List<Filter> getFilters() {
-    if (taskDao.activeTimers() == 0) {
+    if (taskDao.activeTimers().isEmpty()) {
       return emptyList();
     }
 
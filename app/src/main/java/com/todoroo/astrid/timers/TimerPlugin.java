@@ -20,20 +20,33 @@ import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.utility.Constants;
 import io.reactivex.Completable;
 import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import org.tasks.R;
 import org.tasks.analytics.Tracker;
 import org.tasks.analytics.Tracking;
+import org.tasks.injection.ApplicationScope;
 import org.tasks.injection.ForApplication;
 import org.tasks.intents.TaskIntents;
 import org.tasks.notifications.NotificationManager;
+import timber.log.Timber;
 
+@ApplicationScope
 public class TimerPlugin {
 
+  private static final long NOTIFICATION_DEBOUNCE_MILLIS = 500;
+
   private final Context context;
   private final NotificationManager notificationManager;
   private final Tracker tracker;
   private final TaskDao taskDao;
+  private final Subject<Boolean> updates = PublishSubject.<Boolean>create().toSerialized();
+  private final Set<Long> timers = new HashSet<>();
+  private boolean loaded;
 
   @Inject
   public TimerPlugin(
@@ -45,6 +58,11 @@ public class TimerPlugin {
     this.notificationManager = notificationManager;
     this.tracker = tracker;
     this.taskDao = taskDao;
+
+    //noinspection ResultOfMethodCallIgnored
+    updates
+        .debounce(NOTIFICATION_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS, Schedulers.io())
+        .subscribe(ignored -> showNotification(), Timber::e);
   }
 
   public void startTimer(Task task) {
@@ -81,14 +99,40 @@ public class TimerPlugin {
     Completable.fromAction(
             () -> {
               taskDao.save(task);
-              updateNotifications();
+              synchronized (this) {
+                if (loaded) {
+                  if (start) {
+                    timers.add(task.getId());
+                  } else {
+                    timers.remove(task.getId());
+                  }
+                }
+              }
+              updates.onNext(true);
             })
         .subscribeOn(Schedulers.io())
         .subscribe();
   }
 
+  /** Reloads running timers, call this after timers were changed without this class */
   public void updateNotifications() {
-    int count = taskDao.activeTimers();
+    synchronized (this) {
+      loaded = false;
+    }
+    updates.onNext(true);
+  }
+
+  private synchronized int getActiveTimers() {
+    if (!loaded) {
+      timers.clear();
+      timers.addAll(taskDao.activeTimers());
+      loaded = true;
+    }
+    return timers.size();
+  }
+
+  private void showNotification() {
+    int count = getActiveTimers();
     if (count == 0) {
       notificationManager.cancel(Constants.NOTIFICATION_TIMER);
     } else {
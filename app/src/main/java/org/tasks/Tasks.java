@@ -1,5 +1,7 @@
 package org.tasks;
 
+import static org.tasks.time.DateTimeUtils.currentTimeMillis;
+
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
@@ -42,6 +44,7 @@ public class Tasks extends InjectingApplication {
 
   @Override
   public void onCreate() {
+    long start = currentTimeMillis();
     super.onCreate();
 
     if (!buildSetup.setup() || ProcessPhoenix.isPhoenixProcess(this)) {
@@ -61,6 +64,8 @@ public class Tasks extends InjectingApplication {
     localBroadcastManager.registerRefreshReceiver(new RefreshBroadcastReceiver());
 
     Completable.fromAction(this::doInBackground).subscribeOn(Schedulers.io()).subscribe();
+
+    Timber.d("onCreate took %sms", currentTimeMillis() - start);
   }
 
   private void upgrade() {
@@ -83,6 +88,7 @@ public class Tasks extends InjectingApplication {
     workManager.updateBackgroundSync();
     workManager.scheduleMidnightRefresh();
     workManager.scheduleBackup();
+    workManager.scheduleDatabaseMaintenance();
     geofenceApi.registerAll();
     FileHelper.delete(context, preferences.getCacheDirectory());
     billingClient.queryPurchases();
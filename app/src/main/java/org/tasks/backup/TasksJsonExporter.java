@@ -1,5 +1,6 @@
 package org.tasks.backup;
 
+import static com.todoroo.andlib.utility.DateUtilities.now;
 import static org.tasks.date.DateTimeUtils.newDateTime;
 
 import android.app.Activity;
@@ -9,9 +10,11 @@ import android.net.Uri;
 import android.os.Handler;
 import android.widget.Toast;
 import androidx.annotation.Nullable;
+import com.google.common.io.BaseEncoding;
 import com.google.common.io.Files;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 import com.todoroo.andlib.utility.DialogUtilities;
 import com.todoroo.astrid.backup.BackupConstants;
 import com.todoroo.astrid.dao.TaskDao;
@@ -20,15 +23,21 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 import javax.inject.Inject;
 import org.tasks.BuildConfig;
 import org.tasks.R;
 import org.tasks.data.AlarmDao;
 import org.tasks.data.CaldavDao;
+import org.tasks.data.DeletionDao;
 import org.tasks.data.FilterDao;
 import org.tasks.data.GoogleTaskDao;
 import org.tasks.data.GoogleTaskListDao;
@@ -47,7 +56,13 @@ public class TasksJsonExporter {
 
   static final Charset UTF_8 = Charset.forName("UTF-8");
   private static final String MIME = "application/json";
+  private static final String MIME_GZIP = "application/gzip";
   private static final String EXTENSION = ".json";
+  private static final String EXTENSION_GZIP = ".json.gz";
+  // bookkeeping for this device's backup schedule, not user settings
+  private static final int[] EXCLUDED_PREFS = {
+    R.string.p_last_backup, R.string.p_backup_last_full, R.string.p_backup_last_incremental
+  };
 
   // --- public interface
   private final TagDataDao tagDataDao;
@@ -61,6 +76,7 @@ public class TasksJsonExporter {
   private final GoogleTaskListDao googleTaskListDao;
   private final TaskAttachmentDao taskAttachmentDao;
   private final CaldavDao caldavDao;
+  private final DeletionDao deletionDao;
   private final WorkManager workManager;
   private final TaskDao taskDao;
   private final UserActivityDao userActivityDao;
@@ -85,6 +101,7 @@ public class TasksJsonExporter {
       GoogleTaskListDao googleTaskListDao,
       TaskAttachmentDao taskAttachmentDao,
       CaldavDao caldavDao,
+      DeletionDao deletionDao,
       WorkManager workManager,
       DriveInvoker driveInvoker) {
     this.tagDataDao = tagDataDao;
@@ -99,6 +116,7 @@ public class TasksJsonExporter {
     this.googleTaskListDao = googleTaskListDao;
     this.taskAttachmentDao = taskAttachmentDao;
     this.caldavDao = caldavDao;
+    this.deletionDao = deletionDao;
     this.workManager = workManager;
   }
 
@@ -139,18 +157,38 @@ public class TasksJsonExporter {
 
   private void runBackup(ExportType exportType) {
     try {
-      String filename = getFileName(exportType);
-      List<Task> tasks = taskDao.getAll();
+      long started = now();
+      long since = getIncrementalStart(exportType, started);
+      boolean incremental = since > 0;
+      String filename = incremental ? getIncrementalFileName() : getFileName(exportType);
+      List<Task> tasks = incremental ? taskDao.getModifiedSince(since) : taskDao.getAll();
+      List<String> deleted =
+          incremental ? deletionDao.getTombstones(since) : Collections.emptyList();
 
-      if (tasks.size() > 0) {
+      if (tasks.size() > 0 || deleted.size() > 0) {
+        boolean compress = preferences.getBoolean(R.string.p_backups_compressed, false);
         String basename = Files.getNameWithoutExtension(filename);
         Uri uri =
             FileHelper.newFile(
-                context, preferences.getBackupDirectory(), MIME, basename, EXTENSION);
+                context,
+                preferences.getBackupDirectory(),
+                compress ? MIME_GZIP : MIME,
+                basename,
+                compress ? EXTENSION_GZIP : EXTENSION);
         OutputStream os = context.getContentResolver().openOutputStream(uri);
-        doTasksExport(os, tasks);
-        os.close();
-        workManager.scheduleDriveUpload(uri, exportType == ExportType.EXPORT_TYPE_SERVICE);
+        if (compress) {
+          os = new GZIPOutputStream(os);
+        }
+        String hash = doTasksExport(os, tasks, incremental ? since : null, deleted);
+        workManager.scheduleDriveUpload(
+            uri, exportType == ExportType.EXPORT_TYPE_SERVICE, hash);
+        if (exportType == ExportType.EXPORT_TYPE_SERVICE) {
+          if (!incremental) {
+            preferences.setLong(R.string.p_backup_last_full, started);
+            deletionDao.purgeTombstones(started);
+          }
+          preferences.setLong(R.string.p_backup_last_incremental, started);
+        }
       }
 
       if (exportType == ExportType.EXPORT_TYPE_MANUAL) {
@@ -170,7 +208,30 @@ public class TasksJsonExporter {
     }
   }
 
-  private void doTasksExport(OutputStream os, List<Task> tasks) throws IOException {
+  /**
+   * @return start of the change window for an incremental backup, or 0 if a full backup should be
+   *     written. Deltas chain back to a full backup that is at most a week old.
+   */
+  private long getIncrementalStart(ExportType exportType, long now) {
+    if (exportType != ExportType.EXPORT_TYPE_SERVICE
+        || !preferences.getBoolean(R.string.p_backups_incremental, false)) {
+      return 0;
+    }
+    long lastFull = preferences.getLong(R.string.p_backup_last_full, 0);
+    if (lastFull == 0 || now - lastFull >= TimeUnit.DAYS.toMillis(7)) {
+      return 0;
+    }
+    return preferences.getLong(R.string.p_backup_last_incremental, 0);
+  }
+
+  /**
+   * Streams the backup to {@code os} and closes it
+   *
+   * @return hash of the backup contents, excluding the timestamp
+   */
+  private String doTasksExport(
+      OutputStream os, List<Task> tasks, @Nullable Long since, List<String> deleted)
+      throws IOException {
 
     List<BackupContainer.TaskBackup> taskBackups = new ArrayList<>();
 
@@ -186,14 +247,10 @@ public class TasksJsonExporter {
               googleTaskDao.getAllByTaskId(taskId),
               userActivityDao.getCommentsForTask(task.getUuid()),
               taskAttachmentDao.getAttachments(task.getUuid()),
-              caldavDao.getTasks(taskId)));
+              caldavDao.getTasksWithVtodo(taskId)));
     }
 
-    Map<String, Object> data = new HashMap<>();
-    data.put("version", BuildConfig.VERSION_CODE);
-    data.put("timestamp", System.currentTimeMillis());
-    data.put(
-        "data",
+    BackupContainer container =
         new BackupContainer(
             taskBackups,
             locationDao.getPlaces(),
@@ -204,15 +261,45 @@ public class TasksJsonExporter {
             caldavDao.getAccounts(),
             caldavDao.getCalendars(),
             preferences.getPrefs(Integer.class),
-            preferences.getPrefs(Long.class),
+            getLongPrefs(),
             preferences.getPrefs(String.class),
-            preferences.getPrefs(Boolean.class)));
+            preferences.getPrefs(Boolean.class));
 
-    OutputStreamWriter out = new OutputStreamWriter(os, UTF_8);
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    DigestOutputStream digestStream = new DigestOutputStream(os, digest);
     Gson gson = BuildConfig.DEBUG ? new GsonBuilder().setPrettyPrinting().create() : new Gson();
-    out.write(gson.toJson(data));
-    out.close();
+    JsonWriter writer = gson.newJsonWriter(new OutputStreamWriter(digestStream, UTF_8));
+    writer.beginObject();
+    writer.name("version").value(BuildConfig.VERSION_CODE);
+    writer.flush();
+    digestStream.on(false);
+    writer.name("timestamp").value(System.currentTimeMillis());
+    writer.flush();
+    digestStream.on(true);
+    if (since != null) {
+      writer.name("since").value(since);
+      writer.name("deleted");
+      gson.toJson(deleted, List.class, writer);
+    }
+    writer.name("data");
+    gson.toJson(container, BackupContainer.class, writer);
+    writer.endObject();
+    writer.close();
     exportCount = taskBackups.size();
+    return BaseEncoding.base16().lowerCase().encode(digest.digest());
+  }
+
+  private Map<String, Long> getLongPrefs() {
+    Map<String, Long> prefs = preferences.getPrefs(Long.class);
+    for (int key : EXCLUDED_PREFS) {
+      prefs.remove(context.getString(key));
+    }
+    return prefs;
   }
 
   private void onFinishExport(final String outputFile) {
@@ -235,6 +322,10 @@ public class TasksJsonExporter {
         });
   }
 
+  private String getIncrementalFileName() {
+    return String.format(BackupConstants.BACKUP_DELTA_FILE_NAME, getDateForExport());
+  }
+
   private String getFileName(ExportType type) {
     switch (type) {
       case EXPORT_TYPE_SERVICE:
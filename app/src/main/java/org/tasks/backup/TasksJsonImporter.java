@@ -2,25 +2,37 @@ package org.tasks.backup;
 
 import static com.todoroo.astrid.dao.TaskDao.TRANS_SUPPRESS_REFRESH;
 import static com.todoroo.astrid.data.SyncFlags.GTASKS_SUPPRESS_SYNC;
+import static java.util.Collections.singletonList;
 import static org.tasks.backup.TasksJsonExporter.UTF_8;
 import static org.tasks.data.Place.newPlace;
 
 import android.app.Activity;
 import android.app.ProgressDialog;
+import android.content.ContentResolver;
+import android.content.Context;
 import android.content.res.Resources;
 import android.net.Uri;
 import android.os.Handler;
+import androidx.documentfile.provider.DocumentFile;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.todoroo.andlib.utility.DialogUtilities;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Task;
+import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
 import javax.inject.Inject;
 import org.tasks.LocalBroadcastManager;
 import org.tasks.R;
@@ -30,6 +42,7 @@ import org.tasks.data.CaldavAccount;
 import org.tasks.data.CaldavCalendar;
 import org.tasks.data.CaldavDao;
 import org.tasks.data.CaldavTask;
+import org.tasks.data.DeletionDao;
 import org.tasks.data.Filter;
 import org.tasks.data.FilterDao;
 import org.tasks.data.Geofence;
@@ -49,11 +62,16 @@ import org.tasks.data.TaskAttachmentDao;
 import org.tasks.data.UserActivity;
 import org.tasks.data.UserActivityDao;
 import org.tasks.dialogs.DialogBuilder;
+import org.tasks.files.FileHelper;
+import org.tasks.jobs.BackupWork;
 import org.tasks.preferences.Preferences;
 import timber.log.Timber;
 
 public class TasksJsonImporter {
 
+  private static final String FULL_SUFFIX = ".0";
+  private static final String DELTA_SUFFIX = ".1";
+
   private final TagDataDao tagDataDao;
   private final UserActivityDao userActivityDao;
   private final DialogBuilder dialogBuilder;
@@ -66,16 +84,17 @@ public class TasksJsonImporter {
   private final FilterDao filterDao;
   private final TaskAttachmentDao taskAttachmentDao;
   private final CaldavDao caldavDao;
+  private final DeletionDao deletionDao;
   private final Preferences preferences;
   private final LocationDao locationDao;
 
-  private Activity activity;
+  private final Set<String> restored = new HashSet<>();
+  private Context context;
   private Handler handler;
   private int taskCount;
   private int importCount = 0;
   private int skipCount = 0;
   private ProgressDialog progressDialog;
-  private Uri input;
 
   @Inject
   public TasksJsonImporter(
@@ -92,6 +111,7 @@ public class TasksJsonImporter {
       FilterDao filterDao,
       TaskAttachmentDao taskAttachmentDao,
       CaldavDao caldavDao,
+      DeletionDao deletionDao,
       Preferences preferences) {
     this.tagDataDao = tagDataDao;
     this.userActivityDao = userActivityDao;
@@ -106,173 +126,302 @@ public class TasksJsonImporter {
     this.filterDao = filterDao;
     this.taskAttachmentDao = taskAttachmentDao;
     this.caldavDao = caldavDao;
+    this.deletionDao = deletionDao;
     this.preferences = preferences;
   }
 
   private void setProgressMessage(final String message) {
-    handler.post(() -> progressDialog.setMessage(message));
+    if (progressDialog != null) {
+      handler.post(() -> progressDialog.setMessage(message));
+    }
   }
 
   public void importTasks(Activity activity, Uri input, ProgressDialog progressDialog) {
-    this.activity = activity;
-    this.input = input;
     this.progressDialog = progressDialog;
 
     handler = new Handler();
 
-    new Thread(this::performImport).start();
+    new Thread(() -> performImport(activity, input)).start();
+  }
+
+  private void performImport(Activity activity, Uri input) {
+    boolean missingFullBackup = false;
+    try {
+      importChain(activity, input);
+    } catch (MissingFullBackupException e) {
+      Timber.e(e);
+      missingFullBackup = true;
+    } catch (IOException e) {
+      Timber.e(e);
+    } finally {
+      localBroadcastManager.broadcastRefresh();
+      boolean failed = missingFullBackup;
+      handler.post(
+          () -> {
+            if (progressDialog.isShowing()) {
+              DialogUtilities.dismissDialog(activity, progressDialog);
+              if (failed) {
+                showMissingFullBackup();
+              } else {
+                showSummary(activity);
+              }
+            }
+          });
+    }
+  }
+
+  /**
+   * Imports a backup, replaying an incremental backup on top of the backups it depends on. Tasks
+   * that already exist are left alone, incremental backups only update or delete tasks that were
+   * restored by an earlier file in the same chain.
+   *
+   * @throws MissingFullBackupException if an incremental backup can't be traced back to a full
+   *     backup, nothing is imported
+   */
+  void importChain(Context context, Uri input) throws IOException {
+    this.context = context;
+    restored.clear();
+    taskCount = 0;
+    importCount = 0;
+    skipCount = 0;
+    for (Uri uri : getChain(input)) {
+      importFile(uri);
+    }
   }
 
-  private void performImport() {
+  /**
+   * Incremental backups only contain changes, so they are replayed on top of the full backup
+   * they were chained to and every incremental backup in between
+   */
+  private List<Uri> getChain(Uri selected) throws MissingFullBackupException {
+    String filename = FileHelper.getFilename(context, selected);
+    Uri directory = preferences.getBackupDirectory();
+    if (!BackupWork.isDelta(filename) || directory == null) {
+      return singletonList(selected);
+    }
+    TreeMap<String, Uri> backups = new TreeMap<>();
+    switch (directory.getScheme()) {
+      case ContentResolver.SCHEME_CONTENT:
+        DocumentFile dir = DocumentFile.fromTreeUri(context, directory);
+        for (DocumentFile file : dir.listFiles()) {
+          String name = file.getName();
+          if (name != null && name.matches(BackupWork.BACKUP_FILE_NAME_REGEX)) {
+            backups.put(getSortKey(name), file.getUri());
+          }
+        }
+        break;
+      case ContentResolver.SCHEME_FILE:
+        File[] files = new File(directory.getPath()).listFiles();
+        if (files != null) {
+          for (File file : files) {
+            if (file.getName().matches(BackupWork.BACKUP_FILE_NAME_REGEX)) {
+              backups.put(getSortKey(file.getName()), Uri.fromFile(file));
+            }
+          }
+        }
+        break;
+    }
+    if (!backups.containsKey(getSortKey(filename))) {
+      throw new MissingFullBackupException(filename);
+    }
+    List<Uri> chain = new ArrayList<>();
+    for (Entry<String, Uri> entry :
+        backups.headMap(getSortKey(filename), true).descendingMap().entrySet()) {
+      chain.add(0, entry.getValue());
+      if (!entry.getKey().endsWith(DELTA_SUFFIX)) {
+        return chain;
+      }
+    }
+    throw new MissingFullBackupException(filename);
+  }
+
+  private static String getSortKey(String filename) {
+    if (filename.endsWith(".gz")) {
+      filename = filename.substring(0, filename.length() - 3);
+    }
+    return BackupWork.isDelta(filename)
+        ? filename.replace(".delta.json", DELTA_SUFFIX)
+        : filename.replace(".json", FULL_SUFFIX);
+  }
+
+  /** Compressed backups are detected by their gzip header rather than the file extension */
+  static InputStream decompress(InputStream is) throws IOException {
+    BufferedInputStream buffered = new BufferedInputStream(is);
+    buffered.mark(2);
+    int magic = buffered.read() | (buffered.read() << 8);
+    buffered.reset();
+    return magic == GZIPInputStream.GZIP_MAGIC ? new GZIPInputStream(buffered) : buffered;
+  }
+
+  private void importFile(Uri uri) throws IOException {
     Gson gson = new Gson();
     InputStream is;
     try {
-      is = activity.getContentResolver().openInputStream(this.input);
+      is = decompress(context.getContentResolver().openInputStream(uri));
     } catch (FileNotFoundException e) {
       throw new IllegalStateException(e);
     }
     InputStreamReader reader = new InputStreamReader(is, UTF_8);
     JsonObject input = gson.fromJson(reader, JsonObject.class);
 
-    try {
-      JsonElement data = input.get("data");
-      int version = input.get("version").getAsInt();
-      BackupContainer backupContainer = gson.fromJson(data, BackupContainer.class);
-      for (TagData tagData : backupContainer.getTags()) {
-        if (tagDataDao.getByUuid(tagData.getRemoteId()) == null) {
-          tagDataDao.createNew(tagData);
-        }
+    JsonElement data = input.get("data");
+    int version = input.get("version").getAsInt();
+    boolean incremental = input.has("since");
+    BackupContainer backupContainer = gson.fromJson(data, BackupContainer.class);
+    for (TagData tagData : backupContainer.getTags()) {
+      if (tagDataDao.getByUuid(tagData.getRemoteId()) == null) {
+        tagDataDao.createNew(tagData);
       }
-      for (GoogleTaskAccount googleTaskAccount : backupContainer.getGoogleTaskAccounts()) {
-        if (googleTaskListDao.getAccount(googleTaskAccount.getAccount()) == null) {
-          googleTaskListDao.insert(googleTaskAccount);
-        }
+    }
+    for (GoogleTaskAccount googleTaskAccount : backupContainer.getGoogleTaskAccounts()) {
+      if (googleTaskListDao.getAccount(googleTaskAccount.getAccount()) == null) {
+        googleTaskListDao.insert(googleTaskAccount);
       }
-      for (Place place : backupContainer.getPlaces()) {
-        if (locationDao.getByUid(place.getUid()) == null) {
-          locationDao.insert(place);
-        }
+    }
+    for (Place place : backupContainer.getPlaces()) {
+      if (locationDao.getByUid(place.getUid()) == null) {
+        locationDao.insert(place);
       }
-      for (GoogleTaskList googleTaskList : backupContainer.getGoogleTaskLists()) {
-        if (googleTaskListDao.getByRemoteId(googleTaskList.getRemoteId()) == null) {
-          googleTaskListDao.insert(googleTaskList);
-        }
+    }
+    for (GoogleTaskList googleTaskList : backupContainer.getGoogleTaskLists()) {
+      if (googleTaskListDao.getByRemoteId(googleTaskList.getRemoteId()) == null) {
+        googleTaskListDao.insert(googleTaskList);
       }
-      for (Filter filter : backupContainer.getFilters()) {
-        if (filterDao.getByName(filter.getTitle()) == null) {
-          filterDao.insert(filter);
-        }
+    }
+    for (Filter filter : backupContainer.getFilters()) {
+      if (filterDao.getByName(filter.getTitle()) == null) {
+        filterDao.insert(filter);
       }
-      for (CaldavAccount account : backupContainer.getCaldavAccounts()) {
-        if (caldavDao.getAccountByUuid(account.getUuid()) == null) {
-          caldavDao.insert(account);
-        }
+    }
+    for (CaldavAccount account : backupContainer.getCaldavAccounts()) {
+      if (caldavDao.getAccountByUuid(account.getUuid()) == null) {
+        caldavDao.insert(account);
       }
-      for (CaldavCalendar calendar : backupContainer.getCaldavCalendars()) {
-        if (caldavDao.getCalendarByUuid(calendar.getUuid()) == null) {
-          caldavDao.insert(calendar);
-        }
+    }
+    for (CaldavCalendar calendar : backupContainer.getCaldavCalendars()) {
+      if (caldavDao.getCalendarByUuid(calendar.getUuid()) == null) {
+        caldavDao.insert(calendar);
       }
-      for (BackupContainer.TaskBackup backup : backupContainer.getTasks()) {
-        taskCount++;
-        setProgressMessage(activity.getString(R.string.import_progress_read, taskCount));
-        Task task = backup.task;
-        if (taskDao.fetch(task.getUuid()) != null) {
-          skipCount++;
-          continue;
-        }
-        task.putTransitory(TRANS_SUPPRESS_REFRESH, true);
-        task.putTransitory(GTASKS_SUPPRESS_SYNC, true);
+    }
+    for (BackupContainer.TaskBackup backup : backupContainer.getTasks()) {
+      taskCount++;
+      setProgressMessage(context.getString(R.string.import_progress_read, taskCount));
+      Task task = backup.task;
+      Task existing = taskDao.fetch(task.getUuid());
+      task.putTransitory(TRANS_SUPPRESS_REFRESH, true);
+      task.putTransitory(GTASKS_SUPPRESS_SYNC, true);
+      if (existing == null) {
         taskDao.createNew(task);
-        long taskId = task.getId();
-        String taskUuid = task.getUuid();
-        for (Alarm alarm : backup.alarms) {
-          alarm.setTask(taskId);
-          alarmDao.insert(alarm);
-        }
-        for (UserActivity comment : backup.comments) {
-          comment.setTargetId(taskUuid);
-          if (version < 546) {
-            comment.convertPictureUri();
-          }
-          userActivityDao.createNew(comment);
-        }
-        for (GoogleTask googleTask : backup.google) {
-          googleTask.setTask(taskId);
-          googleTaskDao.insert(googleTask);
-        }
-        for (LegacyLocation location : backup.locations) {
-          Place place = newPlace();
-          place.setLongitude(location.longitude);
-          place.setLatitude(location.latitude);
-          place.setName(location.name);
-          place.setAddress(location.address);
-          place.setUrl(location.url);
-          place.setPhone(location.phone);
-          locationDao.insert(place);
-          Geofence geofence = new Geofence();
-          geofence.setTask(taskId);
-          geofence.setPlace(place.getUid());
-          geofence.setRadius(location.radius);
-          geofence.setArrival(location.arrival);
-          geofence.setDeparture(location.departure);
-          locationDao.insert(geofence);
-        }
-        for (Tag tag : backup.tags) {
-          tag.setTask(taskId);
-          tag.setTaskUid(taskUuid);
-          tagDao.insert(tag);
+        restored.add(task.getUuid());
+        importCount++;
+      } else if (incremental && restored.contains(task.getUuid())) {
+        // relations were restored from an earlier file in this chain, replace them with the newer
+        // copy. Tasks that were already on the device are never touched, same as a full import
+        deletionDao.deleteRelations(existing.getId(), existing.getUuid());
+        task.setId(existing.getId());
+        taskDao.save(task, existing);
+      } else {
+        skipCount++;
+        continue;
+      }
+      long taskId = task.getId();
+      String taskUuid = task.getUuid();
+      for (Alarm alarm : backup.alarms) {
+        alarm.setTask(taskId);
+        alarmDao.insert(alarm);
+      }
+      for (UserActivity comment : backup.comments) {
+        comment.setTargetId(taskUuid);
+        if (version < 546) {
+          comment.convertPictureUri();
         }
-        for (Geofence geofence : backup.getGeofences()) {
-          geofence.setTask(taskId);
-          locationDao.insert(geofence);
+        userActivityDao.createNew(comment);
+      }
+      for (GoogleTask googleTask : backup.google) {
+        googleTask.setTask(taskId);
+        googleTaskDao.insert(googleTask);
+      }
+      for (LegacyLocation location : backup.locations) {
+        Place place = newPlace();
+        place.setLongitude(location.longitude);
+        place.setLatitude(location.latitude);
+        place.setName(location.name);
+        place.setAddress(location.address);
+        place.setUrl(location.url);
+        place.setPhone(location.phone);
+        locationDao.insert(place);
+        Geofence geofence = new Geofence();
+        geofence.setTask(taskId);
+        geofence.setPlace(place.getUid());
+        geofence.setRadius(location.radius);
+        geofence.setArrival(location.arrival);
+        geofence.setDeparture(location.departure);
+        locationDao.insert(geofence);
+      }
+      for (Tag tag : backup.tags) {
+        tag.setTask(taskId);
+        tag.setTaskUid(taskUuid);
+        tagDao.insert(tag);
+      }
+      for (Geofence geofence : backup.getGeofences()) {
+        geofence.setTask(taskId);
+        locationDao.insert(geofence);
+      }
+      for (TaskAttachment attachment : backup.getAttachments()) {
+        attachment.setTaskId(taskUuid);
+        if (version < 546) {
+          attachment.convertPathUri();
         }
-        for (TaskAttachment attachment : backup.getAttachments()) {
-          attachment.setTaskId(taskUuid);
-          if (version < 546) {
-            attachment.convertPathUri();
-          }
-          taskAttachmentDao.insert(attachment);
+        taskAttachmentDao.insert(attachment);
+      }
+      for (CaldavTask caldavTask : backup.getCaldavTasks()) {
+        caldavTask.setTask(taskId);
+        caldavDao.insert(caldavTask);
+      }
+    }
+
+    if (incremental && input.has("deleted")) {
+      for (JsonElement element : input.getAsJsonArray("deleted")) {
+        String uuid = element.getAsString();
+        if (!restored.remove(uuid)) {
+          continue;
         }
-        for (CaldavTask caldavTask : backup.getCaldavTasks()) {
-          caldavTask.setTask(taskId);
-          caldavDao.insert(caldavTask);
+        Task task = taskDao.fetch(uuid);
+        if (task != null) {
+          deletionDao.delete(singletonList(task.getId()));
+          importCount--;
         }
-        importCount++;
       }
+    }
 
-      googleTaskDao.updateParents();
-      caldavDao.updateParents();
+    googleTaskDao.updateParents();
+    caldavDao.updateParents();
 
-      for (Entry<String, Integer> entry : backupContainer.getIntPrefs().entrySet()) {
-        preferences.setInt(entry.getKey(), entry.getValue());
-      }
-      for (Entry<String, Long> entry : backupContainer.getLongPrefs().entrySet()) {
-        preferences.setLong(entry.getKey(), entry.getValue());
-      }
-      for (Entry<String, String> entry : backupContainer.getStringPrefs().entrySet()) {
-        preferences.setString(entry.getKey(), entry.getValue());
-      }
-      for (Entry<String, Boolean> entry : backupContainer.getBoolPrefs().entrySet()) {
-        preferences.setBoolean(entry.getKey(), entry.getValue());
-      }
-      reader.close();
-      is.close();
-    } catch (IOException e) {
-      Timber.e(e);
-    } finally {
-      localBroadcastManager.broadcastRefresh();
-      handler.post(
-          () -> {
-            if (progressDialog.isShowing()) {
-              DialogUtilities.dismissDialog(activity, progressDialog);
-              showSummary();
-            }
-          });
+    for (Entry<String, Integer> entry : backupContainer.getIntPrefs().entrySet()) {
+      preferences.setInt(entry.getKey(), entry.getValue());
     }
+    for (Entry<String, Long> entry : backupContainer.getLongPrefs().entrySet()) {
+      preferences.setLong(entry.getKey(), entry.getValue());
+    }
+    for (Entry<String, String> entry : backupContainer.getStringPrefs().entrySet()) {
+      preferences.setString(entry.getKey(), entry.getValue());
+    }
+    for (Entry<String, Boolean> entry : backupContainer.getBoolPrefs().entrySet()) {
+      preferences.setBoolean(entry.getKey(), entry.getValue());
+    }
+    reader.close();
+    is.close();
+  }
+
+  private void showMissingFullBackup() {
+    dialogBuilder
+        .newDialog(R.string.import_summary_title)
+        .setMessage(R.string.backup_missing_full)
+        .setPositiveButton(android.R.string.ok, (dialog, id) -> dialog.dismiss())
+        .show();
   }
 
-  private void showSummary() {
+  private void showSummary(Activity activity) {
     Resources r = activity.getResources();
     dialogBuilder
         .newDialog(R.string.import_summary_title)
@@ -288,6 +437,12 @@ public class TasksJsonImporter {
         .show();
   }
 
+  static class MissingFullBackupException extends IOException {
+    MissingFullBackupException(String filename) {
+      super("No full backup found for " + filename);
+    }
+  }
+
   static class LegacyLocation {
     String name;
     String address;
@@ -7,6 +7,7 @@ import static org.tasks.caldav.CaldavUtils.fromVtodo;
 import static org.tasks.caldav.CaldavUtils.setParent;
 import static org.tasks.date.DateTimeUtils.newDateTime;
 
+import androidx.annotation.Nullable;
 import com.google.common.base.Strings;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.data.Task.Priority;
@@ -22,7 +23,6 @@ import net.fortuna.ical4j.model.property.DtStart;
 import net.fortuna.ical4j.model.property.Due;
 import net.fortuna.ical4j.model.property.RRule;
 import net.fortuna.ical4j.model.property.Status;
-import org.tasks.data.CaldavTask;
 import timber.log.Timber;
 
 public class CaldavConverter {
@@ -102,11 +102,11 @@ public class CaldavConverter {
     return remotePriority > 5 ? Math.min(9, remotePriority) : 9;
   }
 
-  static at.bitfire.ical4android.Task toCaldav(CaldavTask caldavTask, Task task) {
+  static at.bitfire.ical4android.Task toCaldav(@Nullable String vtodo, Task task) {
     at.bitfire.ical4android.Task remote = null;
     try {
-      if (!Strings.isNullOrEmpty(caldavTask.getVtodo())) {
-        remote = fromVtodo(caldavTask.getVtodo());
+      if (!Strings.isNullOrEmpty(vtodo)) {
+        remote = fromVtodo(vtodo);
       }
     } catch (Exception e) {
       Timber.e(e);
@@ -274,7 +274,11 @@ public class CaldavSynchronizer {
       deleteRemoteResource(httpClient, httpUrl, task);
     }
 
-    for (Task task : taskDao.getCaldavTasksToPush(caldavCalendar.getUuid())) {
+    for (Long id : taskDao.getCaldavTasksToPush(caldavCalendar.getUuid())) {
+      Task task = taskDao.fetch(id);
+      if (task == null) {
+        continue;
+      }
       try {
         pushTask(task, httpClient, httpUrl);
       } catch (IOException e) {
@@ -320,7 +324,7 @@ public class CaldavSynchronizer {
       return;
     }
 
-    at.bitfire.ical4android.Task remoteModel = CaldavConverter.toCaldav(caldavTask, task);
+    at.bitfire.ical4android.Task remoteModel = CaldavConverter.toCaldav(caldavDao.getVtodo(caldavTask.getId()), task);
     LinkedList<String> categories = remoteModel.getCategories();
     categories.clear();
     categories.addAll(transform(tagDataDao.getTagDataForTask(task.getId()), TagData::getName));
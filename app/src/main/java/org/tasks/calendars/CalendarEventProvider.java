@@ -1,14 +1,18 @@
 package org.tasks.calendars;
 
 import static android.provider.BaseColumns._ID;
+import static org.tasks.db.DbUtils.batch;
 
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
+import android.content.ContentUris;
 import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
 import android.provider.CalendarContract;
 import android.text.TextUtils;
 import androidx.annotation.Nullable;
+import com.google.common.base.Joiner;
 import com.todoroo.astrid.data.Task;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -58,28 +62,78 @@ public class CalendarEventProvider {
     return events.isEmpty() ? null : events.get(0);
   }
 
+  /**
+   * Deletes the events that still exist. For each batch of ids, existence is checked with one query
+   * and the deletes are applied as one batch of operations.
+   */
   public void deleteEvents(List<String> calendarUris) {
+    if (calendarUris.isEmpty() || !permissionChecker.canAccessCalendars()) {
+      return;
+    }
+    List<Long> ids = new ArrayList<>();
     for (String uri : calendarUris) {
-      deleteEvent(uri);
+      if (!TextUtils.isEmpty(uri)) {
+        try {
+          ids.add(ContentUris.parseId(Uri.parse(uri)));
+        } catch (Exception e) {
+          Timber.e(e);
+        }
+      }
     }
+    batch(
+        ids,
+        b -> {
+          ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+          for (long id : getExistingEvents(b)) {
+            operations.add(
+                ContentProviderOperation.newDelete(
+                        ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI, id))
+                    .build());
+          }
+          if (operations.isEmpty()) {
+            return;
+          }
+          try {
+            contentResolver.applyBatch(CalendarContract.AUTHORITY, operations);
+            Timber.d("Deleted %s of %s events", operations.size(), b.size());
+          } catch (Exception e) {
+            Timber.e(e);
+          }
+        });
   }
 
   public void deleteEvent(Task task) {
     String uri = task.getCalendarURI();
     task.setCalendarUri("");
-    deleteEvent(uri);
-  }
-
-  private void deleteEvent(String eventUri) {
-    if (!TextUtils.isEmpty(eventUri)) {
-      deleteEvent(Uri.parse(eventUri));
+    if (!TextUtils.isEmpty(uri)) {
+      deleteEvents(Collections.singletonList(uri));
     }
   }
 
-  private void deleteEvent(Uri eventUri) {
-    if (getEvent(eventUri) != null) {
-      contentResolver.delete(eventUri, null, null);
+  private List<Long> getExistingEvents(List<Long> ids) {
+    List<Long> result = new ArrayList<>();
+    Cursor cursor = null;
+    try {
+      cursor =
+          contentResolver.query(
+              CalendarContract.Events.CONTENT_URI,
+              new String[] {_ID},
+              _ID + " IN (" + Joiner.on(",").join(ids) + ")",
+              null,
+              null);
+      if (cursor != null) {
+        while (cursor.moveToNext()) {
+          result.add(cursor.getLong(0));
+        }
+      }
+    } catch (Exception e) {
+      Timber.e(e);
+    } finally {
+      if (cursor != null) {
+        cursor.close();
+      }
     }
+    return result;
   }
 
   public List<AndroidCalendarEvent> getEventsBetween(long start, long end) {
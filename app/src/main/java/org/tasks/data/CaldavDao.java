@@ -1,13 +1,17 @@
 package org.tasks.data;
 
+import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.todoroo.andlib.utility.AndroidUtilities.atLeastLollipop;
 import static org.tasks.db.DbUtils.collect;
 
+import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 import io.reactivex.Single;
 import java.util.Collections;
@@ -48,14 +52,48 @@ public abstract class CaldavDao {
   @Update
   public abstract void update(CaldavCalendar caldavCalendar);
 
-  @Insert
-  public abstract long insert(CaldavTask caldavTask);
+  @Transaction
+  public long insert(CaldavTask caldavTask) {
+    long id = insertInternal(caldavTask);
+    if (!isNullOrEmpty(caldavTask.getVtodo())) {
+      insert(new CaldavVtodo(id, caldavTask.getVtodo()));
+    }
+    return id;
+  }
+
+  @Transaction
+  public void insert(Iterable<CaldavTask> tasks) {
+    for (CaldavTask task : tasks) {
+      insert(task);
+    }
+  }
 
   @Insert
-  public abstract void insert(Iterable<CaldavTask> tasks);
+  abstract long insertInternal(CaldavTask caldavTask);
+
+  @Transaction
+  public void update(CaldavTask caldavTask) {
+    updateInternal(caldavTask);
+    if (!isNullOrEmpty(caldavTask.getVtodo())) {
+      insert(new CaldavVtodo(caldavTask.getId(), caldavTask.getVtodo()));
+    }
+  }
 
   @Update
-  public abstract void update(CaldavTask caldavTask);
+  abstract void updateInternal(CaldavTask caldavTask);
+
+  @Insert(onConflict = OnConflictStrategy.REPLACE)
+  abstract void insert(CaldavVtodo caldavVtodo);
+
+  @Query("SELECT cv_vtodo FROM caldav_vtodo WHERE cv_id = :id")
+  abstract byte[] getVtodoInternal(long id);
+
+  public @Nullable String getVtodo(long id) {
+    return CaldavVtodo.decompress(getVtodoInternal(id));
+  }
+
+  @Query("DELETE FROM caldav_vtodo WHERE cv_id = :id")
+  abstract void deleteVtodo(long id);
 
   public void update(SubsetCaldav caldavTask) {
     update(caldavTask.getId(), caldavTask.getParent(), caldavTask.getRemoteParent());
@@ -65,11 +103,18 @@ public abstract class CaldavDao {
       "UPDATE caldav_tasks SET cd_parent = :parent, cd_remote_parent = :remoteParent WHERE cd_id = :id")
   abstract void update(long id, long parent, String remoteParent);
 
+  /** Updates caldav_tasks rows only, any vtodo set on the tasks is not written */
   @Update
   public abstract void update(Iterable<CaldavTask> tasks);
 
+  @Transaction
+  public void delete(CaldavTask caldavTask) {
+    deleteInternal(caldavTask);
+    deleteVtodo(caldavTask.getId());
+  }
+
   @Delete
-  public abstract void delete(CaldavTask caldavTask);
+  abstract void deleteInternal(CaldavTask caldavTask);
 
   @Query("SELECT * FROM caldav_tasks WHERE cd_deleted > 0 AND cd_calendar = :calendar")
   public abstract List<CaldavTask> getDeleted(String calendar);
@@ -89,13 +134,23 @@ public abstract class CaldavDao {
   @Query("SELECT * FROM caldav_tasks WHERE cd_task = :taskId")
   public abstract List<CaldavTask> getTasks(long taskId);
 
+  @Transaction
+  public List<CaldavTask> getTasksWithVtodo(long taskId) {
+    List<CaldavTask> tasks = getTasks(taskId);
+    for (CaldavTask task : tasks) {
+      task.setVtodo(getVtodo(task.getId()));
+    }
+    return tasks;
+  }
+
   @Query("SELECT * FROM caldav_tasks WHERE cd_task in (:taskIds) AND cd_deleted = 0")
   public abstract List<CaldavTask> getTasks(List<Long> taskIds);
 
   @Query(
-      "SELECT task.*, caldav_task.* FROM tasks AS task "
+      "SELECT task.*, caldav_task.*, caldav_vtodo.* FROM tasks AS task "
           + "INNER JOIN caldav_tasks AS caldav_task ON _id = cd_task "
-          + "WHERE cd_deleted = 0 AND cd_vtodo IS NOT NULL AND cd_vtodo != ''")
+          + "INNER JOIN caldav_vtodo ON cv_id = cd_id "
+          + "WHERE cd_deleted = 0")
   public abstract List<CaldavTaskContainer> getTasks();
 
   @Query("SELECT * FROM caldav_lists ORDER BY cdl_name COLLATE NOCASE")
@@ -16,7 +16,11 @@ import com.todoroo.andlib.data.Table;
       @Index(name = "cd_task", value = "cd_task"),
       @Index(
           name = "cd_calendar_parent",
-          value = {"cd_calendar", "cd_parent"})
+          value = {"cd_calendar", "cd_parent"}),
+      @Index(
+          name = "cd_calendar_object",
+          value = {"cd_calendar", "cd_object"}),
+      @Index(name = "cd_remote_id", value = "cd_remote_id")
     })
 public class CaldavTask {
 
@@ -61,8 +65,8 @@ public class CaldavTask {
   @ColumnInfo(name = "cd_deleted")
   private long deleted;
 
-  @ColumnInfo(name = "cd_vtodo")
-  private String vtodo;
+  // persisted in caldav_vtodo, see CaldavDao
+  @Ignore private String vtodo;
 
   @ColumnInfo(name = "cd_parent")
   private transient long parent;
@@ -6,8 +6,13 @@ import com.todoroo.astrid.data.Task;
 public class CaldavTaskContainer {
   @Embedded public Task task;
   @Embedded public CaldavTask caldavTask;
+  @Embedded public CaldavVtodo caldavVtodo;
 
   public CaldavTask getCaldavTask() {
     return caldavTask;
   }
+
+  public String getVtodo() {
+    return caldavVtodo.getVtodo();
+  }
 }
@@ -0,0 +1,89 @@
+package org.tasks.data;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+import androidx.annotation.Nullable;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import timber.log.Timber;
+
+/**
+ * Raw VTODO for a {@link CaldavTask}, gzipped and kept out of caldav_tasks so that list queries
+ * selecting caldav_tasks.* don't drag it along
+ */
+@Entity(tableName = "caldav_vtodo")
+public class CaldavVtodo {
+
+  @PrimaryKey
+  @ColumnInfo(name = "cv_id")
+  private long id;
+
+  @ColumnInfo(name = "cv_vtodo", typeAffinity = ColumnInfo.BLOB)
+  private byte[] data;
+
+  public CaldavVtodo() {}
+
+  @Ignore
+  public CaldavVtodo(long id, String vtodo) {
+    this.id = id;
+    this.data = compress(vtodo);
+  }
+
+  public static @Nullable byte[] compress(@Nullable String vtodo) {
+    if (vtodo == null) {
+      return null;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+      gzip.write(vtodo.getBytes(UTF_8));
+      gzip.close();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  public static @Nullable String decompress(@Nullable byte[] data) {
+    if (data == null) {
+      return null;
+    }
+    try {
+      GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data));
+      String vtodo = new String(ByteStreams.toByteArray(gzip), UTF_8);
+      gzip.close();
+      return vtodo;
+    } catch (IOException e) {
+      Timber.e(e);
+      return null;
+    }
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public byte[] getData() {
+    return data;
+  }
+
+  public void setData(byte[] data) {
+    this.data = data;
+  }
+
+  public @Nullable String getVtodo() {
+    return decompress(data);
+  }
+}
@@ -1,12 +1,16 @@
 package org.tasks.data;
 
+import static com.todoroo.andlib.utility.DateUtilities.now;
 import static org.tasks.db.DbUtils.batch;
 
 import androidx.room.Dao;
 import androidx.room.Delete;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
 import androidx.room.Transaction;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Dao
@@ -15,6 +19,9 @@ public abstract class DeletionDao {
   @Query("SELECT _id FROM tasks WHERE deleted > 0")
   public abstract List<Long> getDeleted();
 
+  @Query("DELETE FROM caldav_vtodo WHERE cv_id IN(SELECT cd_id FROM caldav_tasks WHERE cd_task IN(:ids))")
+  abstract void deleteCaldavVtodos(List<Long> ids);
+
   @Query("DELETE FROM caldav_tasks WHERE cd_task IN(:ids)")
   abstract void deleteCaldavTasks(List<Long> ids);
 
@@ -33,18 +40,57 @@ public abstract class DeletionDao {
   @Query("DELETE FROM tasks WHERE _id IN(:ids)")
   abstract void deleteTasks(List<Long> ids);
 
+  @Query("SELECT remoteId FROM tasks WHERE _id IN(:ids)")
+  abstract List<String> getUuids(List<Long> ids);
+
+  @Insert(onConflict = OnConflictStrategy.REPLACE)
+  abstract void insertTombstones(List<Tombstone> tombstones);
+
+  @Query("SELECT ts_uuid FROM tombstones WHERE ts_deleted > :since")
+  public abstract List<String> getTombstones(long since);
+
+  @Query("DELETE FROM tombstones WHERE ts_deleted < :before")
+  public abstract void purgeTombstones(long before);
+
   @Transaction
   public void delete(List<Long> ids) {
+    long now = now();
     batch(ids, b -> {
+      List<Tombstone> tombstones = new ArrayList<>();
+      for (String uuid : getUuids(b)) {
+        tombstones.add(new Tombstone(uuid, now));
+      }
+      insertTombstones(tombstones);
       deleteAlarms(b);
       deleteGeofences(b);
       deleteTags(b);
       deleteGoogleTasks(b);
+      deleteCaldavVtodos(b);
       deleteCaldavTasks(b);
       deleteTasks(b);
     });
   }
 
+  @Query("DELETE FROM userActivity WHERE target_id = :taskUuid")
+  abstract void deleteComments(String taskUuid);
+
+  @Query("DELETE FROM task_attachments WHERE task_id = :taskUuid")
+  abstract void deleteAttachments(String taskUuid);
+
+  /** Removes every row attached to a task while keeping the task itself */
+  @Transaction
+  public void deleteRelations(long taskId, String taskUuid) {
+    List<Long> ids = Collections.singletonList(taskId);
+    deleteAlarms(ids);
+    deleteGeofences(ids);
+    deleteTags(ids);
+    deleteGoogleTasks(ids);
+    deleteCaldavVtodos(ids);
+    deleteCaldavTasks(ids);
+    deleteComments(taskUuid);
+    deleteAttachments(taskUuid);
+  }
+
   @Query("UPDATE tasks "
       + "SET modified = (strftime('%s','now')*1000), deleted = (strftime('%s','now')*1000)"
       + "WHERE _id IN(:ids)")
@@ -14,7 +14,8 @@ import com.todoroo.andlib.data.Table;
       @Index(name = "gt_task", value = "gt_task"),
       @Index(
           name = "gt_list_parent",
-          value = {"gt_list_id", "gt_parent"})
+          value = {"gt_list_id", "gt_parent", "gt_order"}),
+      @Index(name = "gt_remote_id", value = "gt_remote_id")
     })
 public class GoogleTask {
 
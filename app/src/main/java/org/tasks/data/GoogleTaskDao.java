@@ -1,5 +1,6 @@
 package org.tasks.data;
 
+import androidx.annotation.Nullable;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
@@ -7,64 +8,112 @@ import androidx.room.Query;
 import androidx.room.RoomWarnings;
 import androidx.room.Transaction;
 import androidx.room.Update;
-import com.todoroo.astrid.data.Task;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import timber.log.Timber;
 
 @Dao
 public abstract class GoogleTaskDao {
 
+  /** Distance between the order keys of neighboring siblings when they are assigned */
+  public static final long ORDER_GAP = 1L << 32;
+
   @Insert
   public abstract void insert(GoogleTask task);
 
   @Insert
   public abstract void insert(Iterable<GoogleTask> tasks);
 
+  /**
+   * Inserts {@code task} first or last among its siblings. Order keys are spaced {@link
+   * #ORDER_GAP} apart so the siblings never need to be shifted.
+   */
   @Transaction
   public void insertAndShift(GoogleTask task, boolean top) {
-    if (top) {
-      task.setOrder(0);
-      shiftDown(task.getListId(), task.getParent(), 0);
+    task.setOrder(
+        top
+            ? getTop(task.getListId(), task.getParent())
+            : getBottom(task.getListId(), task.getParent()));
+    insert(task);
+  }
+
+  /**
+   * Moves {@code task} under {@code newParent}, directly after the sibling task {@code previous} or
+   * first if {@code previous} is 0. Only the moved row is written unless there is no room left
+   * between its new neighbors, then its new siblings are spread out again.
+   */
+  @Transaction
+  public void move(SubsetGoogleTask task, long newParent, long previous) {
+    String listId = task.getListId();
+    Long previousOrder = previous > 0 ? getOrder(listId, previous) : null;
+    Long order = getOrderAfter(listId, newParent, task.getId(), previousOrder);
+    if (order == null) {
+      rebalance(listId, newParent);
+      previousOrder = previous > 0 ? getOrder(listId, previous) : null;
+      order = getOrderAfter(listId, newParent, task.getId(), previousOrder);
+    }
+    task.setParent(newParent);
+    task.setOrder(order);
+    update(task);
+  }
+
+  /** Moves {@code task} under {@code newParent}, after all of its new siblings */
+  @Transaction
+  public void moveToBottom(SubsetGoogleTask task, long newParent) {
+    task.setParent(newParent);
+    task.setOrder(getBottom(task.getListId(), newParent));
+    update(task);
+  }
+
+  /** @return a key between {@code previous} and the next sibling, null if there is no room */
+  private Long getOrderAfter(String listId, long parent, long exclude, @Nullable Long previous) {
+    Long next =
+        previous == null
+            ? getFirstOrder(listId, parent, exclude)
+            : getNextOrder(listId, parent, exclude, previous);
+    if (next == null) {
+      return previous == null ? 0 : previous + ORDER_GAP;
+    } else if (previous == null) {
+      return next - ORDER_GAP;
+    } else if (next - previous > 1) {
+      return previous + (next - previous) / 2;
     } else {
-      task.setOrder(getBottom(task.getListId(), task.getParent()));
+      return null;
     }
-    insert(task);
   }
 
   @Query(
-      "UPDATE google_tasks SET gt_order = gt_order + 1 WHERE gt_list_id = :listId AND gt_parent = :parent AND gt_order >= :position")
-  abstract void shiftDown(String listId, long parent, long position);
+      "SELECT gt_order FROM google_tasks WHERE gt_list_id = :listId AND gt_task = :task AND gt_deleted = 0 LIMIT 1")
+  abstract Long getOrder(String listId, long task);
 
   @Query(
-      "UPDATE google_tasks SET gt_order = gt_order - 1 WHERE gt_list_id = :listId AND gt_parent = :parent AND gt_order > :from AND gt_order <= :to")
-  abstract void shiftUp(String listId, long parent, long from, long to);
+      "SELECT MIN(gt_order) FROM google_tasks WHERE gt_list_id = :listId AND gt_parent = :parent AND gt_id != :exclude")
+  abstract Long getFirstOrder(String listId, long parent, long exclude);
 
   @Query(
-      "UPDATE google_tasks SET gt_order = gt_order + 1 WHERE gt_list_id = :listId AND gt_parent = :parent AND gt_order < :from AND gt_order >= :to")
-  abstract void shiftDown(String listId, long parent, long from, long to);
+      "SELECT MIN(gt_order) FROM google_tasks WHERE gt_list_id = :listId AND gt_parent = :parent AND gt_id != :exclude AND gt_order > :order")
+  abstract Long getNextOrder(String listId, long parent, long exclude, long order);
 
   @Query(
-      "UPDATE google_tasks SET gt_order = gt_order - 1 WHERE gt_list_id = :listId AND gt_parent = :parent AND gt_order >= :position")
-  abstract void shiftUp(String listId, long parent, long position);
-
-  @Transaction
-  public void move(SubsetGoogleTask task, long newParent, long newPosition) {
-    long previousParent = task.getParent();
-    long previousPosition = task.getOrder();
-
-    if (newParent == previousParent) {
-      if (previousPosition < newPosition) {
-        shiftUp(task.getListId(), newParent, previousPosition, newPosition);
-      } else {
-        shiftDown(task.getListId(), newParent, previousPosition, newPosition);
-      }
-    } else {
-      shiftUp(task.getListId(), previousParent, previousPosition);
-      shiftDown(task.getListId(), newParent, newPosition);
+      "SELECT * FROM google_tasks WHERE gt_list_id = :listId AND gt_parent = :parent ORDER BY gt_order ASC")
+  abstract List<GoogleTask> getSiblings(String listId, long parent);
+
+  @Query("UPDATE google_tasks SET gt_order = :order WHERE gt_id = :id")
+  abstract void setOrder(long id, long order);
+
+  /** Spreads the order keys of a set of siblings {@link #ORDER_GAP} apart */
+  private void rebalance(String listId, long parent) {
+    List<GoogleTask> siblings = getSiblings(listId, parent);
+    Timber.d("rebalancing %s siblings", siblings.size());
+    for (int i = 0; i < siblings.size(); i++) {
+      setOrder(siblings.get(i).getId(), i * ORDER_GAP);
     }
-    task.setParent(newParent);
-    task.setOrder(newPosition);
-    update(task);
   }
 
   @Query("SELECT * FROM google_tasks WHERE gt_task = :taskId AND gt_deleted = 0 LIMIT 1")
@@ -101,9 +150,6 @@ public abstract class GoogleTaskDao {
   @Query("SELECT gt_task FROM google_tasks WHERE gt_parent IN (:ids)")
   public abstract List<Long> getChildren(List<Long> ids);
 
-  @Query("SELECT tasks.* FROM tasks JOIN google_tasks ON tasks._id = gt_task WHERE gt_parent = :taskId")
-  public abstract List<Task> getChildTasks(long taskId);
-
   @Query("SELECT gt_task FROM google_tasks WHERE gt_task IN (:taskIds) AND gt_parent IN (:taskIds) AND gt_deleted = 0")
   public abstract List<Long> findChildrenInList(List<Long> taskIds);
 
@@ -111,9 +157,17 @@ public abstract class GoogleTaskDao {
   public abstract List<GoogleTask> getChildren(Long id);
 
   @Query(
-      "SELECT IFNULL(MAX(gt_order), -1) + 1 FROM google_tasks WHERE gt_list_id = :listId AND gt_parent = :parent")
+      "SELECT IFNULL(MAX(gt_order) + "
+          + ORDER_GAP
+          + ", 0) FROM google_tasks WHERE gt_list_id = :listId AND gt_parent = :parent")
   public abstract long getBottom(String listId, long parent);
 
+  @Query(
+      "SELECT IFNULL(MIN(gt_order) - "
+          + ORDER_GAP
+          + ", 0) FROM google_tasks WHERE gt_list_id = :listId AND gt_parent = :parent")
+  abstract long getTop(String listId, long parent);
+
   @Query(
       "SELECT gt_remote_id FROM google_tasks JOIN tasks ON tasks._id = gt_task WHERE deleted = 0 AND gt_list_id = :listId AND gt_parent = :parent AND gt_order < :order AND gt_remote_id IS NOT NULL AND gt_remote_id != '' ORDER BY gt_order DESC")
   public abstract String getPrevious(String listId, long parent, long order);
@@ -153,49 +207,137 @@ public abstract class GoogleTaskDao {
       "UPDATE google_tasks SET gt_remote_parent = :parent, gt_remote_order = :position WHERE gt_remote_id = :id")
   public abstract void updatePosition(String id, String parent, String position);
 
+  /**
+   * Orders a list to match the order on the server. Within each set of siblings the rows that are
+   * already in the right relative order are kept, and only the others are given new keys.
+   */
   @Transaction
   public void reposition(String listId) {
     updateParents(listId);
 
-    List<GoogleTask> orderedTasks = getByRemoteOrder(listId);
-    int subtasks = 0;
-    int parent = 0;
-    for (int i = 0; i < orderedTasks.size(); i++) {
-      GoogleTask task = orderedTasks.get(i);
-      if (task.getParent() > 0) {
-        if (task.getOrder() != subtasks && !task.isMoved()) {
-          task.setOrder(subtasks);
-          update(task);
-        }
-        subtasks++;
+    Map<Long, List<GoogleTask>> siblings = new LinkedHashMap<>();
+    for (GoogleTask task : getByRemoteOrder(listId)) {
+      if (task.isMoved()) {
+        continue;
+      }
+      List<GoogleTask> group = siblings.get(task.getParent());
+      if (group == null) {
+        group = new ArrayList<>();
+        siblings.put(task.getParent(), group);
+      }
+      group.add(task);
+    }
+    for (List<GoogleTask> group : siblings.values()) {
+      reposition(listId, group);
+    }
+  }
+
+  private void reposition(String listId, List<GoogleTask> tasks) {
+    boolean[] keep = getOrdered(tasks);
+    int i = 0;
+    while (i < tasks.size()) {
+      if (keep[i]) {
+        i++;
+        continue;
+      }
+      int end = i;
+      while (end < tasks.size() && !keep[end]) {
+        end++;
+      }
+      Long previous = i > 0 ? tasks.get(i - 1).getOrder() : null;
+      Long next = end < tasks.size() ? tasks.get(end).getOrder() : null;
+      int count = end - i;
+      long step;
+      long start;
+      if (previous == null && next == null) {
+        step = ORDER_GAP;
+        start = 0;
+      } else if (previous == null) {
+        step = ORDER_GAP;
+        start = next - count * ORDER_GAP;
+      } else if (next == null) {
+        step = ORDER_GAP;
+        start = previous + ORDER_GAP;
       } else {
-        subtasks = 0;
-        if (task.getOrder() != parent && !task.isMoved()) {
-          task.setOrder(parent);
-          update(task);
+        step = (next - previous) / (count + 1);
+        start = previous + step;
+      }
+      if (step < 1) {
+        rebalance(listId, tasks);
+        return;
+      }
+      for (int j = i; j < end; j++) {
+        setOrder(tasks.get(j), start + (j - i) * step);
+      }
+      i = end;
+    }
+  }
+
+  /**
+   * Spreads out every sibling of {@code tasks}, including the ones moved locally. Those keep their
+   * place, the other places are filled in the order of {@code tasks}.
+   */
+  private void rebalance(String listId, List<GoogleTask> tasks) {
+    Set<Long> ids = new HashSet<>();
+    for (GoogleTask task : tasks) {
+      ids.add(task.getId());
+    }
+    Iterator<GoogleTask> ordered = tasks.iterator();
+    List<GoogleTask> siblings = getSiblings(listId, tasks.get(0).getParent());
+    Timber.d("rebalancing %s siblings", siblings.size());
+    for (int i = 0; i < siblings.size(); i++) {
+      GoogleTask sibling = siblings.get(i);
+      setOrder(ids.contains(sibling.getId()) ? ordered.next() : sibling, i * ORDER_GAP);
+    }
+  }
+
+  private void setOrder(GoogleTask task, long order) {
+    if (task.getOrder() != order) {
+      task.setOrder(order);
+      setOrder(task.getId(), order);
+    }
+  }
+
+  /**
+   * @return whether each task belongs to the longest run of tasks, not necessarily adjacent, whose
+   *     order keys are already increasing
+   */
+  static boolean[] getOrdered(List<GoogleTask> tasks) {
+    int size = tasks.size();
+    int[] tails = new int[size];
+    int[] previous = new int[size];
+    int length = 0;
+    for (int i = 0; i < size; i++) {
+      long order = tasks.get(i).getOrder();
+      int low = 0;
+      int high = length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (tasks.get(tails[mid]).getOrder() < order) {
+          low = mid + 1;
+        } else {
+          high = mid;
         }
-        parent++;
       }
+      previous[i] = low > 0 ? tails[low - 1] : -1;
+      tails[low] = i;
+      if (low == length) {
+        length++;
+      }
+    }
+    boolean[] keep = new boolean[size];
+    for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+      keep[i] = true;
     }
+    return keep;
   }
 
   public void validateSorting(String listId) {
-    List<GoogleTask> orderedTasks = getByLocalOrder(listId);
-    int subtasks = 0;
-    int parent = 0;
-    for (int i = 0; i < orderedTasks.size(); i++) {
-      GoogleTask task = orderedTasks.get(i);
-      if (task.getParent() > 0) {
-        if (task.getOrder() != subtasks) {
-          Timber.e("Subtask violation expected %s but was %s", subtasks, task.getOrder());
-        }
-        subtasks++;
-      } else {
-        subtasks = 0;
-        if (task.getOrder() != parent) {
-          Timber.e("Parent violation expected %s but was %s", parent, task.getOrder());
-        }
-        parent++;
+    Map<Long, Long> last = new HashMap<>();
+    for (GoogleTask task : getByLocalOrder(listId)) {
+      Long previous = last.put(task.getParent(), task.getOrder());
+      if (previous != null && previous >= task.getOrder()) {
+        Timber.e("Order violation %s is not after %s", task.getOrder(), previous);
       }
     }
   }
@@ -19,7 +19,19 @@ import java.util.Set;
 public abstract class TagDao {
 
   @Query("UPDATE tags SET name = :name WHERE tag_uid = :tagUid")
-  public abstract void rename(String tagUid, String name);
+  abstract void renameTags(String tagUid, String name);
+
+  @Query(
+      "UPDATE tasks SET modified = strftime('%s','now')*1000"
+          + " WHERE _id IN (SELECT task FROM tags WHERE tag_uid = :tagUid)")
+  abstract void touchTasks(String tagUid);
+
+  /** Tagged tasks are marked modified so that the new name reaches incremental backups */
+  @Transaction
+  public void rename(String tagUid, String name) {
+    touchTasks(tagUid);
+    renameTags(tagUid, name);
+  }
 
   @Insert
   public abstract void insert(Tag tag);
@@ -30,9 +42,6 @@ public abstract class TagDao {
   @Query("DELETE FROM tags WHERE task = :taskId AND tag_uid in (:tagUids)")
   public abstract void deleteTags(long taskId, List<String> tagUids);
 
-  @Query("SELECT name FROM tags WHERE task = :taskId ORDER BY UPPER(name) ASC")
-  public abstract List<String> getTagNames(long taskId);
-
   @Query("SELECT * FROM tags WHERE tag_uid = :tagUid")
   public abstract List<Tag> getByTagUid(String tagUid);
 
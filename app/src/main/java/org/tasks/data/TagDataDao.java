@@ -45,8 +45,15 @@ public abstract class TagDataDao {
   @Query("DELETE FROM tags WHERE tag_uid = :tagUid")
   abstract void deleteTags(String tagUid);
 
+  @Query(
+      "UPDATE tasks SET modified = strftime('%s','now')*1000"
+          + " WHERE _id IN (SELECT task FROM tags WHERE tag_uid = :tagUid)")
+  abstract void touchTasks(String tagUid);
+
+  /** Tagged tasks are marked modified so that the removal reaches incremental backups */
   @Transaction
   public void delete(TagData tagData) {
+    touchTasks(tagData.getRemoteId());
     deleteTags(tagData.getRemoteId());
     deleteTagData(tagData);
   }
@@ -0,0 +1,74 @@
+package org.tasks.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.PrimaryKey;
+import com.todoroo.andlib.data.Table;
+
+/**
+ * Full-text index over task titles, notes, tag names and comments. Rows share their rowid with
+ * tasks and are maintained by triggers, see {@link org.tasks.db.Migrations#createSearchTriggers}
+ */
+@Fts4
+@Entity(tableName = "task_search")
+public class TaskSearch {
+
+  public static final Table TABLE = new Table("task_search");
+
+  @PrimaryKey
+  @ColumnInfo(name = "rowid")
+  private long id;
+
+  @ColumnInfo(name = "title")
+  private String title;
+
+  @ColumnInfo(name = "notes")
+  private String notes;
+
+  @ColumnInfo(name = "tags")
+  private String tags;
+
+  @ColumnInfo(name = "comments")
+  private String comments;
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public String getNotes() {
+    return notes;
+  }
+
+  public void setNotes(String notes) {
+    this.notes = notes;
+  }
+
+  public String getTags() {
+    return tags;
+  }
+
+  public void setTags(String tags) {
+    this.tags = tags;
+  }
+
+  public String getComments() {
+    return comments;
+  }
+
+  public void setComments(String comments) {
+    this.comments = comments;
+  }
+}
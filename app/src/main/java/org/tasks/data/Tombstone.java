@@ -0,0 +1,45 @@
+package org.tasks.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+/** Records the uuid of a purged task so incremental backups can replay the deletion */
+@Entity(tableName = "tombstones")
+public class Tombstone {
+
+  @PrimaryKey
+  @NonNull
+  @ColumnInfo(name = "ts_uuid")
+  private String uuid = "";
+
+  @ColumnInfo(name = "ts_deleted")
+  private long deleted;
+
+  public Tombstone() {}
+
+  @Ignore
+  public Tombstone(@NonNull String uuid, long deleted) {
+    this.uuid = uuid;
+    this.deleted = deleted;
+  }
+
+  @NonNull
+  public String getUuid() {
+    return uuid;
+  }
+
+  public void setUuid(@NonNull String uuid) {
+    this.uuid = uuid;
+  }
+
+  public long getDeleted() {
+    return deleted;
+  }
+
+  public void setDeleted(long deleted) {
+    this.deleted = deleted;
+  }
+}
@@ -6,6 +6,7 @@ import android.os.Parcelable;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import com.google.common.base.Strings;
 import com.todoroo.astrid.data.Task;
@@ -15,7 +16,7 @@ import org.json.JSONObject;
 import org.tasks.backup.XmlReader;
 import timber.log.Timber;
 
-@Entity(tableName = "userActivity")
+@Entity(tableName = "userActivity", indices = @Index(name = "ua_target", value = "target_id"))
 public class UserActivity implements Parcelable {
 
   public static final Parcelable.Creator<UserActivity> CREATOR =
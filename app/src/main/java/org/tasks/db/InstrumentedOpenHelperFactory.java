@@ -0,0 +1,462 @@
+package org.tasks.db;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteTransactionListener;
+import android.os.CancellationSignal;
+import android.os.Looper;
+import android.util.Pair;
+import androidx.annotation.RequiresApi;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps an open helper factory and records every statement in {@link QueryStats}. A query is timed
+ * from execution until its cursor is closed, so the time to read the rows is included.
+ */
+public class InstrumentedOpenHelperFactory implements SupportSQLiteOpenHelper.Factory {
+
+  private final SupportSQLiteOpenHelper.Factory delegate;
+  private final QueryStats queryStats;
+
+  public InstrumentedOpenHelperFactory(
+      SupportSQLiteOpenHelper.Factory delegate, QueryStats queryStats) {
+    this.delegate = delegate;
+    this.queryStats = queryStats;
+  }
+
+  @Override
+  public SupportSQLiteOpenHelper create(SupportSQLiteOpenHelper.Configuration configuration) {
+    return new OpenHelper(delegate.create(configuration));
+  }
+
+  private void record(String sql, long start, int rows) {
+    queryStats.record(
+        sql,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+        rows,
+        Looper.myLooper() == Looper.getMainLooper());
+  }
+
+  private static String where(String whereClause) {
+    return whereClause == null ? "" : " WHERE " + whereClause;
+  }
+
+  private class OpenHelper implements SupportSQLiteOpenHelper {
+
+    private final SupportSQLiteOpenHelper delegate;
+    private Database database;
+
+    OpenHelper(SupportSQLiteOpenHelper delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public String getDatabaseName() {
+      return delegate.getDatabaseName();
+    }
+
+    @Override
+    public void setWriteAheadLoggingEnabled(boolean enabled) {
+      delegate.setWriteAheadLoggingEnabled(enabled);
+    }
+
+    @Override
+    public SupportSQLiteDatabase getWritableDatabase() {
+      return wrap(delegate.getWritableDatabase());
+    }
+
+    @Override
+    public SupportSQLiteDatabase getReadableDatabase() {
+      return wrap(delegate.getReadableDatabase());
+    }
+
+    private synchronized SupportSQLiteDatabase wrap(SupportSQLiteDatabase db) {
+      if (database == null || database.delegate != db) {
+        database = new Database(db);
+      }
+      return database;
+    }
+
+    @Override
+    public void close() {
+      delegate.close();
+    }
+  }
+
+  private class Database implements SupportSQLiteDatabase {
+
+    private final SupportSQLiteDatabase delegate;
+
+    Database(SupportSQLiteDatabase delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public SupportSQLiteStatement compileStatement(String sql) {
+      return new Statement(sql, delegate.compileStatement(sql));
+    }
+
+    @Override
+    public void beginTransaction() {
+      delegate.beginTransaction();
+    }
+
+    @Override
+    public void beginTransactionNonExclusive() {
+      delegate.beginTransactionNonExclusive();
+    }
+
+    @Override
+    public void beginTransactionWithListener(SQLiteTransactionListener transactionListener) {
+      delegate.beginTransactionWithListener(transactionListener);
+    }
+
+    @Override
+    public void beginTransactionWithListenerNonExclusive(
+        SQLiteTransactionListener transactionListener) {
+      delegate.beginTransactionWithListenerNonExclusive(transactionListener);
+    }
+
+    @Override
+    public void endTransaction() {
+      delegate.endTransaction();
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+      delegate.setTransactionSuccessful();
+    }
+
+    @Override
+    public boolean inTransaction() {
+      return delegate.inTransaction();
+    }
+
+    @Override
+    public boolean isDbLockedByCurrentThread() {
+      return delegate.isDbLockedByCurrentThread();
+    }
+
+    @Override
+    public boolean yieldIfContendedSafely() {
+      return delegate.yieldIfContendedSafely();
+    }
+
+    @Override
+    public boolean yieldIfContendedSafely(long sleepAfterYieldDelay) {
+      return delegate.yieldIfContendedSafely(sleepAfterYieldDelay);
+    }
+
+    @Override
+    public int getVersion() {
+      return delegate.getVersion();
+    }
+
+    @Override
+    public void setVersion(int version) {
+      delegate.setVersion(version);
+    }
+
+    @Override
+    public long getMaximumSize() {
+      return delegate.getMaximumSize();
+    }
+
+    @Override
+    public long setMaximumSize(long numBytes) {
+      return delegate.setMaximumSize(numBytes);
+    }
+
+    @Override
+    public long getPageSize() {
+      return delegate.getPageSize();
+    }
+
+    @Override
+    public void setPageSize(long numBytes) {
+      delegate.setPageSize(numBytes);
+    }
+
+    @Override
+    public Cursor query(String query) {
+      long start = System.nanoTime();
+      return new TimedCursor(query, start, delegate.query(query));
+    }
+
+    @Override
+    public Cursor query(String query, Object[] bindArgs) {
+      long start = System.nanoTime();
+      return new TimedCursor(query, start, delegate.query(query, bindArgs));
+    }
+
+    @Override
+    public Cursor query(SupportSQLiteQuery query) {
+      long start = System.nanoTime();
+      return new TimedCursor(query.getSql(), start, delegate.query(query));
+    }
+
+    @RequiresApi(16)
+    @Override
+    public Cursor query(SupportSQLiteQuery query, CancellationSignal cancellationSignal) {
+      long start = System.nanoTime();
+      return new TimedCursor(query.getSql(), start, delegate.query(query, cancellationSignal));
+    }
+
+    @Override
+    public long insert(String table, int conflictAlgorithm, ContentValues values)
+        throws SQLException {
+      long start = System.nanoTime();
+      try {
+        return delegate.insert(table, conflictAlgorithm, values);
+      } finally {
+        record("INSERT INTO " + table, start, 1);
+      }
+    }
+
+    @Override
+    public int delete(String table, String whereClause, Object[] whereArgs) {
+      long start = System.nanoTime();
+      int rows = -1;
+      try {
+        rows = delegate.delete(table, whereClause, whereArgs);
+        return rows;
+      } finally {
+        record("DELETE FROM " + table + where(whereClause), start, rows);
+      }
+    }
+
+    @Override
+    public int update(
+        String table,
+        int conflictAlgorithm,
+        ContentValues values,
+        String whereClause,
+        Object[] whereArgs) {
+      long start = System.nanoTime();
+      int rows = -1;
+      try {
+        rows = delegate.update(table, conflictAlgorithm, values, whereClause, whereArgs);
+        return rows;
+      } finally {
+        record("UPDATE " + table + where(whereClause), start, rows);
+      }
+    }
+
+    @Override
+    public void execSQL(String sql) throws SQLException {
+      long start = System.nanoTime();
+      try {
+        delegate.execSQL(sql);
+      } finally {
+        record(sql, start, 0);
+      }
+    }
+
+    @Override
+    public void execSQL(String sql, Object[] bindArgs) throws SQLException {
+      long start = System.nanoTime();
+      try {
+        delegate.execSQL(sql, bindArgs);
+      } finally {
+        record(sql, start, 0);
+      }
+    }
+
+    @Override
+    public boolean isReadOnly() {
+      return delegate.isReadOnly();
+    }
+
+    @Override
+    public boolean isOpen() {
+      return delegate.isOpen();
+    }
+
+    @Override
+    public boolean needUpgrade(int newVersion) {
+      return delegate.needUpgrade(newVersion);
+    }
+
+    @Override
+    public String getPath() {
+      return delegate.getPath();
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+      delegate.setLocale(locale);
+    }
+
+    @Override
+    public void setMaxSqlCacheSize(int cacheSize) {
+      delegate.setMaxSqlCacheSize(cacheSize);
+    }
+
+    @RequiresApi(16)
+    @Override
+    public void setForeignKeyConstraintsEnabled(boolean enable) {
+      delegate.setForeignKeyConstraintsEnabled(enable);
+    }
+
+    @Override
+    public boolean enableWriteAheadLogging() {
+      return delegate.enableWriteAheadLogging();
+    }
+
+    @RequiresApi(16)
+    @Override
+    public void disableWriteAheadLogging() {
+      delegate.disableWriteAheadLogging();
+    }
+
+    @RequiresApi(16)
+    @Override
+    public boolean isWriteAheadLoggingEnabled() {
+      return delegate.isWriteAheadLoggingEnabled();
+    }
+
+    @Override
+    public List<Pair<String, String>> getAttachedDbs() {
+      return delegate.getAttachedDbs();
+    }
+
+    @Override
+    public boolean isDatabaseIntegrityOk() {
+      return delegate.isDatabaseIntegrityOk();
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
+  }
+
+  private class Statement implements SupportSQLiteStatement {
+
+    private final String sql;
+    private final SupportSQLiteStatement delegate;
+
+    Statement(String sql, SupportSQLiteStatement delegate) {
+      this.sql = sql;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void execute() {
+      long start = System.nanoTime();
+      try {
+        delegate.execute();
+      } finally {
+        record(sql, start, 0);
+      }
+    }
+
+    @Override
+    public int executeUpdateDelete() {
+      long start = System.nanoTime();
+      int rows = -1;
+      try {
+        rows = delegate.executeUpdateDelete();
+        return rows;
+      } finally {
+        record(sql, start, rows);
+      }
+    }
+
+    @Override
+    public long executeInsert() {
+      long start = System.nanoTime();
+      try {
+        return delegate.executeInsert();
+      } finally {
+        record(sql, start, 1);
+      }
+    }
+
+    @Override
+    public long simpleQueryForLong() {
+      long start = System.nanoTime();
+      try {
+        return delegate.simpleQueryForLong();
+      } finally {
+        record(sql, start, 1);
+      }
+    }
+
+    @Override
+    public String simpleQueryForString() {
+      long start = System.nanoTime();
+      try {
+        return delegate.simpleQueryForString();
+      } finally {
+        record(sql, start, 1);
+      }
+    }
+
+    @Override
+    public void bindNull(int index) {
+      delegate.bindNull(index);
+    }
+
+    @Override
+    public void bindLong(int index, long value) {
+      delegate.bindLong(index, value);
+    }
+
+    @Override
+    public void bindDouble(int index, double value) {
+      delegate.bindDouble(index, value);
+    }
+
+    @Override
+    public void bindString(int index, String value) {
+      delegate.bindString(index, value);
+    }
+
+    @Override
+    public void bindBlob(int index, byte[] value) {
+      delegate.bindBlob(index, value);
+    }
+
+    @Override
+    public void clearBindings() {
+      delegate.clearBindings();
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
+  }
+
+  private class TimedCursor extends CursorWrapper {
+
+    private final String sql;
+    private final long start;
+    private boolean recorded;
+
+    TimedCursor(String sql, long start, Cursor cursor) {
+      super(cursor);
+      this.sql = sql;
+      this.start = start;
+    }
+
+    @Override
+    public void close() {
+      if (!recorded) {
+        recorded = true;
+        record(sql, start, isClosed() ? -1 : getCount());
+      }
+      super.close();
+    }
+  }
+}
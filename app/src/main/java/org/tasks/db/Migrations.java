@@ -1,9 +1,15 @@
 package org.tasks.db;
 
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
 import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
+import com.todoroo.astrid.data.Task;
+import org.tasks.data.CaldavVtodo;
 import timber.log.Timber;
 
 public class Migrations {
@@ -356,6 +362,146 @@ public class Migrations {
         }
       };
 
+  private static final Migration MIGRATION_69_70 =
+      new Migration(69, 70) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+          database.execSQL(
+              "CREATE TABLE IF NOT EXISTS `caldav_vtodo` (`cv_id` INTEGER NOT NULL, `cv_vtodo` BLOB, PRIMARY KEY(`cv_id`))");
+          Cursor cursor =
+              database.query(
+                  "SELECT `cd_id`, `cd_vtodo` FROM `caldav_tasks` WHERE `cd_vtodo` IS NOT NULL AND `cd_vtodo` != ''");
+          try {
+            while (cursor.moveToNext()) {
+              ContentValues values = new ContentValues();
+              values.put("cv_id", cursor.getLong(0));
+              values.put("cv_vtodo", CaldavVtodo.compress(cursor.getString(1)));
+              database.insert("caldav_vtodo", SQLiteDatabase.CONFLICT_REPLACE, values);
+            }
+          } finally {
+            cursor.close();
+          }
+
+          database.execSQL("ALTER TABLE `caldav_tasks` RENAME TO `caldav-temp`");
+          database.execSQL(
+              "CREATE TABLE IF NOT EXISTS `caldav_tasks` (`cd_id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `cd_task` INTEGER NOT NULL, `cd_calendar` TEXT, `cd_object` TEXT, `cd_remote_id` TEXT, `cd_etag` TEXT, `cd_last_sync` INTEGER NOT NULL, `cd_deleted` INTEGER NOT NULL, `cd_parent` INTEGER NOT NULL, `cd_remote_parent` TEXT)");
+          database.execSQL(
+              "INSERT INTO `caldav_tasks` (`cd_id`, `cd_task`, `cd_calendar`, `cd_object`, `cd_remote_id`, `cd_etag`, `cd_last_sync`, `cd_deleted`, `cd_parent`, `cd_remote_parent`) "
+                  + "SELECT `cd_id`, `cd_task`, `cd_calendar`, `cd_object`, `cd_remote_id`, `cd_etag`, `cd_last_sync`, `cd_deleted`, `cd_parent`, `cd_remote_parent` FROM `caldav-temp`");
+          database.execSQL("DROP TABLE `caldav-temp`");
+          database.execSQL("CREATE INDEX `cd_calendar_parent` ON `caldav_tasks` (`cd_calendar`, `cd_parent`)");
+          database.execSQL("CREATE INDEX `cd_task` ON `caldav_tasks` (`cd_task`)");
+        }
+      };
+
+  private static final Migration MIGRATION_70_71 =
+      new Migration(70, 71) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+          database.execSQL(
+              "CREATE TABLE IF NOT EXISTS `tombstones` (`ts_uuid` TEXT NOT NULL, `ts_deleted` INTEGER NOT NULL, PRIMARY KEY(`ts_uuid`))");
+        }
+      };
+
+  private static final Migration MIGRATION_71_72 =
+      new Migration(71, 72) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+          database.execSQL(
+              "CREATE VIRTUAL TABLE IF NOT EXISTS `task_search` USING FTS4(`title` TEXT, `notes` TEXT, `tags` TEXT, `comments` TEXT)");
+          database.execSQL(
+              "INSERT INTO `task_search` (`rowid`, `title`, `notes`, `tags`, `comments`) SELECT `_id`, `title`, `notes`, "
+                  + SEARCH_TAGS.replace("new.", "tasks.")
+                  + ", "
+                  + SEARCH_COMMENTS.replace("new.", "tasks.")
+                  + " FROM `tasks`");
+          createSearchTriggers(database);
+        }
+      };
+
+  private static final Migration MIGRATION_72_73 =
+      new Migration(72, 73) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+          database.execSQL("ALTER TABLE `tasks` ADD COLUMN `sort_title` TEXT");
+          database.execSQL("ALTER TABLE `tasks` ADD COLUMN `sort_due` INTEGER");
+          database.execSQL("ALTER TABLE `tasks` ADD COLUMN `sort_smart` INTEGER");
+          Cursor cursor =
+              database.query("SELECT `_id`, `title`, `dueDate`, `importance` FROM `tasks`");
+          try {
+            while (cursor.moveToNext()) {
+              long dueDate = cursor.getLong(2);
+              int priority = cursor.getInt(3);
+              ContentValues values = new ContentValues();
+              values.put("sort_title", Task.getSortTitle(cursor.getString(1)));
+              values.put("sort_due", Task.getSortDue(dueDate, priority));
+              values.put("sort_smart", Task.getSortSmart(dueDate, priority));
+              database.update(
+                  "tasks",
+                  SQLiteDatabase.CONFLICT_NONE,
+                  values,
+                  "_id = ?",
+                  new Object[] {cursor.getLong(0)});
+            }
+          } finally {
+            cursor.close();
+          }
+          database.execSQL(
+              "CREATE INDEX IF NOT EXISTS `t_sort_title` ON `tasks` (`sort_title`)");
+          database.execSQL(
+              "CREATE INDEX IF NOT EXISTS `t_sort_due` ON `tasks` (`sort_due`, `sort_title`)");
+          database.execSQL(
+              "CREATE INDEX IF NOT EXISTS `t_sort_smart` ON `tasks` (`sort_smart`, `sort_title`)");
+          database.execSQL(
+              "CREATE INDEX IF NOT EXISTS `t_sort_importance` ON `tasks` (`importance`, `dueDate`)");
+          database.execSQL("CREATE INDEX IF NOT EXISTS `t_sort_modified` ON `tasks` (`modified`)");
+        }
+      };
+
+  private static final Migration MIGRATION_73_74 =
+      new Migration(73, 74) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+          database.execSQL("CREATE INDEX IF NOT EXISTS `alarm_task` ON `alarms` (`task`)");
+          database.execSQL(
+              "CREATE INDEX IF NOT EXISTS `cd_calendar_object` ON `caldav_tasks` (`cd_calendar`, `cd_object`)");
+          database.execSQL(
+              "CREATE INDEX IF NOT EXISTS `cd_remote_id` ON `caldav_tasks` (`cd_remote_id`)");
+          database.execSQL("DROP INDEX IF EXISTS `gt_list_parent`");
+          database.execSQL(
+              "CREATE INDEX IF NOT EXISTS `gt_list_parent` ON `google_tasks` (`gt_list_id`, `gt_parent`, `gt_order`)");
+          database.execSQL(
+              "CREATE INDEX IF NOT EXISTS `gt_remote_id` ON `google_tasks` (`gt_remote_id`)");
+          database.execSQL(
+              "CREATE INDEX IF NOT EXISTS `ua_target` ON `userActivity` (`target_id`)");
+        }
+      };
+
+  private static final Migration MIGRATION_74_75 =
+      new Migration(74, 75) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+          Cursor cursor = database.query("SELECT `_id`, `title` FROM `tasks`");
+          try {
+            while (cursor.moveToNext()) {
+              ContentValues values = new ContentValues();
+              values.put("sort_title", Task.getSortTitle(cursor.getString(1)));
+              database.update(
+                  "tasks",
+                  SQLiteDatabase.CONFLICT_NONE,
+                  values,
+                  "_id = ?",
+                  new Object[] {cursor.getLong(0)});
+            }
+          } finally {
+            cursor.close();
+          }
+          database.execSQL("DROP INDEX IF EXISTS `t_sort_importance`");
+          database.execSQL(
+              "CREATE INDEX IF NOT EXISTS `t_sort_importance` ON `tasks` (`importance`, `sort_due`, `sort_title`)");
+        }
+      };
+
   public static final Migration[] MIGRATIONS =
       new Migration[] {
         MIGRATION_35_36,
@@ -382,9 +528,59 @@ public class Migrations {
         MIGRATION_65_66,
         MIGRATION_66_67,
         MIGRATION_67_68,
-        MIGRATION_68_69
+        MIGRATION_68_69,
+        MIGRATION_69_70,
+        MIGRATION_70_71,
+        MIGRATION_71_72,
+        MIGRATION_72_73,
+        MIGRATION_73_74,
+        MIGRATION_74_75
       };
 
+  public static final RoomDatabase.Callback CALLBACK =
+      new RoomDatabase.Callback() {
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+          createSearchTriggers(db);
+        }
+      };
+
+  private static final String SEARCH_TAGS =
+      "(SELECT group_concat(`name`, ' ') FROM `tags` WHERE `task` = new.`_id`)";
+  private static final String SEARCH_COMMENTS =
+      "(SELECT group_concat(`message`, ' ') FROM `userActivity` WHERE `target_id` = new.`remoteId`)";
+
+  /** Keeps task_search in sync with tasks, tags and userActivity */
+  public static void createSearchTriggers(SupportSQLiteDatabase db) {
+    db.execSQL(
+        "CREATE TRIGGER IF NOT EXISTS `task_search_insert` AFTER INSERT ON `tasks` BEGIN "
+            + "INSERT INTO `task_search` (`rowid`, `title`, `notes`, `tags`, `comments`) VALUES (new.`_id`, new.`title`, new.`notes`, "
+            + SEARCH_TAGS
+            + ", "
+            + SEARCH_COMMENTS
+            + "); END");
+    db.execSQL(
+        "CREATE TRIGGER IF NOT EXISTS `task_search_update` AFTER UPDATE OF `title`, `notes` ON `tasks` BEGIN "
+            + "UPDATE `task_search` SET `title` = new.`title`, `notes` = new.`notes` WHERE `rowid` = new.`_id`; END");
+    db.execSQL(
+        "CREATE TRIGGER IF NOT EXISTS `task_search_delete` AFTER DELETE ON `tasks` BEGIN "
+            + "DELETE FROM `task_search` WHERE `rowid` = old.`_id`; END");
+    for (String event : new String[] {"INSERT", "UPDATE", "DELETE"}) {
+      String row = event.equals("DELETE") ? "old" : "new";
+      db.execSQL(
+          String.format(
+              "CREATE TRIGGER IF NOT EXISTS `task_search_tags_%s` AFTER %s ON `tags` BEGIN "
+                  + "UPDATE `task_search` SET `tags` = (SELECT group_concat(`name`, ' ') FROM `tags` WHERE `task` = %s.`task`) WHERE `rowid` = %s.`task`; END",
+              event.toLowerCase(), event, row, row));
+      db.execSQL(
+          String.format(
+              "CREATE TRIGGER IF NOT EXISTS `task_search_comments_%s` AFTER %s ON `userActivity` BEGIN "
+                  + "UPDATE `task_search` SET `comments` = (SELECT group_concat(`message`, ' ') FROM `userActivity` WHERE `target_id` = %s.`target_id`) "
+                  + "WHERE `rowid` = (SELECT `_id` FROM `tasks` WHERE `remoteId` = %s.`target_id`); END",
+              event.toLowerCase(), event, row, row));
+    }
+  }
+
   private static Migration NOOP(int from, int to) {
     return new Migration(from, to) {
       @Override
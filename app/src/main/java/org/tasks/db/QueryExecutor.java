@@ -0,0 +1,108 @@
+package org.tasks.db;
+
+import static org.tasks.time.DateTimeUtils.currentTimeMillis;
+
+import androidx.annotation.NonNull;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.inject.Inject;
+import org.tasks.injection.ApplicationScope;
+import timber.log.Timber;
+
+/**
+ * Runs database reads on a small pool ordered by priority, so the list on screen is loaded before
+ * drawer counts and other background reads. Work disposed before it starts is dropped without
+ * touching the database.
+ */
+@ApplicationScope
+public class QueryExecutor {
+
+  public static final int PRIORITY_LIST = 0;
+  public static final int PRIORITY_COUNT = 1;
+  public static final int PRIORITY_BACKGROUND = 2;
+
+  private static final int THREADS = 2;
+
+  private final ThreadPoolExecutor executor =
+      new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS, new PriorityBlockingQueue<>());
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicLong completed = new AtomicLong();
+  private final AtomicLong totalLatency = new AtomicLong();
+  private final Executor[] executors = new Executor[PRIORITY_BACKGROUND + 1];
+  private final Scheduler[] schedulers = new Scheduler[PRIORITY_BACKGROUND + 1];
+
+  @Inject
+  public QueryExecutor() {
+    executor.allowCoreThreadTimeOut(true);
+    for (int priority = PRIORITY_LIST; priority <= PRIORITY_BACKGROUND; priority++) {
+      int p = priority;
+      executors[priority] =
+          command -> executor.execute(new Query(p, sequence.getAndIncrement(), command));
+      schedulers[priority] = Schedulers.from(executors[priority]);
+    }
+  }
+
+  public Executor getExecutor(int priority) {
+    return executors[priority];
+  }
+
+  public Scheduler getScheduler(int priority) {
+    return schedulers[priority];
+  }
+
+  /** @return number of reads waiting for a thread */
+  public int getQueueDepth() {
+    return executor.getQueue().size();
+  }
+
+  /** @return average time from submission to completion in milliseconds */
+  public long getAverageLatency() {
+    long count = completed.get();
+    return count == 0 ? 0 : totalLatency.get() / count;
+  }
+
+  private class Query implements Runnable, Comparable<Query> {
+
+    private final int priority;
+    private final long sequence;
+    private final Runnable command;
+    private final long queued = currentTimeMillis();
+
+    Query(int priority, long sequence, Runnable command) {
+      this.priority = priority;
+      this.sequence = sequence;
+      this.command = command;
+    }
+
+    @Override
+    public void run() {
+      long start = currentTimeMillis();
+      try {
+        command.run();
+      } finally {
+        long end = currentTimeMillis();
+        completed.incrementAndGet();
+        totalLatency.addAndGet(end - queued);
+        Timber.v(
+            "priority %s: waited %sms, ran %sms, %s queued, %sms average",
+            priority,
+            start - queued,
+            end - start,
+            getQueueDepth(),
+            getAverageLatency());
+      }
+    }
+
+    @Override
+    public int compareTo(@NonNull Query other) {
+      return priority == other.priority
+          ? Long.compare(sequence, other.sequence)
+          : Integer.compare(priority, other.priority);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package org.tasks.db;
+
+import com.google.gson.GsonBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Inject;
+import org.tasks.injection.ApplicationScope;
+import timber.log.Timber;
+
+/**
+ * Latency histogram, rows returned and main thread executions for each SQL statement, recorded by
+ * {@link InstrumentedOpenHelperFactory}. Statements are keyed by their SQL, bound arguments are not
+ * part of the key.
+ */
+@ApplicationScope
+public class QueryStats {
+
+  /** upper bound in milliseconds of each histogram bucket, the last bucket is unbounded */
+  static final long[] BUCKETS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024};
+
+  private static final int MAX_STATEMENTS = 250;
+  private static final int MAX_SQL_LENGTH = 500;
+
+  private final Map<String, Stat> stats = new LinkedHashMap<>();
+
+  @Inject
+  public QueryStats() {}
+
+  synchronized void record(String sql, long millis, int rows, boolean mainThread) {
+    Timber.v("%sms: %s", millis, sql);
+    String key = sql.length() > MAX_SQL_LENGTH ? sql.substring(0, MAX_SQL_LENGTH) : sql;
+    Stat stat = stats.get(key);
+    if (stat == null) {
+      if (stats.size() >= MAX_STATEMENTS) {
+        return;
+      }
+      stat = new Stat(key);
+      stats.put(key, stat);
+    }
+    stat.add(millis, rows, mainThread);
+  }
+
+  /** @return a copy of every statement, most total time first */
+  public synchronized List<Stat> getStats() {
+    List<Stat> result = new ArrayList<>();
+    for (Stat stat : stats.values()) {
+      result.add(stat.copy());
+    }
+    Collections.sort(result, (l, r) -> Long.compare(r.totalMillis, l.totalMillis));
+    return result;
+  }
+
+  public String toJson() {
+    return new GsonBuilder().setPrettyPrinting().create().toJson(getStats());
+  }
+
+  public synchronized void reset() {
+    stats.clear();
+  }
+
+  public static class Stat {
+
+    private final String sql;
+    private final long[] histogram = new long[BUCKETS.length + 1];
+    private long count;
+    private long rows;
+    private long mainThread;
+    private long totalMillis;
+    private long maxMillis;
+
+    Stat(String sql) {
+      this.sql = sql;
+    }
+
+    void add(long millis, int rows, boolean mainThread) {
+      int bucket = 0;
+      while (bucket < BUCKETS.length && millis > BUCKETS[bucket]) {
+        bucket++;
+      }
+      histogram[bucket]++;
+      count++;
+      this.rows += Math.max(rows, 0);
+      if (mainThread) {
+        this.mainThread++;
+      }
+      totalMillis += millis;
+      maxMillis = Math.max(maxMillis, millis);
+    }
+
+    Stat copy() {
+      Stat copy = new Stat(sql);
+      System.arraycopy(histogram, 0, copy.histogram, 0, histogram.length);
+      copy.count = count;
+      copy.rows = rows;
+      copy.mainThread = mainThread;
+      copy.totalMillis = totalMillis;
+      copy.maxMillis = maxMillis;
+      return copy;
+    }
+
+    public String getSql() {
+      return sql;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getRows() {
+      return rows;
+    }
+
+    public long getMainThread() {
+      return mainThread;
+    }
+
+    public long getTotalMillis() {
+      return totalMillis;
+    }
+
+    public long getMaxMillis() {
+      return maxMillis;
+    }
+
+    /** @return upper bound in milliseconds that the given fraction of executions completed within */
+    public long getPercentile(double fraction) {
+      long target = (long) Math.ceil(count * fraction);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS.length; i++) {
+        seen += histogram[i];
+        if (seen >= target) {
+          return BUCKETS[i];
+        }
+      }
+      return maxMillis;
+    }
+  }
+}
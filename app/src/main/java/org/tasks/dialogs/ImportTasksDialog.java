@@ -49,6 +49,7 @@ public class ImportTasksDialog extends InjectingNativeDialogFragment {
     setCancelable(false);
     switch (extension) {
       case "json":
+      case "gz":
         jsonImporter.importTasks(getActivity(), data, progressDialog);
         tracker.reportEvent(Tracking.Events.IMPORT_JSON);
         break;
@@ -7,6 +7,7 @@ import android.content.Context;
 import android.net.Uri;
 import android.os.Bundle;
 import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+import com.google.api.client.googleapis.media.MediaHttpUploader;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.http.InputStreamContent;
@@ -14,11 +15,14 @@ import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.GenericJson;
 import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.Drive.Files.Create;
 import com.google.api.services.drive.DriveRequest;
 import com.google.api.services.drive.DriveScopes;
 import com.google.api.services.drive.model.File;
 import com.google.common.base.Strings;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.List;
 import javax.inject.Inject;
@@ -34,6 +38,8 @@ import timber.log.Timber;
 public class DriveInvoker {
 
   private static final String MIME_FOLDER = "application/vnd.google-apps.folder";
+  // upload in resumable chunks so a dropped connection only costs the current chunk
+  private static final int UPLOAD_CHUNK_SIZE = 4 * MediaHttpUploader.MINIMUM_CHUNK_SIZE;
 
   private final Context context;
   private final Preferences preferences;
@@ -103,9 +109,15 @@ public class DriveInvoker {
             .setParents(Collections.singletonList(folderId))
             .setMimeType(mime)
             .setName(FileHelper.getFilename(context, uri));
-    InputStreamContent content =
-        new InputStreamContent(mime, context.getContentResolver().openInputStream(uri));
-    execute(service.files().create(metadata, content));
+    InputStream is = context.getContentResolver().openInputStream(uri);
+    InputStreamContent content = new InputStreamContent(mime, new BufferedInputStream(is));
+    Create create = service.files().create(metadata, content);
+    create.getMediaHttpUploader().setDirectUploadEnabled(false).setChunkSize(UPLOAD_CHUNK_SIZE);
+    try {
+      execute(create);
+    } finally {
+      is.close();
+    }
   }
 
   private synchronized <T> T execute(DriveRequest<T> request) throws IOException {
@@ -0,0 +1,182 @@
+package org.tasks.files;
+
+import static java.util.Arrays.asList;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.util.LruCache;
+import android.widget.ImageView;
+import androidx.annotation.Nullable;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import io.reactivex.Maybe;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import javax.inject.Inject;
+import org.tasks.R;
+import org.tasks.injection.ApplicationScope;
+import org.tasks.injection.ForApplication;
+import org.tasks.preferences.Preferences;
+import timber.log.Timber;
+
+/**
+ * Sampled bitmaps for attachment and comment pictures, kept in memory and on disk so that a
+ * picture is only decoded from its source once per size
+ */
+@ApplicationScope
+public class ThumbnailCache {
+
+  private static final String DIRECTORY = "thumbnails";
+  private static final int MAX_DISK_ENTRIES = 250;
+  private static final int JPEG_QUALITY = 85;
+
+  private final Context context;
+  private final Preferences preferences;
+  private final LruCache<String, Bitmap> memoryCache;
+
+  @Inject
+  public ThumbnailCache(@ForApplication Context context, Preferences preferences) {
+    this.context = context;
+    this.preferences = preferences;
+    memoryCache =
+        new LruCache<String, Bitmap>((int) (Runtime.getRuntime().maxMemory() / 1024 / 16)) {
+          @Override
+          protected int sizeOf(String key, Bitmap bitmap) {
+            return bitmap.getRowBytes() * bitmap.getHeight() / 1024;
+          }
+        };
+  }
+
+  /**
+   * Sets the thumbnail immediately if it is in memory, otherwise decodes it off the main thread. A
+   * load that is still pending for the view is cancelled, so a recycled view never shows a
+   * previous picture.
+   */
+  public void load(ImageView view, Uri uri, int width, int height) {
+    cancel(view);
+    Bitmap cached = memoryCache.get(getKey(uri, width, height));
+    if (cached != null) {
+      view.setImageBitmap(cached);
+      return;
+    }
+    view.setImageBitmap(null);
+    view.setTag(
+        R.id.thumbnail_load,
+        Maybe.fromCallable(() -> get(uri, width, height))
+            .subscribeOn(Schedulers.io())
+            .observeOn(AndroidSchedulers.mainThread())
+            .doFinally(() -> view.setTag(R.id.thumbnail_load, null))
+            .subscribe(view::setImageBitmap, Timber::e));
+  }
+
+  /** Cancels a pending load, call this before showing something else in the view */
+  public void cancel(ImageView view) {
+    Object tag = view.getTag(R.id.thumbnail_load);
+    if (tag instanceof Disposable) {
+      ((Disposable) tag).dispose();
+    }
+    view.setTag(R.id.thumbnail_load, null);
+  }
+
+  /** Blocking lookup, must not be called on the main thread */
+  public @Nullable Bitmap get(Uri uri, int width, int height) {
+    String key = getKey(uri, width, height);
+    Bitmap bitmap = memoryCache.get(key);
+    if (bitmap != null) {
+      return bitmap;
+    }
+    File file = new File(getDirectory(), key);
+    if (file.exists()) {
+      bitmap = BitmapFactory.decodeFile(file.getAbsolutePath());
+    }
+    if (bitmap == null) {
+      bitmap = ImageHelper.sampleBitmap(context, uri, width, height);
+      if (bitmap == null) {
+        return null;
+      }
+      write(file, bitmap);
+    }
+    memoryCache.put(key, bitmap);
+    return bitmap;
+  }
+
+  /** Drops every cached size of {@code uri}, call this when the source is deleted */
+  public void invalidate(@Nullable Uri uri) {
+    if (uri == null) {
+      return;
+    }
+    String prefix = hash(uri);
+    for (String key : memoryCache.snapshot().keySet()) {
+      if (key.startsWith(prefix)) {
+        memoryCache.remove(key);
+      }
+    }
+    File[] files = getDirectory().listFiles((dir, name) -> name.startsWith(prefix));
+    if (files != null) {
+      for (File file : files) {
+        if (!file.delete()) {
+          Timber.e("Unable to delete %s", file);
+        }
+      }
+    }
+  }
+
+  private void write(File file, Bitmap bitmap) {
+    File directory = file.getParentFile();
+    if (!directory.exists() && !directory.mkdirs()) {
+      Timber.e("Unable to create %s", directory);
+      return;
+    }
+    try {
+      FileOutputStream os = new FileOutputStream(file);
+      try {
+        // JPEG has no alpha channel, transparent pictures stay lossless
+        if (bitmap.hasAlpha()) {
+          bitmap.compress(Bitmap.CompressFormat.PNG, 100, os);
+        } else {
+          bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, os);
+        }
+      } finally {
+        os.close();
+      }
+    } catch (IOException e) {
+      Timber.e(e);
+      return;
+    }
+    trim(directory);
+  }
+
+  private static void trim(File directory) {
+    File[] files = directory.listFiles();
+    if (files == null || files.length <= MAX_DISK_ENTRIES) {
+      return;
+    }
+    List<File> sorted = asList(files);
+    Collections.sort(sorted, (f1, f2) -> Long.compare(f2.lastModified(), f1.lastModified()));
+    for (File file : sorted.subList(MAX_DISK_ENTRIES, sorted.size())) {
+      if (!file.delete()) {
+        Timber.e("Unable to delete %s", file);
+      }
+    }
+  }
+
+  private File getDirectory() {
+    return new File(preferences.getCacheDirectory().getPath(), DIRECTORY);
+  }
+
+  private static String getKey(Uri uri, int width, int height) {
+    return String.format("%s_%sx%s", hash(uri), width, height);
+  }
+
+  private static String hash(Uri uri) {
+    return Hashing.sha1().hashString(uri.toString(), Charsets.UTF_8).toString();
+  }
+}
@@ -1,11 +1,8 @@
 package org.tasks.fragments;
 
-import static org.tasks.files.ImageHelper.sampleBitmap;
-
 import android.app.Activity;
 import android.content.DialogInterface;
 import android.content.Intent;
-import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Bundle;
@@ -36,6 +33,7 @@ import javax.inject.Inject;
 import org.tasks.R;
 import org.tasks.activities.CameraActivity;
 import org.tasks.dialogs.DialogBuilder;
+import org.tasks.files.ThumbnailCache;
 import org.tasks.injection.FragmentComponent;
 import org.tasks.preferences.Device;
 import org.tasks.preferences.Preferences;
@@ -51,6 +49,7 @@ public class CommentBarFragment extends TaskEditControlFragment {
   @Inject DialogBuilder dialogBuilder;
   @Inject Device device;
   @Inject Preferences preferences;
+  @Inject ThumbnailCache thumbnailCache;
 
   @BindView(R.id.commentButton)
   View commentButton;
@@ -191,13 +190,11 @@ public class CommentBarFragment extends TaskEditControlFragment {
   }
 
   private void setPictureButtonToPendingPicture() {
-    Bitmap bitmap =
-        sampleBitmap(
-            activity,
-            pendingCommentPicture,
-            pictureButton.getLayoutParams().width,
-            pictureButton.getLayoutParams().height);
-    pictureButton.setImageBitmap(bitmap);
+    thumbnailCache.load(
+        pictureButton,
+        pendingCommentPicture,
+        pictureButton.getLayoutParams().width,
+        pictureButton.getLayoutParams().height);
     commentButton.setVisibility(View.VISIBLE);
   }
 
@@ -218,6 +215,7 @@ public class CommentBarFragment extends TaskEditControlFragment {
   }
 
   private void resetPictureButton() {
+    thumbnailCache.cancel(pictureButton);
     TypedValue typedValue = new TypedValue();
     getActivity().getTheme().resolveAttribute(R.attr.colorOnPrimary, typedValue, true);
     Drawable drawable =
@@ -272,9 +272,11 @@ public class GoogleTaskSynchronizer {
 
   private void pushLocalChanges(GoogleTaskAccount account, GtasksInvoker gtasksInvoker)
       throws IOException {
-    List<Task> tasks = taskDao.getGoogleTasksToPush(account.getAccount());
-    for (Task task : tasks) {
-      pushTask(task, gtasksInvoker);
+    for (Long id : taskDao.getGoogleTasksToPush(account.getAccount())) {
+      Task task = taskDao.fetch(id);
+      if (task != null) {
+        pushTask(task, gtasksInvoker);
+      }
     }
   }
 
@@ -4,6 +4,7 @@ import dagger.Subcomponent;
 import org.tasks.jobs.AfterSaveWork;
 import org.tasks.jobs.BackupWork;
 import org.tasks.jobs.CleanupWork;
+import org.tasks.jobs.DatabaseMaintenanceWork;
 import org.tasks.jobs.DriveUploader;
 import org.tasks.jobs.MidnightRefreshWork;
 import org.tasks.jobs.RefreshWork;
@@ -25,4 +26,6 @@ public interface JobComponent {
   void inject(AfterSaveWork afterSaveWork);
 
   void inject(DriveUploader driveUploader);
+
+  void inject(DatabaseMaintenanceWork databaseMaintenanceWork);
 }
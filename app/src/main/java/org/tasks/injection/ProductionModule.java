@@ -2,21 +2,35 @@ package org.tasks.injection;
 
 import android.content.Context;
 import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.room.RoomDatabase.JournalMode;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
 import com.todoroo.astrid.dao.Database;
 import dagger.Module;
 import dagger.Provides;
+import org.tasks.R;
+import org.tasks.db.InstrumentedOpenHelperFactory;
 import org.tasks.db.Migrations;
+import org.tasks.db.QueryStats;
 import org.tasks.preferences.Preferences;
 
 @Module(includes = ApplicationModule.class)
 public class ProductionModule {
   @Provides
   @ApplicationScope
-  public Database getAppDatabase(@ForApplication Context context) {
-    return Room.databaseBuilder(context, Database.class, Database.NAME)
-        .allowMainThreadQueries() // TODO: remove me
-        .addMigrations(Migrations.MIGRATIONS)
-        .build();
+  public Database getAppDatabase(
+      @ForApplication Context context, Preferences preferences, QueryStats queryStats) {
+    RoomDatabase.Builder<Database> builder =
+        Room.databaseBuilder(context, Database.class, Database.NAME)
+            .allowMainThreadQueries() // TODO: remove me
+            .addMigrations(Migrations.MIGRATIONS)
+            .addCallback(Migrations.CALLBACK)
+            .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING);
+    if (preferences.getBoolean(R.string.p_debug_query_stats, false)) {
+      builder.openHelperFactory(
+          new InstrumentedOpenHelperFactory(new FrameworkSQLiteOpenHelperFactory(), queryStats));
+    }
+    return builder.build();
   }
 
   @Provides
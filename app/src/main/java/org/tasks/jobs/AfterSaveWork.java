@@ -9,20 +9,26 @@ import android.net.Uri;
 import android.provider.CalendarContract;
 import android.text.TextUtils;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.work.Data;
 import androidx.work.Data.Builder;
 import androidx.work.WorkerParameters;
+import com.google.common.primitives.Longs;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.SyncFlags;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.reminders.ReminderService;
 import com.todoroo.astrid.repeats.RepeatTaskHelper;
 import com.todoroo.astrid.timers.TimerPlugin;
+import java.util.ArrayList;
+import java.util.List;
 import javax.inject.Inject;
 import org.tasks.LocalBroadcastManager;
 import org.tasks.R;
 import org.tasks.data.CaldavAccount;
 import org.tasks.data.CaldavDao;
+import org.tasks.data.Location;
+import org.tasks.data.LocationDao;
 import org.tasks.injection.ForApplication;
 import org.tasks.injection.InjectingWorker;
 import org.tasks.injection.JobComponent;
@@ -35,6 +41,8 @@ import timber.log.Timber;
 public class AfterSaveWork extends InjectingWorker {
 
   private static final String EXTRA_ID = "extra_id";
+  private static final String EXTRA_IDS = "extra_ids";
+  private static final String EXTRA_COMPLETED_CHANGED = "extra_completed_changed";
   private static final String EXTRA_ORIG_COMPLETED = "extra_was_completed";
   private static final String EXTRA_ORIG_DELETED = "extra_was_deleted";
   private static final String EXTRA_PUSH_GTASKS = "extra_push_gtasks";
@@ -53,18 +61,20 @@ public class AfterSaveWork extends InjectingWorker {
   @Inject SyncAdapters syncAdapters;
   @Inject WorkManager workManager;
   @Inject CaldavDao caldavDao;
+  @Inject LocationDao locationDao;
 
   public AfterSaveWork(@NonNull Context context, @NonNull WorkerParameters workerParams) {
     super(context, workerParams);
   }
 
-  static Data getInputData(Task current, Task original) {
+  /** @param changes columns written by the save, null if the whole task was written */
+  static Data getInputData(Task current, @Nullable Task original, @Nullable ContentValues changes) {
     boolean suppress = current.checkTransitory(SyncFlags.GTASKS_SUPPRESS_SYNC);
     Builder builder =
         new Builder()
-            .putLong(EXTRA_ID, current.getId())
-            .putBoolean(EXTRA_PUSH_GTASKS, !suppress && !current.googleTaskUpToDate(original))
-            .putBoolean(EXTRA_PUSH_CALDAV, !suppress && !current.caldavUpToDate(original))
+            .putLongArray(EXTRA_IDS, new long[] {current.getId()})
+            .putBoolean(EXTRA_PUSH_GTASKS, !suppress && Task.isGoogleTaskChange(changes))
+            .putBoolean(EXTRA_PUSH_CALDAV, !suppress && Task.isCaldavChange(changes))
             .putBoolean(EXTRA_SUPPRESS_REFRESH, current.checkTransitory(TRANS_SUPPRESS_REFRESH));
     if (original != null) {
       builder
@@ -74,20 +84,86 @@ public class AfterSaveWork extends InjectingWorker {
     return builder.build();
   }
 
+  /**
+   * @param ids tasks that were updated together
+   * @param changes columns written to every task, a written completion date is assumed to have
+   *     changed the completion state of every task
+   */
+  static Data getInputData(List<Long> ids, ContentValues changes) {
+    return new Builder()
+        .putLongArray(EXTRA_IDS, Longs.toArray(ids))
+        .putBoolean(EXTRA_COMPLETED_CHANGED, changes.containsKey(Task.COMPLETION_DATE.name))
+        .putBoolean(EXTRA_PUSH_GTASKS, Task.isGoogleTaskChange(changes))
+        .putBoolean(EXTRA_PUSH_CALDAV, Task.isCaldavChange(changes))
+        .build();
+  }
+
   @Override
   protected Result run() {
     Data data = getInputData();
-    long taskId = data.getLong(EXTRA_ID, -1);
-    Task task = taskDao.fetch(taskId);
-    if (task == null) {
+    long[] ids = data.getLongArray(EXTRA_IDS);
+    if (ids == null) {
+      // work enqueued before batching was introduced
+      long id = data.getLong(EXTRA_ID, -1);
+      if (id == -1) {
+        return Result.failure();
+      }
+      ids = new long[] {id};
+    }
+    return taskDao.cached(() -> run(data, Longs.asList(ids)));
+  }
+
+  private Result run(Data data, List<Long> ids) {
+    List<Task> tasks = taskDao.fetch(ids);
+    if (tasks.isEmpty()) {
       Timber.e("Missing saved task");
       return Result.failure();
     }
 
+    List<Long> cancel = new ArrayList<>();
+    List<Long> register = new ArrayList<>();
+    for (Task task : tasks) {
+      afterSave(data, task, cancel, register);
+    }
+
+    if (!cancel.isEmpty()) {
+      notificationManager.cancel(cancel);
+      geofenceApi.cancel(getGeofences(cancel));
+    }
+    if (!register.isEmpty()) {
+      geofenceApi.register(getGeofences(register));
+    }
+
+    if ((data.getBoolean(EXTRA_PUSH_GTASKS, false) && syncAdapters.isGoogleTaskSyncEnabled())
+        || (data.getBoolean(EXTRA_PUSH_CALDAV, false) && syncAdapters.isCaldavSyncEnabled())) {
+      workManager.sync(false);
+    }
+
+    if (!data.getBoolean(EXTRA_SUPPRESS_REFRESH, false)) {
+      localBroadcastManager.broadcastRefresh();
+    }
+
+    return Result.success();
+  }
+
+  private List<Location> getGeofences(List<Long> taskIds) {
+    List<Location> locations = new ArrayList<>();
+    for (Long taskId : taskIds) {
+      Location location = locationDao.getGeofences(taskId);
+      if (location != null) {
+        locations.add(location);
+      }
+    }
+    return locations;
+  }
+
+  private void afterSave(Data data, Task task, List<Long> cancel, List<Long> register) {
+    long taskId = task.getId();
     reminderService.scheduleAlarm(task);
 
     boolean completionDateModified =
-        !task.getCompletionDate().equals(data.getLong(EXTRA_ORIG_COMPLETED, 0));
+        data.getBoolean(EXTRA_COMPLETED_CHANGED, false)
+            || !task.getCompletionDate().equals(data.getLong(EXTRA_ORIG_COMPLETED, 0));
     boolean deletionDateModified =
         !task.getDeletionDate().equals(data.getLong(EXTRA_ORIG_DELETED, 0));
 
@@ -95,10 +171,9 @@ public class AfterSaveWork extends InjectingWorker {
     boolean justDeleted = deletionDateModified && task.isDeleted();
 
     if (justCompleted || justDeleted) {
-      notificationManager.cancel(taskId);
-      geofenceApi.cancel(taskId);
+      cancel.add(taskId);
     } else if (completionDateModified || deletionDateModified) {
-      geofenceApi.register(taskId);
+      register.add(taskId);
     }
 
     if (justCompleted) {
@@ -112,17 +187,7 @@ public class AfterSaveWork extends InjectingWorker {
       }
     }
 
-    if ((data.getBoolean(EXTRA_PUSH_GTASKS, false) && syncAdapters.isGoogleTaskSyncEnabled())
-        || (data.getBoolean(EXTRA_PUSH_CALDAV, false) && syncAdapters.isCaldavSyncEnabled())) {
-      workManager.sync(false);
-    }
-
     refreshScheduler.scheduleRefresh(task);
-    if (!data.getBoolean(EXTRA_SUPPRESS_REFRESH, false)) {
-      localBroadcastManager.broadcastRefresh();
-    }
-
-    return Result.success();
   }
 
   private void updateCalendarTitle(Task task) {
@@ -10,8 +10,10 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.net.Uri;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.documentfile.provider.DocumentFile;
 import androidx.work.WorkerParameters;
+import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import java.io.File;
 import java.io.FileFilter;
@@ -31,7 +33,8 @@ import timber.log.Timber;
 public class BackupWork extends RepeatingWorker {
 
   public static final int DAYS_TO_KEEP_BACKUP = 7;
-  static final String BACKUP_FILE_NAME_REGEX = "auto\\.[-\\d]+\\.json";
+  public static final String BACKUP_FILE_NAME_REGEX = "auto\\.[-\\d]+(\\.delta)?\\.json(\\.gz)?";
+  private static final String DELTA_FILE_NAME_REGEX = "auto\\.[-\\d]+\\.delta\\.json(\\.gz)?";
   static final Predicate<String> FILENAME_FILTER = f -> f.matches(BACKUP_FILE_NAME_REGEX);
   static final FileFilter FILE_FILTER = f -> FILENAME_FILTER.apply(f.getName());
   private static final Comparator<File> BY_LAST_MODIFIED =
@@ -55,7 +58,25 @@ public class BackupWork extends RepeatingWorker {
 
     List<File> files = Arrays.asList(fileArray);
     Collections.sort(files, BY_LAST_MODIFIED);
-    return newArrayList(skip(files, keepNewest));
+    return getDeleteList(files, File::getName, keepNewest);
+  }
+
+  /**
+   * @param files backups sorted newest first
+   * @return backups beyond the newest {@code keepNewest}, keeping any older backups needed to
+   *     restore a retained incremental backup
+   */
+  public static <T> List<T> getDeleteList(
+      List<T> files, Function<T, String> getName, int keepNewest) {
+    int keep = Math.min(keepNewest, files.size());
+    while (keep > 0 && keep < files.size() && isDelta(getName.apply(files.get(keep - 1)))) {
+      keep++;
+    }
+    return newArrayList(skip(files, keep));
+  }
+
+  public static boolean isDelta(@Nullable String filename) {
+    return filename != null && filename.matches(DELTA_FILE_NAME_REGEX);
   }
 
   private static List<DocumentFile> getDeleteList(DocumentFile[] fileArray) {
@@ -66,7 +87,7 @@ public class BackupWork extends RepeatingWorker {
     List<DocumentFile> files = Arrays.asList(fileArray);
     files = newArrayList(filter(files, file -> FILENAME_FILTER.apply(file.getName())));
     Collections.sort(files, DOCUMENT_FILE_COMPARATOR);
-    return newArrayList(skip(files, DAYS_TO_KEEP_BACKUP));
+    return getDeleteList(files, DocumentFile::getName, DAYS_TO_KEEP_BACKUP);
   }
 
   @Override
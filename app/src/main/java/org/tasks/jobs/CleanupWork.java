@@ -12,6 +12,7 @@ import org.tasks.data.TaskAttachmentDao;
 import org.tasks.data.UserActivity;
 import org.tasks.data.UserActivityDao;
 import org.tasks.files.FileHelper;
+import org.tasks.files.ThumbnailCache;
 import org.tasks.injection.InjectingWorker;
 import org.tasks.injection.JobComponent;
 import org.tasks.location.GeofenceApi;
@@ -29,6 +30,7 @@ public class CleanupWork extends InjectingWorker {
   @Inject AlarmService alarmService;
   @Inject TaskAttachmentDao taskAttachmentDao;
   @Inject UserActivityDao userActivityDao;
+  @Inject ThumbnailCache thumbnailCache;
 
   public CleanupWork(@NonNull Context context, @NonNull WorkerParameters workerParams) {
     super(context, workerParams);
@@ -50,10 +52,12 @@ public class CleanupWork extends InjectingWorker {
       geofenceApi.cancel(task);
       for (TaskAttachment attachment : taskAttachmentDao.getAttachments(task)) {
         FileHelper.delete(context, attachment.parseUri());
+        thumbnailCache.invalidate(attachment.parseUri());
         taskAttachmentDao.delete(attachment);
       }
       for (UserActivity comment : userActivityDao.getComments(task)) {
         FileHelper.delete(context, comment.getPictureUri());
+        thumbnailCache.invalidate(comment.getPictureUri());
         userActivityDao.delete(comment);
       }
     }
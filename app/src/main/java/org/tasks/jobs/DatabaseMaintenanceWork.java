@@ -0,0 +1,79 @@
+package org.tasks.jobs;
+
+import static com.todoroo.andlib.utility.AndroidUtilities.atLeastMarshmallow;
+import static com.todoroo.andlib.utility.AndroidUtilities.atLeastOreo;
+
+import android.content.Context;
+import android.database.Cursor;
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.work.WorkerParameters;
+import com.todoroo.astrid.dao.Database;
+import java.io.File;
+import javax.inject.Inject;
+import org.tasks.injection.InjectingWorker;
+import org.tasks.injection.JobComponent;
+import timber.log.Timber;
+
+/**
+ * Refreshes query planner statistics, returns free pages to the file system and truncates the
+ * write-ahead log. The first run switches the database to incremental auto vacuum, which requires
+ * a full VACUUM.
+ */
+public class DatabaseMaintenanceWork extends InjectingWorker {
+
+  private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+  @Inject Database database;
+
+  public DatabaseMaintenanceWork(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+    super(context, workerParams);
+  }
+
+  @NonNull
+  @Override
+  protected Result run() {
+    SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+    String before = describe(db);
+    if (pragma(db, "PRAGMA auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+      db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+      db.execSQL("VACUUM");
+    } else {
+      pragma(db, "PRAGMA incremental_vacuum");
+    }
+    if (atLeastOreo()) {
+      pragma(db, "PRAGMA optimize");
+    } else {
+      db.execSQL("ANALYZE");
+    }
+    pragma(db, "PRAGMA wal_checkpoint(" + (atLeastMarshmallow() ? "TRUNCATE" : "FULL") + ")");
+    Timber.i("before: %s, after: %s", before, describe(db));
+    return Result.success();
+  }
+
+  private static String describe(SupportSQLiteDatabase db) {
+    long pageSize = pragma(db, "PRAGMA page_size");
+    long pages = pragma(db, "PRAGMA page_count");
+    long free = pragma(db, "PRAGMA freelist_count");
+    return String.format(
+        "%s bytes, %s%% free pages, %s bytes wal",
+        pages * pageSize,
+        pages == 0 ? 0 : free * 100 / pages,
+        new File(db.getPath() + "-wal").length());
+  }
+
+  /** @return first column of the first row, or -1 if there is none */
+  private static long pragma(SupportSQLiteDatabase db, String sql) {
+    Cursor cursor = db.query(sql);
+    try {
+      return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+    } finally {
+      cursor.close();
+    }
+  }
+
+  @Override
+  protected void inject(JobComponent component) {
+    component.inject(this);
+  }
+}
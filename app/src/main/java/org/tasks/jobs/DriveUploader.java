@@ -1,11 +1,9 @@
 package org.tasks.jobs;
 
-import static com.google.common.collect.Iterables.skip;
-import static com.google.common.collect.Lists.newArrayList;
-
 import android.content.Context;
 import android.net.Uri;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.work.Data;
 import androidx.work.WorkerParameters;
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
@@ -34,6 +32,7 @@ public class DriveUploader extends InjectingWorker {
   private static final String FOLDER_NAME = "Tasks Backups";
   private static final String EXTRA_URI = "extra_uri";
   private static final String EXTRA_PURGE = "extra_purge";
+  private static final String EXTRA_HASH = "extra_hash";
   private static final Comparator<File> DRIVE_FILE_COMPARATOR =
       (f1, f2) -> Long.compare(f2.getModifiedTime().getValue(), f1.getModifiedTime().getValue());
 
@@ -46,26 +45,38 @@ public class DriveUploader extends InjectingWorker {
     super(context, workerParams);
   }
 
-  static Data getInputData(Uri uri, boolean purge) {
+  static Data getInputData(Uri uri, boolean purge, @Nullable String hash) {
     return new Data.Builder()
         .putString(EXTRA_URI, uri.toString())
         .putBoolean(EXTRA_PURGE, purge)
+        .putString(EXTRA_HASH, hash)
         .build();
   }
 
   private static List<File> getDeleteList(List<File> files) {
     Collections.sort(files, DRIVE_FILE_COMPARATOR);
-    return newArrayList(skip(files, BackupWork.DAYS_TO_KEEP_BACKUP));
+    return BackupWork.getDeleteList(files, File::getName, BackupWork.DAYS_TO_KEEP_BACKUP);
   }
 
   @Override
   protected Result run() {
     Data inputData = getInputData();
     Uri uri = Uri.parse(inputData.getString(EXTRA_URI));
+    String hash = inputData.getString(EXTRA_HASH);
     try {
       File folder = getFolder();
-      preferences.setString(R.string.p_google_drive_backup_folder, folder.getId());
-      drive.createFile(folder.getId(), uri);
+      String folderId = preferences.getStringValue(R.string.p_google_drive_backup_folder);
+      if (!folder.getId().equals(folderId)) {
+        preferences.setString(R.string.p_google_drive_backup_folder, folder.getId());
+        preferences.remove(R.string.p_google_drive_backup_hash);
+      }
+      if (hash != null
+          && hash.equals(preferences.getStringValue(R.string.p_google_drive_backup_hash))) {
+        Timber.d("Skipping upload, %s is unchanged", uri);
+      } else {
+        drive.createFile(folder.getId(), uri);
+        preferences.setString(R.string.p_google_drive_backup_hash, hash);
+      }
 
       if (inputData.getBoolean(EXTRA_PURGE, false)) {
         List<File> files = drive.getFilesByPrefix(folder.getId(), "auto.");
@@ -16,6 +16,7 @@ import static org.tasks.time.DateTimeUtils.printTimestamp;
 import android.annotation.SuppressLint;
 import android.app.AlarmManager;
 import android.app.PendingIntent;
+import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
@@ -50,11 +51,14 @@ import timber.log.Timber;
 public class WorkManager {
 
   private static final int MAX_CLEANUP_LENGTH = 500;
+  private static final int MAX_AFTER_SAVE_LENGTH = 500;
   private static final String TAG_BACKUP = "tag_backup";
   private static final String TAG_REFRESH = "tag_refresh";
   private static final String TAG_MIDNIGHT_REFRESH = "tag_midnight_refresh";
   private static final String TAG_SYNC = "tag_sync";
   private static final String TAG_BACKGROUND_SYNC = "tag_background_sync";
+  private static final String TAG_DATABASE_MAINTENANCE = "tag_database_maintenance";
+  private static final String TAG_DATABASE_MAINTENANCE_NOW = "tag_database_maintenance_now";
 
   private final Context context;
   private final Preferences preferences;
@@ -80,13 +84,25 @@ public class WorkManager {
     workManager = androidx.work.WorkManager.getInstance();
   }
 
-  public void afterSave(Task current, Task original) {
+  public void afterSave(Task current, @Nullable Task original, @Nullable ContentValues changes) {
     workManager.enqueue(
         new OneTimeWorkRequest.Builder(AfterSaveWork.class)
-            .setInputData(AfterSaveWork.getInputData(current, original))
+            .setInputData(AfterSaveWork.getInputData(current, original, changes))
             .build());
   }
 
+  /** @param changes columns written to every task in {@code ids} */
+  public void afterSave(List<Long> ids, ContentValues changes) {
+    batch(
+        ids,
+        MAX_AFTER_SAVE_LENGTH,
+        b ->
+            workManager.enqueue(
+                new OneTimeWorkRequest.Builder(AfterSaveWork.class)
+                    .setInputData(AfterSaveWork.getInputData(b, changes))
+                    .build()));
+  }
+
   public void cleanup(Iterable<Long> ids) {
     batch(
         ids,
@@ -206,14 +222,35 @@ public class WorkManager {
         Math.min(newDateTime(lastBackup).plusDays(1).getMillis(), midnight()));
   }
 
-  public void scheduleDriveUpload(Uri uri, boolean purge) {
+  public void scheduleDatabaseMaintenance() {
+    workManager.enqueueUniquePeriodicWork(
+        TAG_DATABASE_MAINTENANCE,
+        ExistingPeriodicWorkPolicy.KEEP,
+        new PeriodicWorkRequest.Builder(DatabaseMaintenanceWork.class, 7, TimeUnit.DAYS)
+            .setConstraints(getMaintenanceConstraints())
+            .build());
+  }
+
+  /** Run maintenance the next time the device is idle and charging, e.g. after a large purge */
+  public void maintainDatabase() {
+    workManager
+        .beginUniqueWork(
+            TAG_DATABASE_MAINTENANCE_NOW,
+            ExistingWorkPolicy.KEEP,
+            new Builder(DatabaseMaintenanceWork.class)
+                .setConstraints(getMaintenanceConstraints())
+                .build())
+        .enqueue();
+  }
+
+  public void scheduleDriveUpload(Uri uri, boolean purge, @Nullable String hash) {
     if (!preferences.getBoolean(R.string.p_google_drive_backup, false)) {
       return;
     }
 
     Builder builder =
         new Builder(DriveUploader.class)
-            .setInputData(DriveUploader.getInputData(uri, purge))
+            .setInputData(DriveUploader.getInputData(uri, purge, hash))
             .setConstraints(getNetworkConstraints());
     if (purge) {
       builder.setInitialDelay(new Random().nextInt(3600), TimeUnit.SECONDS);
@@ -232,6 +269,14 @@ public class WorkManager {
         .build();
   }
 
+  private Constraints getMaintenanceConstraints() {
+    Constraints.Builder builder = new Constraints.Builder().setRequiresCharging(true);
+    if (atLeastMarshmallow()) {
+      builder.setRequiresDeviceIdle(true);
+    }
+    return builder.build();
+  }
+
   private void enqueueUnique(String key, Class<? extends Worker> c, long time) {
     long delay = time - now();
     OneTimeWorkRequest.Builder builder = new Builder(c);
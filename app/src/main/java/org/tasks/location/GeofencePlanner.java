@@ -0,0 +1,226 @@
+package org.tasks.location;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newHashSet;
+
+import androidx.annotation.Nullable;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.tasks.data.Location;
+
+/**
+ * Picks which geofences to hand to the platform. Only the places closest to the device are
+ * registered, up to a fixed budget, and a boundary fence is placed around the device so that the
+ * plan can be recomputed once the device has moved far enough for the selection to change.
+ */
+public class GeofencePlanner {
+
+  public static final String BOUNDARY_ID = "boundary";
+
+  // platform limit is 100 per app, one is reserved for the boundary fence
+  private static final int DEFAULT_BUDGET = 99;
+  private static final float MIN_BOUNDARY_RADIUS = 250;
+  private static final double EARTH_RADIUS = 6371009;
+
+  private final int budget;
+
+  public GeofencePlanner() {
+    this(DEFAULT_BUDGET);
+  }
+
+  GeofencePlanner(int budget) {
+    this.budget = budget;
+  }
+
+  /**
+   * @param locations all active geofences
+   * @param position last known position of the device, or null if unknown
+   * @param registered request ids currently registered with the platform
+   */
+  public Plan plan(
+      List<Location> locations, @Nullable MapPosition position, Set<String> registered) {
+    List<Location> selected = new ArrayList<>();
+    Float boundary = null;
+    if (position == null) {
+      for (Location location : locations) {
+        if (selected.size() == budget) {
+          break;
+        }
+        if (isActive(location)) {
+          selected.add(location);
+        }
+      }
+    } else {
+      ListMultimap<String, Location> byPlace = ArrayListMultimap.create();
+      List<PlaceDistance> places = new ArrayList<>();
+      for (Location location : locations) {
+        if (!isActive(location)) {
+          continue;
+        }
+        String uid = location.place.getUid();
+        if (!byPlace.containsKey(uid)) {
+          places.add(new PlaceDistance(uid, distance(position, location)));
+        }
+        byPlace.put(uid, location);
+      }
+      Collections.sort(places);
+      double farthest = 0;
+      for (PlaceDistance place : places) {
+        List<Location> geofences = byPlace.get(place.uid);
+        if (selected.size() + geofences.size() > budget) {
+          boundary = (float) Math.max(MIN_BOUNDARY_RADIUS, (place.distance - farthest) / 2);
+          break;
+        }
+        selected.addAll(geofences);
+        farthest = place.distance;
+      }
+    }
+
+    Set<String> ids = newHashSet();
+    List<Location> add = newArrayList();
+    for (Location location : selected) {
+      String id = getRequestId(location);
+      ids.add(id);
+      if (!registered.contains(id)) {
+        add.add(location);
+      }
+    }
+    List<String> remove = newArrayList();
+    for (String id : registered) {
+      if (!ids.contains(id) && !BOUNDARY_ID.equals(id)) {
+        remove.add(id);
+      }
+    }
+    if (boundary == null && registered.contains(BOUNDARY_ID)) {
+      remove.add(BOUNDARY_ID);
+    } else if (boundary != null) {
+      ids.add(BOUNDARY_ID);
+    }
+    return new Plan(add, remove, ids, position, boundary);
+  }
+
+  /**
+   * Adds geofences to an applied plan without recomputing it
+   *
+   * @param current the last applied plan
+   * @param registered request ids currently registered with the platform
+   * @return null if the geofences exceed the budget or lie outside the boundary, where places left
+   *     out of the current plan could be closer
+   */
+  public @Nullable Plan extend(Plan current, Set<String> registered, List<Location> locations) {
+    Set<String> ids = newHashSet(registered);
+    List<Location> add = newArrayList();
+    for (Location location : locations) {
+      if (!isActive(location) || ids.contains(getRequestId(location))) {
+        continue;
+      }
+      if (current.boundary != null && distance(current.center, location) > current.boundary) {
+        return null;
+      }
+      ids.add(getRequestId(location));
+      add.add(location);
+    }
+    int size = ids.contains(BOUNDARY_ID) ? ids.size() - 1 : ids.size();
+    if (size > budget) {
+      return null;
+    }
+    return new Plan(add, new ArrayList<>(), ids, current.center, current.boundary);
+  }
+
+  public static String getRequestId(Location location) {
+    return Long.toString(location.getId());
+  }
+
+  private static boolean isActive(Location location) {
+    return location != null && (location.isArrival() || location.isDeparture());
+  }
+
+  static double distance(MapPosition position, Location location) {
+    double lat1 = Math.toRadians(position.getLatitude());
+    double lat2 = Math.toRadians(location.getLatitude());
+    double dLat = lat2 - lat1;
+    double dLng = Math.toRadians(location.getLongitude() - position.getLongitude());
+    double a =
+        Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+    return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+  }
+
+  private static class PlaceDistance implements Comparable<PlaceDistance> {
+    private final String uid;
+    private final double distance;
+
+    PlaceDistance(String uid, double distance) {
+      this.uid = uid;
+      this.distance = distance;
+    }
+
+    @Override
+    public int compareTo(PlaceDistance other) {
+      return Double.compare(distance, other.distance);
+    }
+  }
+
+  public static class Plan {
+    private final List<Location> add;
+    private final List<String> remove;
+    private final Set<String> registered;
+    private final MapPosition center;
+    private final Float boundary;
+
+    Plan(
+        List<Location> add,
+        List<String> remove,
+        Set<String> registered,
+        MapPosition center,
+        Float boundary) {
+      this.add = add;
+      this.remove = remove;
+      this.registered = registered;
+      this.center = center;
+      this.boundary = boundary;
+    }
+
+    /** geofences that need to be registered */
+    public List<Location> getAdd() {
+      return add;
+    }
+
+    /** request ids that need to be removed */
+    public List<String> getRemove() {
+      return remove;
+    }
+
+    /** request ids registered once this plan is applied */
+    public Set<String> getRegistered() {
+      return registered;
+    }
+
+    public MapPosition getCenter() {
+      return center;
+    }
+
+    /** radius of the boundary fence, or null if every geofence fits in the budget */
+    public @Nullable Float getBoundary() {
+      return boundary;
+    }
+
+    @Override
+    public String toString() {
+      return "Plan{"
+          + "add="
+          + add.size()
+          + ", remove="
+          + remove.size()
+          + ", registered="
+          + registered.size()
+          + ", boundary="
+          + boundary
+          + '}';
+    }
+  }
+}
@@ -522,7 +522,9 @@ public class BasicPreferences extends InjectingPreferenceActivity
       if (resultCode == RESULT_OK) {
         Uri uri = data.getData();
         String extension = FileHelper.getExtension(this, uri);
-        if (!("json".equalsIgnoreCase(extension) || "xml".equalsIgnoreCase(extension))) {
+        if (!("json".equalsIgnoreCase(extension)
+            || "gz".equalsIgnoreCase(extension)
+            || "xml".equalsIgnoreCase(extension))) {
           toaster.longToast(R.string.invalid_backup_file);
         } else {
           newImportTasksDialog(uri, extension).show(getFragmentManager(), FRAG_TAG_IMPORT_TASKS);
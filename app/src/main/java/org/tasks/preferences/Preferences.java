@@ -33,6 +33,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import org.tasks.BuildConfig;
 import org.tasks.R;
@@ -158,6 +159,17 @@ public class Preferences {
     }
   }
 
+  public Set<String> getRegisteredGeofences() {
+    return newHashSet(
+        prefs.getStringSet(context.getString(R.string.p_registered_geofences), emptySet()));
+  }
+
+  public void setRegisteredGeofences(Set<String> requestIds) {
+    Editor editor = prefs.edit();
+    editor.putStringSet(context.getString(R.string.p_registered_geofences), newHashSet(requestIds));
+    editor.apply();
+  }
+
   public int getDateShortcutNight() {
     return getMillisPerDayPref(R.string.p_date_shortcut_night, R.integer.default_night);
   }
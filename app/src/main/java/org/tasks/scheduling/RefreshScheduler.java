@@ -31,8 +31,8 @@ public class RefreshScheduler {
   }
 
   public synchronized void scheduleAll() {
-    for (Task task : taskDao.needsRefresh()) {
-      scheduleRefresh(task);
+    for (Long timestamp : taskDao.getRefreshTimestamps()) {
+      scheduleRefresh(timestamp);
     }
   }
 
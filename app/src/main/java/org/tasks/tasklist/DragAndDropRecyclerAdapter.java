@@ -6,40 +6,35 @@ import static androidx.recyclerview.widget.ItemTouchHelper.RIGHT;
 import static androidx.recyclerview.widget.ItemTouchHelper.UP;
 import static com.todoroo.andlib.utility.AndroidUtilities.assertMainThread;
 import static com.todoroo.andlib.utility.AndroidUtilities.assertNotMainThread;
+import static org.tasks.time.DateTimeUtils.currentTimeMillis;
 
 import android.graphics.Canvas;
 import android.os.Parcelable;
 import androidx.annotation.NonNull;
-import androidx.core.util.Pair;
-import androidx.recyclerview.widget.DiffUtil;
-import androidx.recyclerview.widget.DiffUtil.DiffResult;
 import androidx.recyclerview.widget.ItemTouchHelper;
-import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 import com.todoroo.astrid.activity.TaskListFragment;
 import com.todoroo.astrid.adapter.TaskAdapter;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.utility.Flags;
+import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
-import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.SerialDisposable;
 import io.reactivex.schedulers.Schedulers;
-import io.reactivex.subjects.PublishSubject;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
 import org.tasks.data.TaskContainer;
+import timber.log.Timber;
 
 public class DragAndDropRecyclerAdapter extends TaskListRecyclerAdapter {
 
-  private static final int LONG_LIST_SIZE = 500;
-
   private final TaskAdapter adapter;
   private final TaskListFragment taskList;
   private final RecyclerView recyclerView;
   private List<TaskContainer> list;
-  private PublishSubject<List<TaskContainer>> publishSubject = PublishSubject.create();
-  private CompositeDisposable disposables = new CompositeDisposable();
-  private Queue<Pair<List<TaskContainer>, DiffResult>> updates = new LinkedList<>();
+  private List<TaskContainer> pending;
+  private boolean calculating;
+  private final SerialDisposable disposable = new SerialDisposable();
   private boolean dragging;
 
   public DragAndDropRecyclerAdapter(
@@ -56,14 +51,6 @@ public class DragAndDropRecyclerAdapter extends TaskListRecyclerAdapter {
     this.taskList = taskList;
     this.list = list;
     new ItemTouchHelper(new ItemTouchHelperCallback()).attachToRecyclerView(recyclerView);
-    Pair<List<TaskContainer>, DiffResult> initial = Pair.create(list, null);
-    disposables.add(
-        publishSubject
-            .observeOn(Schedulers.computation())
-            .scan(initial, this::calculateDiff)
-            .skip(1)
-            .observeOn(AndroidSchedulers.mainThread())
-            .subscribe(this::applyDiff));
   }
 
   @Override
@@ -71,49 +58,94 @@ public class DragAndDropRecyclerAdapter extends TaskListRecyclerAdapter {
     return list.get(position);
   }
 
+  /** Lists submitted while a diff is running are conflated, only the latest one is displayed */
   @Override
   public void submitList(List<TaskContainer> list) {
-    publishSubject.onNext(list);
-  }
-
-  private Pair<List<TaskContainer>, DiffResult> calculateDiff(
-      Pair<List<TaskContainer>, DiffResult> last, List<TaskContainer> next) {
-    assertNotMainThread();
+    assertMainThread();
 
-    DiffCallback cb = new DiffCallback(last.first, next, adapter);
-    DiffResult result = DiffUtil.calculateDiff(cb, next.size() < LONG_LIST_SIZE);
+    pending = list;
+    calculateDiff();
+  }
 
-    return Pair.create(next, result);
+  private void calculateDiff() {
+    if (calculating || dragging || pending == null) {
+      return;
+    }
+    List<TaskContainer> from = list;
+    List<TaskContainer> to = pending;
+    pending = null;
+    calculating = true;
+    disposable.set(
+        Single.fromCallable(() -> calculateDiff(from, to))
+            .subscribeOn(Schedulers.computation())
+            .observeOn(AndroidSchedulers.mainThread())
+            .subscribe(
+                diff -> applyDiff(from, to, diff), throwable -> onDiffError(to, throwable)));
   }
 
-  private void applyDiff(Pair<List<TaskContainer>, DiffResult> update) {
+  /** Shows the list without animations rather than getting stuck on a failed diff */
+  private void onDiffError(List<TaskContainer> to, Throwable throwable) {
     assertMainThread();
 
-    updates.add(update);
+    Timber.e(throwable);
+    calculating = false;
+    if (pending == null && !dragging) {
+      list = to;
+      notifyDataSetChanged();
+    } else if (pending == null) {
+      pending = to;
+    }
+    calculateDiff();
+  }
+
+  private TaskListDiff calculateDiff(List<TaskContainer> from, List<TaskContainer> to) {
+    assertNotMainThread();
 
-    if (!dragging) {
-      drainQueue();
+    long start = currentTimeMillis();
+    long[] oldIds = new long[from.size()];
+    for (int i = 0; i < from.size(); i++) {
+      oldIds[i] = from.get(i).getId();
+    }
+    long[] newIds = new long[to.size()];
+    for (int i = 0; i < to.size(); i++) {
+      newIds[i] = to.get(i).getId();
     }
+    TaskListDiff diff =
+        TaskListDiff.calculate(
+            oldIds,
+            newIds,
+            (oldPosition, newPosition) -> {
+              TaskContainer oldItem = from.get(oldPosition);
+              TaskContainer newItem = to.get(newPosition);
+              return oldItem.equals(newItem) && oldItem.getIndent() == adapter.getIndent(newItem);
+            });
+    Timber.v(
+        "%sms: %s updates for %s -> %s rows",
+        currentTimeMillis() - start,
+        diff.size(),
+        from.size(),
+        to.size());
+    return diff;
   }
 
-  private void drainQueue() {
+  private void applyDiff(List<TaskContainer> from, List<TaskContainer> to, TaskListDiff diff) {
     assertMainThread();
 
-    Parcelable recyclerViewState = recyclerView.getLayoutManager().onSaveInstanceState();
-
-    Pair<List<TaskContainer>, DiffResult> update = updates.poll();
-    while (update != null) {
-      list = update.first;
-      update.second.dispatchUpdatesTo((ListUpdateCallback) this);
-      update = updates.poll();
+    calculating = false;
+    if (pending == null && !dragging && list == from) {
+      Parcelable recyclerViewState = recyclerView.getLayoutManager().onSaveInstanceState();
+      list = to;
+      diff.dispatchUpdatesTo(this);
+      recyclerView.getLayoutManager().onRestoreInstanceState(recyclerViewState);
+    } else if (pending == null) {
+      pending = to;
     }
-
-    recyclerView.getLayoutManager().onRestoreInstanceState(recyclerViewState);
+    calculateDiff();
   }
 
   @Override
   public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
-    disposables.dispose();
+    disposable.dispose();
   }
 
   @Override
@@ -229,7 +261,6 @@ public class DragAndDropRecyclerAdapter extends TaskListRecyclerAdapter {
       ViewHolder vh = (ViewHolder) viewHolder;
       vh.setMoving(false);
       dragging = false;
-      drainQueue();
       if (taskList.isActionModeActive()) {
         toggle(vh);
       } else {
@@ -252,6 +283,7 @@ public class DragAndDropRecyclerAdapter extends TaskListRecyclerAdapter {
       from = -1;
       to = -1;
       Flags.clear(Flags.TLFP_NO_INTERCEPT_TOUCH);
+      calculateDiff();
     }
 
     @Override
@@ -261,6 +293,7 @@ public class DragAndDropRecyclerAdapter extends TaskListRecyclerAdapter {
 
     private void moved(int from, int to, int indent) {
       adapter.moved(from, to, indent);
+      list = new ArrayList<>(list);
       TaskContainer task = list.remove(from);
       list.add(from < to ? to - 1 : to, task);
       taskList.loadTaskListContent();
@@ -0,0 +1,158 @@
+package org.tasks.tasklist;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Diff between two task lists keyed by task id. Updates are recorded in order so they can be
+ * calculated off the main thread and dispatched later. Rows that keep their relative order stay in
+ * place and every other row is moved once, so unlike {@link
+ * androidx.recyclerview.widget.DiffUtil} the cost does not grow with the square of the number of
+ * changes and moves are detected for long lists too.
+ */
+class TaskListDiff {
+
+  interface Callback {
+
+    /** Called for rows with the same id in both lists */
+    boolean areContentsTheSame(int oldPosition, int newPosition);
+  }
+
+  private static final int REMOVE = 0;
+  private static final int INSERT = 1;
+  private static final int MOVE = 2;
+  private static final int CHANGE = 3;
+
+  private final List<int[]> updates = new ArrayList<>();
+
+  private TaskListDiff() {}
+
+  /**
+   * @param oldIds task ids currently displayed
+   * @param newIds task ids to display
+   */
+  static TaskListDiff calculate(long[] oldIds, long[] newIds, Callback callback) {
+    TaskListDiff diff = new TaskListDiff();
+    Set<Long> keep = new HashSet<>();
+    for (long id : newIds) {
+      keep.add(id);
+    }
+    for (int i = oldIds.length - 1; i >= 0; i--) {
+      if (!keep.contains(oldIds[i])) {
+        diff.add(REMOVE, i, 0);
+      }
+    }
+    Map<Long, Integer> oldPositions = new HashMap<>();
+    List<Long> current = new ArrayList<>();
+    for (int i = 0; i < oldIds.length; i++) {
+      if (keep.contains(oldIds[i])) {
+        oldPositions.put(oldIds[i], i);
+        current.add(oldIds[i]);
+      }
+    }
+    Set<Long> stable = getStable(current, newIds, oldPositions);
+    for (int i = 0; i < newIds.length; i++) {
+      long id = newIds[i];
+      if (stable.contains(id)) {
+        continue;
+      }
+      // place the row directly after its predecessor, which is already in its final place
+      int to = i == 0 ? 0 : current.indexOf(newIds[i - 1]) + 1;
+      if (oldPositions.containsKey(id)) {
+        int from = current.indexOf(id);
+        current.remove(from);
+        if (from < to) {
+          to--;
+        }
+        current.add(to, id);
+        if (from != to) {
+          diff.add(MOVE, from, to);
+        }
+      } else {
+        current.add(to, id);
+        diff.add(INSERT, to, 0);
+      }
+    }
+    for (int i = 0; i < newIds.length; i++) {
+      Integer oldPosition = oldPositions.get(newIds[i]);
+      if (oldPosition != null && !callback.areContentsTheSame(oldPosition, i)) {
+        diff.add(CHANGE, i, 0);
+      }
+    }
+    return diff;
+  }
+
+  /** Longest run of rows that appear in the same order in both lists */
+  private static Set<Long> getStable(
+      List<Long> current, long[] newIds, Map<Long, Integer> oldPositions) {
+    Map<Long, Integer> positions = new HashMap<>();
+    for (int i = 0; i < current.size(); i++) {
+      positions.put(current.get(i), i);
+    }
+    int[] sequence = new int[current.size()];
+    int length = 0;
+    for (long id : newIds) {
+      if (oldPositions.containsKey(id)) {
+        sequence[length++] = positions.get(id);
+      }
+    }
+    // tails[k] is the index in sequence of the smallest tail of an increasing run of length k + 1
+    int[] tails = new int[length];
+    int[] previous = new int[length];
+    int longest = 0;
+    for (int i = 0; i < length; i++) {
+      int low = 0;
+      int high = longest;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (sequence[tails[mid]] < sequence[i]) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      previous[i] = low > 0 ? tails[low - 1] : -1;
+      tails[low] = i;
+      if (low == longest) {
+        longest++;
+      }
+    }
+    Set<Long> stable = new HashSet<>();
+    for (int i = longest > 0 ? tails[longest - 1] : -1; i >= 0; i = previous[i]) {
+      stable.add(current.get(sequence[i]));
+    }
+    return stable;
+  }
+
+  private void add(int type, int position, int to) {
+    updates.add(new int[] {type, position, to});
+  }
+
+  int size() {
+    return updates.size();
+  }
+
+  void dispatchUpdatesTo(ListUpdateCallback callback) {
+    for (int[] update : updates) {
+      switch (update[0]) {
+        case REMOVE:
+          callback.onRemoved(update[1], 1);
+          break;
+        case INSERT:
+          callback.onInserted(update[1], 1);
+          break;
+        case MOVE:
+          callback.onMoved(update[1], update[2]);
+          break;
+        case CHANGE:
+          callback.onChanged(update[1], 1, null);
+          break;
+      }
+    }
+  }
+}
@@ -28,6 +28,29 @@ public class ThemeAccent implements ColorPickerDialog.Pickable {
         R.style.OrangeAccent,
         R.style.DeepOrangeAccent
       };
+
+  /** colorAccent of each style in {@link #ACCENTS}, kept in sync with res/values/theme_*.xml */
+  static final int[] ACCENT_COLORS =
+      new int[] {
+        R.color.blue_grey_400,
+        R.color.red_a400,
+        R.color.pink_a400,
+        R.color.purple_a400,
+        R.color.deep_purple_a400,
+        R.color.indigo_a400,
+        R.color.blue_a400,
+        R.color.light_blue_a400,
+        R.color.cyan_a400,
+        R.color.teal_a400,
+        R.color.green_a400,
+        R.color.light_green_a400,
+        R.color.lime_a400,
+        R.color.yellow_a400,
+        R.color.amber_a400,
+        R.color.orange_a400,
+        R.color.deep_orange_a400
+      };
+
   public static final Parcelable.Creator<ThemeAccent> CREATOR =
       new Parcelable.Creator<ThemeAccent>() {
         @Override
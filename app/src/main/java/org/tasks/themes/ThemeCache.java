@@ -1,12 +1,8 @@
 package org.tasks.themes;
 
 import static androidx.core.content.ContextCompat.getColor;
-import static com.google.common.collect.ImmutableList.copyOf;
 
 import android.content.Context;
-import android.content.res.Resources;
-import android.util.TypedValue;
-import android.view.ContextThemeWrapper;
 import androidx.appcompat.app.AppCompatDelegate;
 import java.util.ArrayList;
 import java.util.List;
@@ -15,132 +11,152 @@ import org.tasks.R;
 import org.tasks.injection.ApplicationScope;
 import org.tasks.injection.ForApplication;
 
+/**
+ * Builds themes on first use. Palette colors are read from the tables in {@link ThemeColor} and
+ * {@link ThemeAccent} instead of resolving each style, so processes that never show UI only pay
+ * for the entries they ask for.
+ */
 @ApplicationScope
 public class ThemeCache {
 
-  private final List<ThemeBase> themes = new ArrayList<>();
-  private final List<ThemeColor> colors = new ArrayList<>();
-  private final List<ThemeAccent> accents = new ArrayList<>();
-  private final List<WidgetTheme> widgetThemes = new ArrayList<>();
-  private final ThemeColor untaggedColor;
+  private final Context context;
+  private final ThemeBase[] themes = new ThemeBase[5];
+  private final ThemeColor[] colors = new ThemeColor[ThemeColor.COLORS.length];
+  private final ThemeAccent[] accents = new ThemeAccent[ThemeAccent.ACCENTS.length];
+  private final WidgetTheme[] widgetThemes = new WidgetTheme[WidgetTheme.BACKGROUNDS.length];
+  private ThemeColor untaggedColor;
 
   @Inject
   public ThemeCache(@ForApplication Context context) {
-    Resources resources = context.getResources();
+    this.context = context;
+  }
+
+  public synchronized WidgetTheme getWidgetTheme(int index) {
+    if (widgetThemes[index] == null) {
+      widgetThemes[index] =
+          new WidgetTheme(
+              context.getResources().getStringArray(R.array.widget_background)[index],
+              index,
+              getColor(context, WidgetTheme.BACKGROUNDS[index]),
+              getColor(context, index == 0 ? R.color.black_87 : R.color.white_100),
+              getColor(context, index == 0 ? R.color.black_54 : R.color.white_70));
+    }
+    return widgetThemes[index];
+  }
+
+  public synchronized ThemeBase getThemeBase(int index) {
+    if (themes[index] == null) {
+      themes[index] = createThemeBase(index);
+    }
+    return themes[index];
+  }
 
-    themes.add(
-        new ThemeBase(
+  private ThemeBase createThemeBase(int index) {
+    switch (index) {
+      case 0:
+        return new ThemeBase(
             context.getString(R.string.theme_light),
             0,
             getColor(context, R.color.grey_50),
-            AppCompatDelegate.MODE_NIGHT_NO));
-    themes.add(
-        new ThemeBase(
+            AppCompatDelegate.MODE_NIGHT_NO);
+      case 1:
+        return new ThemeBase(
             context.getString(R.string.theme_black),
             1,
             getColor(context, R.color.widget_background_black),
-            AppCompatDelegate.MODE_NIGHT_YES));
-    themes.add(
-        new ThemeBase(
+            AppCompatDelegate.MODE_NIGHT_YES);
+      case 2:
+        return new ThemeBase(
             context.getString(R.string.theme_dark),
             2,
             getColor(context, R.color.md_background_dark),
-            AppCompatDelegate.MODE_NIGHT_YES));
-    themes.add(
-        new ThemeBase(
+            AppCompatDelegate.MODE_NIGHT_YES);
+      case 3:
+        return new ThemeBase(
             context.getString(R.string.theme_wallpaper),
             3,
             getColor(context, R.color.black_38),
-            AppCompatDelegate.MODE_NIGHT_YES));
-    themes.add(
-        new ThemeBase(
+            AppCompatDelegate.MODE_NIGHT_YES);
+      case 4:
+        return new ThemeBase(
             context.getString(R.string.theme_day_night),
             4,
             getColor(context, R.color.grey_50),
-            AppCompatDelegate.MODE_NIGHT_AUTO));
-
-    String[] colorNames = resources.getStringArray(R.array.colors);
-    for (int i = 0; i < ThemeColor.COLORS.length; i++) {
-      Resources.Theme theme = new ContextThemeWrapper(context, ThemeColor.COLORS[i]).getTheme();
-      colors.add(
-          new ThemeColor(
-              colorNames[i],
-              i,
-              resolveAttribute(theme, R.attr.colorPrimary),
-              resolveAttribute(theme, R.attr.colorPrimaryVariant),
-              resolveAttribute(theme, R.attr.colorOnPrimary),
-              resolveBoolean(theme, R.attr.dark_status_bar)));
-    }
-    String[] accentNames = resources.getStringArray(R.array.accents);
-    for (int i = 0; i < ThemeAccent.ACCENTS.length; i++) {
-      Resources.Theme theme = new ContextThemeWrapper(context, ThemeAccent.ACCENTS[i]).getTheme();
-      accents.add(new ThemeAccent(accentNames[i], i, resolveAttribute(theme, R.attr.colorAccent)));
-    }
-    String[] widgetBackgroundNames = resources.getStringArray(R.array.widget_background);
-    for (int i = 0; i < WidgetTheme.BACKGROUNDS.length; i++) {
-      widgetThemes.add(
-          new WidgetTheme(
-              widgetBackgroundNames[i],
-              i,
-              getColor(context, WidgetTheme.BACKGROUNDS[i]),
-              getColor(context, i == 0 ? R.color.black_87 : R.color.white_100),
-              getColor(context, i == 0 ? R.color.black_54 : R.color.white_70)));
+            AppCompatDelegate.MODE_NIGHT_AUTO);
+      default:
+        throw new IndexOutOfBoundsException("Invalid theme " + index);
     }
-    untaggedColor =
-        new ThemeColor(
-            null,
-            19,
-            getColor(context, R.color.tag_color_none_background),
-            0,
-            getColor(context, R.color.black_87),
-            false);
-  }
-
-  private static int resolveAttribute(Resources.Theme theme, int attribute) {
-    TypedValue typedValue = new TypedValue();
-    theme.resolveAttribute(attribute, typedValue, true);
-    return typedValue.data;
   }
 
-  public WidgetTheme getWidgetTheme(int index) {
-    return widgetThemes.get(index);
-  }
-
-  public ThemeBase getThemeBase(int index) {
-    return themes.get(index);
-  }
-
-  public ThemeColor getThemeColor(int index) {
-    return colors.get(index);
+  public synchronized ThemeColor getThemeColor(int index) {
+    if (colors[index] == null) {
+      boolean dark = ThemeColor.DARK_STATUS_BAR[index];
+      colors[index] =
+          new ThemeColor(
+              context.getResources().getStringArray(R.array.colors)[index],
+              index,
+              getColor(context, ThemeColor.PRIMARY[index]),
+              getColor(context, ThemeColor.PRIMARY_VARIANT[index]),
+              getColor(context, dark ? R.color.black_87 : R.color.white_100),
+              dark);
+    }
+    return colors[index];
   }
 
-  public ThemeAccent getThemeAccent(int index) {
-    return accents.get(index);
+  public synchronized ThemeAccent getThemeAccent(int index) {
+    if (accents[index] == null) {
+      accents[index] =
+          new ThemeAccent(
+              context.getResources().getStringArray(R.array.accents)[index],
+              index,
+              getColor(context, ThemeAccent.ACCENT_COLORS[index]));
+    }
+    return accents[index];
   }
 
-  public ThemeColor getUntaggedColor() {
+  public synchronized ThemeColor getUntaggedColor() {
+    if (untaggedColor == null) {
+      untaggedColor =
+          new ThemeColor(
+              null,
+              19,
+              getColor(context, R.color.tag_color_none_background),
+              0,
+              getColor(context, R.color.black_87),
+              false);
+    }
     return untaggedColor;
   }
 
-  private boolean resolveBoolean(Resources.Theme theme, int attribute) {
-    TypedValue typedValue = new TypedValue();
-    theme.resolveAttribute(attribute, typedValue, false);
-    return typedValue.data != 0;
-  }
-
   public List<ThemeAccent> getAccents() {
-    return copyOf(accents);
+    List<ThemeAccent> result = new ArrayList<>();
+    for (int i = 0; i < accents.length; i++) {
+      result.add(getThemeAccent(i));
+    }
+    return result;
   }
 
   public List<ThemeBase> getThemes() {
-    return copyOf(themes);
+    List<ThemeBase> result = new ArrayList<>();
+    for (int i = 0; i < themes.length; i++) {
+      result.add(getThemeBase(i));
+    }
+    return result;
   }
 
   public List<ThemeColor> getColors() {
-    return copyOf(colors);
+    List<ThemeColor> result = new ArrayList<>();
+    for (int i = 0; i < colors.length; i++) {
+      result.add(getThemeColor(i));
+    }
+    return result;
   }
 
   public List<WidgetTheme> getWidgetThemes() {
-    return copyOf(widgetThemes);
+    List<WidgetTheme> result = new ArrayList<>();
+    for (int i = 0; i < widgetThemes.length; i++) {
+      result.add(getWidgetTheme(i));
+    }
+    return result;
   }
 }
@@ -93,6 +93,84 @@ public class ThemeColor implements ColorPickerDialog.Pickable {
         R.style.White
       };
 
+  /** colorPrimary of each style in {@link #COLORS}, kept in sync with res/values/theme_*.xml */
+  static final int[] PRIMARY =
+      new int[] {
+        R.color.blue_grey_500,
+        R.color.grey_900,
+        R.color.red_500,
+        R.color.pink_500,
+        R.color.purple_500,
+        R.color.deep_purple_500,
+        R.color.indigo_500,
+        R.color.blue_500,
+        R.color.light_blue_500,
+        R.color.cyan_500,
+        R.color.teal_500,
+        R.color.green_500,
+        R.color.light_green_500,
+        R.color.lime_500,
+        R.color.yellow_500,
+        R.color.amber_500,
+        R.color.orange_500,
+        R.color.deep_orange_500,
+        R.color.brown_500,
+        R.color.grey_500,
+        R.color.white_100
+      };
+
+  /** colorPrimaryVariant of each style in {@link #COLORS} */
+  static final int[] PRIMARY_VARIANT =
+      new int[] {
+        R.color.blue_grey_700,
+        R.color.grey_statusbar,
+        R.color.red_700,
+        R.color.pink_700,
+        R.color.purple_700,
+        R.color.deep_purple_700,
+        R.color.indigo_700,
+        R.color.blue_700,
+        R.color.light_blue_700,
+        R.color.cyan_700,
+        R.color.teal_700,
+        R.color.green_700,
+        R.color.light_green_700,
+        R.color.lime_700,
+        R.color.yellow_700,
+        R.color.amber_700,
+        R.color.orange_700,
+        R.color.deep_orange_700,
+        R.color.brown_700,
+        R.color.grey_700,
+        R.color.white_100
+      };
+
+  /** dark_status_bar of each style in {@link #COLORS}, true for BlackToolbarTheme */
+  static final boolean[] DARK_STATUS_BAR =
+      new boolean[] {
+        false,
+        false,
+        false,
+        false,
+        false,
+        false,
+        false,
+        false,
+        true,
+        true,
+        false,
+        true,
+        true,
+        true,
+        true,
+        true,
+        true,
+        false,
+        false,
+        true,
+        true
+      };
+
   public static final Parcelable.Creator<ThemeColor> CREATOR =
       new Parcelable.Creator<ThemeColor>() {
         @Override
@@ -26,6 +26,7 @@ import butterknife.BindView;
 import butterknife.OnClick;
 import com.google.common.base.Strings;
 import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Task;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -60,6 +61,7 @@ public class LocationControlSet extends TaskEditControlFragment {
   @Inject DialogBuilder dialogBuilder;
   @Inject GeofenceApi geofenceApi;
   @Inject LocationDao locationDao;
+  @Inject TaskDao taskDao;
   @Inject Device device;
   @Inject FragmentPermissionRequestor permissionRequestor;
   @Inject PermissionChecker permissionChecker;
@@ -252,7 +254,8 @@ public class LocationControlSet extends TaskEditControlFragment {
   @Override
   public void apply(Task task) {
     if (original != null) {
-      geofenceApi.cancel(original);
+      Location cancelled = original;
+      taskDao.runAfterCommit(() -> geofenceApi.cancel(cancelled));
       locationDao.delete(original.geofence);
     }
     if (location != null) {
@@ -261,7 +264,8 @@ public class LocationControlSet extends TaskEditControlFragment {
       geofence.setTask(task.getId());
       geofence.setPlace(place.getUid());
       geofence.setId(locationDao.insert(geofence));
-      geofenceApi.register(Collections.singletonList(location));
+      List<Location> registered = Collections.singletonList(location);
+      taskDao.runAfterCommit(() -> geofenceApi.register(registered));
     }
     task.setModificationDate(DateUtilities.now());
   }
@@ -8,6 +8,7 @@ import static com.todoroo.andlib.utility.AndroidUtilities.preLollipop;
 import static org.tasks.LocalBroadcastManager.REFRESH;
 import static org.tasks.LocalBroadcastManager.REFRESH_LIST;
 import static org.tasks.billing.PurchaseDialog.newPurchaseDialog;
+import static org.tasks.db.QueryExecutor.PRIORITY_COUNT;
 
 import android.app.Activity;
 import android.content.BroadcastReceiver;
@@ -36,13 +37,13 @@ import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.disposables.Disposable;
-import io.reactivex.schedulers.Schedulers;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javax.inject.Inject;
 import org.tasks.LocalBroadcastManager;
 import org.tasks.R;
+import org.tasks.db.QueryExecutor;
 import org.tasks.filters.FilterProvider;
 import org.tasks.filters.NavigationDrawerAction;
 import org.tasks.injection.FragmentComponent;
@@ -67,6 +68,7 @@ public class NavigationDrawerFragment extends InjectingFragment {
   @Inject NavigationDrawerAdapter adapter;
   @Inject FilterProvider filterProvider;
   @Inject TaskDao taskDao;
+  @Inject QueryExecutor queryExecutor;
   /** A pointer to the current callbacks instance (the Activity). */
   private DrawerLayout mDrawerLayout;
 
@@ -238,10 +240,10 @@ public class NavigationDrawerFragment extends InjectingFragment {
 
   private Disposable updateFilters() {
     return Single.fromCallable(() -> filterProvider.getItems(true))
-        .subscribeOn(Schedulers.io())
+        .subscribeOn(queryExecutor.getScheduler(PRIORITY_COUNT))
         .observeOn(AndroidSchedulers.mainThread())
         .doOnSuccess(adapter::submitList)
-        .observeOn(Schedulers.io())
+        .observeOn(queryExecutor.getScheduler(PRIORITY_COUNT))
         .map(this::refreshFilterCount)
         .observeOn(AndroidSchedulers.mainThread())
         .subscribe(adapter::setCounts);
@@ -265,6 +267,7 @@ public class NavigationDrawerFragment extends InjectingFragment {
       }
       String action = intent.getAction();
       if (REFRESH.equals(action) || REFRESH_LIST.equals(action)) {
+        disposables.clear();
         disposables.add(updateFilters());
       }
     }
@@ -325,7 +325,7 @@ public class SubtaskControlSet extends TaskEditControlFragment implements Callba
   @Override
   public void toggleSubtask(long taskId, boolean collapsed) {
     taskDao.setCollapsed(taskId, collapsed);
-    localBroadcastManager.broadcastRefresh();
+    taskDao.runAfterCommit(localBroadcastManager::broadcastRefresh);
   }
 
   @Override
@@ -0,0 +1,297 @@
+package org.tasks.ui;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.DataSource;
+import androidx.paging.ItemKeyedDataSource;
+import androidx.room.InvalidationTracker;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.todoroo.astrid.core.SortHelper;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Task;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.tasks.data.TaskContainer;
+import timber.log.Timber;
+
+/**
+ * Pages a sorted task list by key. Each page continues after the sort keys of the last row loaded,
+ * so the database seeks into the sort index instead of skipping rows with OFFSET, and the rows of
+ * the page are then loaded by primary key. A count per generation provides placeholders.
+ */
+public class TaskListDataSource extends ItemKeyedDataSource<Task, TaskContainer> {
+
+  private static final String[] TABLES = {
+    "google_tasks", "caldav_tasks", "tags", "geofences", "places"
+  };
+
+  private final Database database;
+  private final TaskDao taskDao;
+  private final String tasksQuery;
+  private final List<SortKey> sortKeys;
+  private final Function<List<Long>, String> pageQuery;
+
+  private TaskListDataSource(
+      Database database,
+      TaskDao taskDao,
+      String tasksQuery,
+      List<SortKey> sortKeys,
+      Function<List<Long>, String> pageQuery) {
+    this.database = database;
+    this.taskDao = taskDao;
+    this.tasksQuery = tasksQuery;
+    this.sortKeys = sortKeys;
+    this.pageQuery = pageQuery;
+  }
+
+  @Override
+  public void loadInitial(
+      @NonNull LoadInitialParams<Task> params,
+      @NonNull LoadInitialCallback<TaskContainer> callback) {
+    if (isInvalid()) {
+      callback.onResult(Collections.emptyList(), 0, 0);
+      return;
+    }
+    Task key = params.requestedInitialKey;
+    int size = params.requestedLoadSize;
+    List<TaskContainer> rows;
+    int position;
+    int total;
+    database.beginTransaction();
+    try {
+      total = count(null);
+      rows = key == null ? Collections.emptyList() : load(key, false, true, size);
+      if (rows.isEmpty()) {
+        position = 0;
+        rows = load(null, false, false, size);
+      } else {
+        position = count(key);
+      }
+      database.setTransactionSuccessful();
+    } finally {
+      database.endTransaction();
+    }
+    callback.onResult(rows, position, Math.max(total, position + rows.size()));
+  }
+
+  @Override
+  public void loadAfter(
+      @NonNull LoadParams<Task> params, @NonNull LoadCallback<TaskContainer> callback) {
+    callback.onResult(load(params.key, false, false, params.requestedLoadSize));
+  }
+
+  @Override
+  public void loadBefore(
+      @NonNull LoadParams<Task> params, @NonNull LoadCallback<TaskContainer> callback) {
+    callback.onResult(load(params.key, true, false, params.requestedLoadSize));
+  }
+
+  @NonNull
+  @Override
+  public Task getKey(@NonNull TaskContainer item) {
+    return item.getTask();
+  }
+
+  /** @return number of rows in the list, or before {@code key} if it is not null */
+  private int count(@Nullable Task key) {
+    List<Object> args = new ArrayList<>();
+    String sql = "SELECT COUNT(DISTINCT tasks._id) FROM (" + tasksQuery + ") AS tasks";
+    if (key != null) {
+      sql += " WHERE " + seek(key, true, false, args);
+    }
+    return taskDao.count(new SimpleSQLiteQuery(sql, args.toArray()));
+  }
+
+  /**
+   * @param key continue from this row, or from the start of the list if null
+   * @param before load the rows preceding {@code key} instead of the rows following it
+   * @param inclusive include {@code key} itself
+   */
+  private List<TaskContainer> load(@Nullable Task key, boolean before, boolean inclusive, int size) {
+    if (isInvalid()) {
+      return Collections.emptyList();
+    }
+    List<Object> args = new ArrayList<>();
+    StringBuilder sql =
+        new StringBuilder("SELECT tasks._id FROM (").append(tasksQuery).append(") AS tasks");
+    if (key != null) {
+      sql.append(" WHERE ").append(seek(key, before, inclusive, args));
+    }
+    sql.append(" ORDER BY ");
+    for (int i = 0; i < sortKeys.size(); i++) {
+      SortKey sortKey = sortKeys.get(i);
+      sql.append(i == 0 ? "" : ", ")
+          .append(sortKey.column)
+          .append(sortKey.descending != before ? " DESC" : " ASC");
+    }
+    sql.append(" LIMIT ").append(size);
+    List<Long> ids =
+        newArrayList(
+            new LinkedHashSet<>(
+                taskDao.fetchIds(new SimpleSQLiteQuery(sql.toString(), args.toArray()))));
+    if (before) {
+      ids = Lists.reverse(ids);
+    }
+    if (ids.isEmpty()) {
+      return Collections.emptyList();
+    }
+    Map<Long, TaskContainer> rows = new HashMap<>();
+    for (TaskContainer row : taskDao.fetchTasks(new SimpleSQLiteQuery(pageQuery.apply(ids)))) {
+      rows.put(row.getId(), row);
+    }
+    List<TaskContainer> result = newArrayList();
+    for (Long id : ids) {
+      TaskContainer row = rows.get(id);
+      if (row == null) {
+        Timber.d("%s removed since ids were read", id);
+        invalidate();
+        return Collections.emptyList();
+      }
+      result.add(row);
+    }
+    return result;
+  }
+
+  /**
+   * Rows on one side of {@code key}. The leading range on the first sort key lets SQLite seek into
+   * the index, the nested comparisons settle ties on the remaining keys.
+   */
+  private String seek(Task key, boolean before, boolean inclusive, List<Object> args) {
+    SortKey first = sortKeys.get(0);
+    args.add(first.value.apply(key));
+    return first.column
+        + (first.descending != before ? " <= ?" : " >= ?")
+        + " AND "
+        + compare(key, 0, before, inclusive, args);
+  }
+
+  private String compare(Task key, int index, boolean before, boolean inclusive, List<Object> args) {
+    SortKey sortKey = sortKeys.get(index);
+    Object value = sortKey.value.apply(key);
+    String operator = sortKey.descending != before ? " <" : " >";
+    args.add(value);
+    if (index == sortKeys.size() - 1) {
+      return sortKey.column + operator + (inclusive ? "= ?" : " ?");
+    }
+    args.add(value);
+    return "("
+        + sortKey.column
+        + operator
+        + " ? OR ("
+        + sortKey.column
+        + " = ? AND "
+        + compare(key, index + 1, before, inclusive, args)
+        + "))";
+  }
+
+  /** A column the list is ordered by, and how to read it from the last row of a page */
+  static class SortKey {
+
+    private static final SortKey TITLE = new SortKey("tasks.sort_title", t -> t.sortTitle);
+    private static final SortKey DUE = new SortKey("tasks.sort_due", t -> t.sortDue);
+    private static final SortKey SMART = new SortKey("tasks.sort_smart", t -> t.sortSmart);
+    private static final SortKey IMPORTANCE =
+        new SortKey("tasks.importance", Task::getPriority);
+    private static final SortKey MODIFIED =
+        new SortKey("tasks.modified", Task::getModificationDate);
+    private static final SortKey ID = new SortKey("tasks._id", Task::getId);
+
+    private final String column;
+    private final Function<Task, Object> value;
+    private final boolean descending;
+
+    private SortKey(String column, Function<Task, Object> value) {
+      this(column, value, false);
+    }
+
+    private SortKey(String column, Function<Task, Object> value, boolean descending) {
+      this.column = column;
+      this.value = value;
+      this.descending = descending;
+    }
+
+    private SortKey reverse() {
+      return new SortKey(column, value, !descending);
+    }
+
+    /**
+     * Same order as {@link SortHelper#adjustQueryForFlagsAndSort}, followed by the task id so that
+     * every row has a unique position
+     */
+    static List<SortKey> forSortMode(int sortMode, boolean reverse) {
+      List<SortKey> keys;
+      switch (sortMode) {
+        case SortHelper.SORT_ALPHA:
+          keys = ImmutableList.of(TITLE, ID);
+          break;
+        case SortHelper.SORT_DUE:
+          keys = ImmutableList.of(DUE, TITLE, ID);
+          break;
+        case SortHelper.SORT_IMPORTANCE:
+          keys = ImmutableList.of(IMPORTANCE, DUE, TITLE, ID);
+          break;
+        case SortHelper.SORT_MODIFIED:
+          keys = ImmutableList.of(MODIFIED.reverse(), TITLE, ID);
+          break;
+        default:
+          keys = ImmutableList.of(SMART, TITLE, ID);
+      }
+      return reverse ? Lists.transform(keys, SortKey::reverse) : keys;
+    }
+  }
+
+  public static class Factory extends DataSource.Factory<Task, TaskContainer> {
+
+    private final Database database;
+    private final TaskDao taskDao;
+    private final String tasksQuery;
+    private final List<SortKey> sortKeys;
+    private final Function<List<Long>, String> pageQuery;
+
+    /**
+     * @param tasksQuery selects the unordered rows of the tasks table in the list
+     * @param pageQuery builds a query for the rows of the given ids, in any order
+     */
+    Factory(
+        Database database,
+        TaskDao taskDao,
+        String tasksQuery,
+        List<SortKey> sortKeys,
+        Function<List<Long>, String> pageQuery) {
+      this.database = database;
+      this.taskDao = taskDao;
+      this.tasksQuery = tasksQuery;
+      this.sortKeys = sortKeys;
+      this.pageQuery = pageQuery;
+    }
+
+    @NonNull
+    @Override
+    public DataSource<Task, TaskContainer> create() {
+      TaskListDataSource dataSource =
+          new TaskListDataSource(database, taskDao, tasksQuery, sortKeys, pageQuery);
+      InvalidationTracker tracker = database.getInvalidationTracker();
+      InvalidationTracker.Observer observer =
+          new InvalidationTracker.Observer("tasks", TABLES) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+              dataSource.invalidate();
+            }
+          };
+      tracker.addObserver(observer);
+      dataSource.addInvalidatedCallback(() -> tracker.removeObserver(observer));
+      return dataSource;
+    }
+  }
+}
@@ -3,11 +3,10 @@ package org.tasks.ui;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.todoroo.andlib.sql.Field.field;
 import static com.todoroo.andlib.utility.AndroidUtilities.assertMainThread;
-import static com.todoroo.andlib.utility.AndroidUtilities.assertNotMainThread;
-import static com.todoroo.andlib.utility.DateUtilities.now;
 import static com.todoroo.astrid.activity.TaskListFragment.CALDAV_METADATA_JOIN;
 import static com.todoroo.astrid.activity.TaskListFragment.GTASK_METADATA_JOIN;
 import static com.todoroo.astrid.activity.TaskListFragment.TAGS_METADATA_JOIN;
+import static org.tasks.db.QueryExecutor.PRIORITY_LIST;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.LifecycleOwner;
@@ -32,14 +31,13 @@ import com.todoroo.astrid.api.GtasksFilter;
 import com.todoroo.astrid.api.PermaSql;
 import com.todoroo.astrid.api.TagFilter;
 import com.todoroo.astrid.core.SortHelper;
+import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
 import com.todoroo.astrid.data.Task;
-import io.reactivex.Completable;
 import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
-import io.reactivex.schedulers.Schedulers;
 import java.util.Collections;
 import java.util.List;
 import javax.inject.Inject;
@@ -52,13 +50,13 @@ import org.tasks.data.GoogleTaskList;
 import org.tasks.data.Place;
 import org.tasks.data.Tag;
 import org.tasks.data.TaskContainer;
+import org.tasks.db.QueryExecutor;
 import org.tasks.preferences.Preferences;
 import timber.log.Timber;
 
 public class TaskListViewModel extends ViewModel implements Observer<PagedList<TaskContainer>> {
 
-  private static final PagedList.Config PAGED_LIST_CONFIG =
-      new PagedList.Config.Builder().setPageSize(20).build();
+  private static final int PAGE_SIZE = 30;
   private static final Criterion JOIN_GTASK =
       Criterion.and(
           Task.ID.eq(field(GTASK_METADATA_JOIN + ".gt_task")),
@@ -92,6 +90,8 @@ public class TaskListViewModel extends ViewModel implements Observer<PagedList<T
 
   @Inject Preferences preferences;
   @Inject TaskDao taskDao;
+  @Inject Database database;
+  @Inject QueryExecutor queryExecutor;
   private MutableLiveData<List<TaskContainer>> tasks = new MutableLiveData<>();
   private Filter filter;
   private boolean manualSort;
@@ -214,11 +214,11 @@ public class TaskListViewModel extends ViewModel implements Observer<PagedList<T
       String sortSelect = SortHelper.orderSelectForSortTypeRecursive(preferences.getSortMode());
       String withClause = "CREATE TEMPORARY TABLE `recursive_tasks` AS\n"
               + "WITH RECURSIVE recursive_tasks (task, parent, collapsed, hidden, indent, title, sortField) AS (\n"
-              + " SELECT tasks._id, 0 as parent, tasks.collapsed as collapsed, 0 as hidden, 0 AS sort_indent, UPPER(title) AS sort_title, "
+              + " SELECT tasks._id, 0 as parent, tasks.collapsed as collapsed, 0 as hidden, 0 AS sort_indent, tasks.sort_title AS sort_title, "
               + sortSelect
               + " FROM tasks\n"
               + parentQuery
-              + "\nUNION ALL SELECT tasks._id, recursive_tasks.task as parent, tasks.collapsed as collapsed, CASE WHEN recursive_tasks.collapsed > 0 OR recursive_tasks.hidden > 0 THEN 1 ELSE 0 END as hidden, recursive_tasks.indent+1 AS sort_indent, UPPER(tasks.title) AS sort_title, "
+              + "\nUNION ALL SELECT tasks._id, recursive_tasks.task as parent, tasks.collapsed as collapsed, CASE WHEN recursive_tasks.collapsed > 0 OR recursive_tasks.hidden > 0 THEN 1 ELSE 0 END as hidden, recursive_tasks.indent+1 AS sort_indent, tasks.sort_title AS sort_title, "
               + sortSelect
               + " FROM tasks\n"
               + subtaskQuery
@@ -245,38 +245,69 @@ public class TaskListViewModel extends ViewModel implements Observer<PagedList<T
         fields.add(PRIMARY_SORT);
         fields.add(SECONDARY_SORT);
       }
-      // TODO: For now, we'll modify the query to join and include the things like tag data here.
-      // Eventually, we might consider restructuring things so that this query is constructed
-      // elsewhere.
-      Criterion tagsJoinCriterion =
-          filter instanceof TagFilter
-              ? Criterion.and(
-                  JOIN_TAGS,
-                  field(TAGS_METADATA_JOIN + ".tag_uid").neq(((TagFilter) filter).getUuid()))
-              : JOIN_TAGS;
-
-      String joinedQuery =
-          Join.left(Tag.TABLE.as(TAGS_METADATA_JOIN), tagsJoinCriterion).toString()
-              + JOINS
-              + filter.getSqlQuery();
-
-      String query =
-          SortHelper.adjustQueryForFlagsAndSort(
-              preferences, joinedQuery, preferences.getSortMode());
-
-      String groupedQuery =
-              query.contains("ORDER BY")
-                      ? query.replace("ORDER BY", "GROUP BY " + Task.ID + " ORDER BY")
-                      : query + " GROUP BY " + Task.ID;
 
       return newArrayList(
           Query.select(fields.toArray(new Field[0]))
-              .withQueryTemplate(PermaSql.replacePlaceholdersForQuery(groupedQuery))
+              .withQueryTemplate(
+                  PermaSql.replacePlaceholdersForQuery(getGroupedQuery(preferences, filter)))
               .from(Task.TABLE)
               .toString());
     }
   }
 
+  private static String getGroupedQuery(Preferences preferences, Filter filter) {
+    // TODO: For now, we'll modify the query to join and include the things like tag data here.
+    // Eventually, we might consider restructuring things so that this query is constructed
+    // elsewhere.
+    String joinedQuery = getTagsJoin(filter) + JOINS + filter.getSqlQuery();
+
+    String query =
+        SortHelper.adjustQueryForFlagsAndSort(preferences, joinedQuery, preferences.getSortMode());
+
+    return query.contains("ORDER BY")
+        ? query.replace("ORDER BY", "GROUP BY " + Task.ID + " ORDER BY")
+        : query + " GROUP BY " + Task.ID;
+  }
+
+  private static String getTagsJoin(Filter filter) {
+    Criterion tagsJoinCriterion =
+        filter instanceof TagFilter
+            ? Criterion.and(
+                JOIN_TAGS,
+                field(TAGS_METADATA_JOIN + ".tag_uid").neq(((TagFilter) filter).getUuid()))
+            : JOIN_TAGS;
+    return Join.left(Tag.TABLE.as(TAGS_METADATA_JOIN), tagsJoinCriterion).toString();
+  }
+
+  /** Filters that bring their own order can't be paged by the sort keys */
+  private static boolean hasCustomOrder(Filter filter) {
+    return filter.getSqlQuery().toUpperCase().contains("ORDER BY");
+  }
+
+  /** Unordered rows of the tasks table in a list, see {@link TaskListDataSource} */
+  private static String getTasksQuery(Preferences preferences, Filter filter) {
+    return Query.select(TASKS)
+        .withQueryTemplate(
+            PermaSql.replacePlaceholdersForQuery(
+                SortHelper.adjustQueryForFlags(preferences, filter.getSqlQuery())))
+        .from(Task.TABLE)
+        .toString();
+  }
+
+  /** Rows for a page of ids, joined the same way as the full query */
+  private static String getPageQuery(Filter filter, List<Long> ids) {
+    return Query.select(TASKS, GTASK, CALDAV, GEOFENCE, PLACE, TAGS)
+        .withQueryTemplate(
+            getTagsJoin(filter)
+                + JOINS
+                + " WHERE "
+                + Task.ID.in(ids)
+                + " GROUP BY "
+                + Task.ID)
+        .from(Task.TABLE)
+        .toString();
+  }
+
   private static void addGoogleSubtasks(QueryTemplate subtaskQuery) {
     subtaskQuery
         .join(Join.inner(RECURSIVE, GoogleTask.PARENT.eq(RECURSIVE_TASK)))
@@ -326,9 +357,15 @@ public class TaskListViewModel extends ViewModel implements Observer<PagedList<T
     invalidate();
   }
 
+  /** Stops the previous list, pending page loads for it are skipped */
   private void removeObserver() {
     if (internal != null) {
       internal.removeObserver(this);
+      PagedList<TaskContainer> previous = internal.getValue();
+      if (previous != null) {
+        previous.getDataSource().invalidate();
+      }
+      internal = null;
     }
   }
 
@@ -341,6 +378,8 @@ public class TaskListViewModel extends ViewModel implements Observer<PagedList<T
       return;
     }
 
+    disposable.clear();
+
     if (manualSort) {
       disposable.add(
           Single.fromCallable(
@@ -352,41 +391,58 @@ public class TaskListViewModel extends ViewModel implements Observer<PagedList<T
                               filter,
                               includeGoogleSubtasks,
                               includeCaldavSubtasks))))
-              .subscribeOn(Schedulers.io())
+              .subscribeOn(queryExecutor.getScheduler(PRIORITY_LIST))
               .observeOn(AndroidSchedulers.mainThread())
               .subscribe(tasks::postValue, Timber::e));
     } else {
-      List<String> queries = getQuery(preferences, filter, false, false);
-      if (BuildConfig.DEBUG && queries.size() != 1) {
-        throw new RuntimeException("Invalid queries");
-      }
-      SimpleSQLiteQuery query = new SimpleSQLiteQuery(queries.get(0));
-      Timber.d("paged query: %s", query.getSql());
-      Factory<Integer, TaskContainer> factory = taskDao.getTaskFactory(query);
-      LivePagedListBuilder<Integer, TaskContainer> builder =
-          new LivePagedListBuilder<>(factory, PAGED_LIST_CONFIG);
-      List<TaskContainer> current = tasks.getValue();
-      if (current instanceof PagedList) {
-        Object lastKey = ((PagedList<TaskContainer>) current).getLastKey();
-        if (lastKey instanceof Integer) {
-          builder.setInitialLoadKey((Integer) lastKey);
+      if (hasCustomOrder(filter)) {
+        List<String> queries = getQuery(preferences, filter, false, false);
+        if (BuildConfig.DEBUG && queries.size() != 1) {
+          throw new RuntimeException("Invalid queries");
         }
+        SimpleSQLiteQuery query = new SimpleSQLiteQuery(queries.get(0));
+        Timber.d("paged query: %s", query.getSql());
+        observe(taskDao.getTaskFactory(query), Integer.class);
+      } else {
+        Filter pagedFilter = filter;
+        String tasksQuery = getTasksQuery(preferences, pagedFilter);
+        Timber.d("paged query: %s", tasksQuery);
+        observe(
+            new TaskListDataSource.Factory(
+                database,
+                taskDao,
+                tasksQuery,
+                TaskListDataSource.SortKey.forSortMode(
+                    preferences.getSortMode(), preferences.isReverseSort()),
+                ids -> getPageQuery(pagedFilter, ids)),
+            Task.class);
       }
-      if (BuildConfig.DEBUG) {
-        builder.setFetchExecutor(command ->
-            Completable.fromAction(
-                () -> {
-                  assertNotMainThread();
-                  long start = now();
-                  command.run();
-                  Timber.d("*** paged list execution took %sms", now() - start);
-                })
-                .subscribeOn(Schedulers.io())
-                .subscribe());
+    }
+  }
+
+  /** Builds a paged list that resumes near the last position read from the current list */
+  private <K> void observe(Factory<K, TaskContainer> factory, Class<K> keyType) {
+    LivePagedListBuilder<K, TaskContainer> builder =
+        new LivePagedListBuilder<>(factory, getPagedListConfig());
+    List<TaskContainer> current = tasks.getValue();
+    if (current instanceof PagedList) {
+      Object lastKey = ((PagedList<TaskContainer>) current).getLastKey();
+      if (keyType.isInstance(lastKey)) {
+        builder.setInitialLoadKey(keyType.cast(lastKey));
       }
-      internal = builder.build();
-      internal.observeForever(this);
     }
+    builder.setFetchExecutor(queryExecutor.getExecutor(PRIORITY_LIST));
+    internal = builder.build();
+    internal.observeForever(this);
+  }
+
+  private PagedList.Config getPagedListConfig() {
+    return new PagedList.Config.Builder()
+        .setPageSize(PAGE_SIZE)
+        .setInitialLoadSizeHint(PAGE_SIZE * 2)
+        .setPrefetchDistance(PAGE_SIZE)
+        .setEnablePlaceholders(true)
+        .build();
   }
 
   @Override
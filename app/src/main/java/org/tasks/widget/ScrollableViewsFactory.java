@@ -2,6 +2,7 @@ package org.tasks.widget;
 
 import static androidx.core.content.ContextCompat.getColor;
 import static com.todoroo.andlib.utility.AndroidUtilities.atLeastJellybeanMR1;
+import static org.tasks.db.QueryExecutor.PRIORITY_BACKGROUND;
 
 import android.appwidget.AppWidgetManager;
 import android.content.Context;
@@ -17,11 +18,13 @@ import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.subtasks.SubtasksHelper;
+import io.reactivex.Single;
 import java.util.ArrayList;
 import java.util.List;
 import org.tasks.BuildConfig;
 import org.tasks.R;
 import org.tasks.data.TaskContainer;
+import org.tasks.db.QueryExecutor;
 import org.tasks.locale.Locale;
 import org.tasks.preferences.DefaultFilterProvider;
 import org.tasks.preferences.Preferences;
@@ -36,6 +39,7 @@ class ScrollableViewsFactory implements RemoteViewsService.RemoteViewsFactory {
   private final ThemeCache themeCache;
   private final int widgetId;
   private final TaskDao taskDao;
+  private final QueryExecutor queryExecutor;
   private final DefaultFilterProvider defaultFilterProvider;
   private final SubtasksHelper subtasksHelper;
   private final Preferences preferences;
@@ -60,6 +64,7 @@ class ScrollableViewsFactory implements RemoteViewsService.RemoteViewsFactory {
       Context context,
       int widgetId,
       TaskDao taskDao,
+      QueryExecutor queryExecutor,
       DefaultFilterProvider defaultFilterProvider,
       ThemeCache themeCache) {
     this.subtasksHelper = subtasksHelper;
@@ -67,6 +72,7 @@ class ScrollableViewsFactory implements RemoteViewsService.RemoteViewsFactory {
     this.context = context;
     this.widgetId = widgetId;
     this.taskDao = taskDao;
+    this.queryExecutor = queryExecutor;
     this.defaultFilterProvider = defaultFilterProvider;
     this.themeCache = themeCache;
     widgetPreferences = new WidgetPreferences(context, preferences, widgetId);
@@ -81,11 +87,17 @@ class ScrollableViewsFactory implements RemoteViewsService.RemoteViewsFactory {
 
   @Override
   public void onDataSetChanged() {
-    updateSettings();
+    // runs on a binder thread that has to wait for the result, queue it behind the list on screen
     tasks =
-        taskDao.fetchTasks(
-            (includeGoogleSubtasks, includeCaldavSubtasks) ->
-                getQuery(filter, includeGoogleSubtasks, includeCaldavSubtasks));
+        Single.fromCallable(
+                () -> {
+                  updateSettings();
+                  return taskDao.fetchTasks(
+                      (includeGoogleSubtasks, includeCaldavSubtasks) ->
+                          getQuery(filter, includeGoogleSubtasks, includeCaldavSubtasks));
+                })
+            .subscribeOn(queryExecutor.getScheduler(PRIORITY_BACKGROUND))
+            .blockingGet();
   }
 
   @Override
@@ -7,6 +7,7 @@ import android.widget.RemoteViewsService;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.subtasks.SubtasksHelper;
 import javax.inject.Inject;
+import org.tasks.db.QueryExecutor;
 import org.tasks.injection.InjectingApplication;
 import org.tasks.locale.Locale;
 import org.tasks.preferences.DefaultFilterProvider;
@@ -21,6 +22,7 @@ public class ScrollableWidgetUpdateService extends RemoteViewsService {
   @Inject DefaultFilterProvider defaultFilterProvider;
   @Inject ThemeCache themeCache;
   @Inject Locale locale;
+  @Inject QueryExecutor queryExecutor;
 
   @Override
   public void onCreate() {
@@ -54,6 +56,7 @@ public class ScrollableWidgetUpdateService extends RemoteViewsService {
         locale.createConfigurationContext(getApplicationContext()),
         widgetId,
         taskDao,
+        queryExecutor,
         defaultFilterProvider,
         themeCache);
   }
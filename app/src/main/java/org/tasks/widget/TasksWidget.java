@@ -4,6 +4,7 @@ import static android.content.Intent.FLAG_ACTIVITY_CLEAR_TASK;
 import static android.content.Intent.FLAG_ACTIVITY_CLEAR_TOP;
 import static android.content.Intent.FLAG_ACTIVITY_NEW_TASK;
 import static com.todoroo.andlib.utility.AndroidUtilities.atLeastJellybeanMR1;
+import static org.tasks.db.QueryExecutor.PRIORITY_BACKGROUND;
 
 import android.app.PendingIntent;
 import android.appwidget.AppWidgetManager;
@@ -18,8 +19,10 @@ import android.widget.RemoteViews;
 import com.todoroo.astrid.activity.MainActivity;
 import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.dao.TaskDao;
+import io.reactivex.Completable;
 import javax.inject.Inject;
 import org.tasks.R;
+import org.tasks.db.QueryExecutor;
 import org.tasks.injection.BroadcastComponent;
 import org.tasks.injection.ForApplication;
 import org.tasks.injection.InjectingAppWidgetProvider;
@@ -41,6 +44,7 @@ public class TasksWidget extends InjectingAppWidgetProvider {
   @Inject Locale locale;
   @Inject TaskDao taskDao;
   @Inject @ForApplication Context context;
+  @Inject QueryExecutor queryExecutor;
 
   private static Bitmap getSolidBackground(int bgColor) {
     Bitmap bitmap = Bitmap.createBitmap(2, 2, Bitmap.Config.ARGB_8888); // Create a Bitmap
@@ -55,17 +59,21 @@ public class TasksWidget extends InjectingAppWidgetProvider {
 
   @Override
   public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-    try {
-      super.onUpdate(context, appWidgetManager, appWidgetIds);
+    super.onUpdate(context, appWidgetManager, appWidgetIds);
 
-      ComponentName thisWidget = new ComponentName(context, TasksWidget.class);
-      int[] ids = appWidgetManager.getAppWidgetIds(thisWidget);
-      for (int id : ids) {
-        appWidgetManager.updateAppWidget(id, createScrollableWidget(context, id));
-      }
-    } catch (Exception e) {
-      Timber.e(e);
-    }
+    // looking up the filters reads the database, queue it behind the list on screen
+    PendingResult result = goAsync();
+    Completable.fromAction(
+            () -> {
+              ComponentName thisWidget = new ComponentName(context, TasksWidget.class);
+              int[] ids = appWidgetManager.getAppWidgetIds(thisWidget);
+              for (int id : ids) {
+                appWidgetManager.updateAppWidget(id, createScrollableWidget(context, id));
+              }
+            })
+        .subscribeOn(queryExecutor.getScheduler(PRIORITY_BACKGROUND))
+        .doFinally(result::finish)
+        .subscribe(() -> {}, Timber::e);
   }
 
   private RemoteViews createScrollableWidget(Context context, int id) {